@@ -0,0 +1,151 @@
+package ru.mail.polis.bench;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Общая часть бенчмарков множеств.
+ *
+ * Множество заполняется size ключами в порядке, заданном {@link KeyDistribution}, после чего
+ * измеряется пачка из {@link #BATCH} операций одного вида над ключами из шаблона обращений.
+ * Ключи шаблона раскладываются в кольцо один раз при заполнении, пачка — это очередное окно кольца.
+ * Размер множества между пачками не меняется: перед пачкой ADD её ключи удаляются,
+ * после пачки REMOVE — возвращаются обратно, и всё это остаётся вне замера.
+ *
+ * Параметры size и distribution объявляет подкласс: так реализация, которой часть сочетаний
+ * не по силам, получает свой набор значений, а не ошибку в @Setup.
+ *
+ * Throughput даёт операции в микросекунду, AverageTime — время одной операции.
+ *
+ * @param <E> тип ключа
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms6g", "-Xmx6g"})
+@State(Scope.Thread)
+public abstract class AbstractSetBenchmark<E> {
+
+    public enum Operation {
+        ADD, CONTAINS, REMOVE
+    }
+
+    static final int BATCH = 1024;
+    private static final int ACCESS_PATTERN_LENGTH = 1 << 16;
+    private static final long SEED = 20171213L;
+
+    @Param
+    public Operation operation;
+
+    private Set<E> set;
+    private E[] ring;
+    private int cursor;
+
+    /**
+     * @return количество ключей в множестве, параметр size подкласса
+     */
+    protected abstract int size();
+
+    /**
+     * @return порядок вставки и обращений, параметр distribution подкласса
+     */
+    protected abstract KeyDistribution distribution();
+
+    /**
+     * @return новое пустое множество тестируемой реализации
+     */
+    protected abstract Set<E> createSet();
+
+    /**
+     * @return массив ключей длины size, ключ с индексом i соответствует i-му по порядку ключу
+     */
+    protected abstract E[] createKeys(int size, Random random);
+
+    @Setup(Level.Trial)
+    public void fill() {
+        Random random = new Random(SEED);
+        int size = size();
+        KeyDistribution distribution = distribution();
+        E[] keys = createKeys(size, random);
+        set = createSet();
+        for (int index : distribution.insertionOrder(size, random)) {
+            set.add(keys[index]);
+        }
+        int[] accesses = distribution.accessPattern(size, ACCESS_PATTERN_LENGTH, random);
+        ring = Arrays.copyOf(keys, ACCESS_PATTERN_LENGTH);
+        for (int i = 0; i < ACCESS_PATTERN_LENGTH; i++) {
+            ring[i] = keys[accesses[i]];
+        }
+        cursor = 0;
+    }
+
+    /**
+     * Возвращает множеству размер size вне замера. Уровень Invocation нужен только ADD и REMOVE:
+     * откатить пачку между вызовами больше негде, а накладные расходы JMH на такой фикстуре
+     * делятся на {@link #BATCH} операций. Для CONTAINS фикстура пуста
+     */
+    @Setup(Level.Invocation)
+    public void restore() {
+        switch (operation) {
+            case ADD:
+                for (int i = cursor; i < cursor + BATCH; i++) {
+                    set.remove(ring[i]);
+                }
+                break;
+            case REMOVE:
+                int previous = (cursor - BATCH) & (ACCESS_PATTERN_LENGTH - 1);
+                for (int i = previous; i < previous + BATCH; i++) {
+                    set.add(ring[i]);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void run(Blackhole blackhole) {
+        final Set<E> set = this.set;
+        final E[] ring = this.ring;
+        final int from = cursor;
+        cursor = (from + BATCH) & (ACCESS_PATTERN_LENGTH - 1);
+        switch (operation) {
+            case ADD:
+                for (int i = from; i < from + BATCH; i++) {
+                    blackhole.consume(set.add(ring[i]));
+                }
+                break;
+            case CONTAINS:
+                for (int i = from; i < from + BATCH; i++) {
+                    blackhole.consume(set.contains(ring[i]));
+                }
+                break;
+            case REMOVE:
+                for (int i = from; i < from + BATCH; i++) {
+                    blackhole.consume(set.remove(ring[i]));
+                }
+                break;
+            default:
+                throw new IllegalStateException("operation = " + operation);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package ru.mail.polis.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Запускает бенчмарки с профилировщиком GC, который добавляет к результатам
+ * скорость аллокаций (gc.alloc.rate) и количество байт на операцию (gc.alloc.rate.norm).
+ *
+ * Принимает обычные аргументы JMH, например:
+ * <pre>
+ *     BenchmarkRunner IntegerSetBenchmark -p size=1000,100000 -p implementation=AVLTree,TreeSet
+ * </pre>
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
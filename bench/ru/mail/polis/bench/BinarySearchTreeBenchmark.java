@@ -0,0 +1,72 @@
+package ru.mail.polis.bench;
+
+import java.util.Random;
+import java.util.Set;
+
+import org.openjdk.jmh.annotations.Param;
+
+import ru.mail.polis.BinarySearchTree;
+
+/**
+ * Бенчмарк несбалансированного {@link BinarySearchTree} на ключах Integer, в тех же единицах, что и
+ * {@link IntegerSetBenchmark}. На случайных ключах и по Ципфу дерево меряется на всех размерах,
+ * а на последовательных вырождается в список и заполняется за O(n^2) — для них есть {@link Sequential}
+ * с размерами до 100K.
+ */
+public class BinarySearchTreeBenchmark extends AbstractSetBenchmark<Integer> {
+
+    @Param({"1000", "10000", "100000", "1000000", "10000000"})
+    public int size;
+
+    @Param({"RANDOM", "ZIPF"})
+    public KeyDistribution distribution;
+
+    @Override
+    protected int size() {
+        return size;
+    }
+
+    @Override
+    protected KeyDistribution distribution() {
+        return distribution;
+    }
+
+    @Override
+    protected Set<Integer> createSet() {
+        return new BinarySearchTree<>();
+    }
+
+    @Override
+    protected Integer[] createKeys(int size, Random random) {
+        return IntegerSetBenchmark.integerKeys(size);
+    }
+
+    /**
+     * Последовательные ключи: дерево — список, каждая операция проходит его целиком
+     */
+    public static class Sequential extends AbstractSetBenchmark<Integer> {
+
+        @Param({"1000", "10000", "100000"})
+        public int size;
+
+        @Override
+        protected int size() {
+            return size;
+        }
+
+        @Override
+        protected KeyDistribution distribution() {
+            return KeyDistribution.SEQUENTIAL;
+        }
+
+        @Override
+        protected Set<Integer> createSet() {
+            return new BinarySearchTree<>();
+        }
+
+        @Override
+        protected Integer[] createKeys(int size, Random random) {
+            return IntegerSetBenchmark.integerKeys(size);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package ru.mail.polis.bench;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ru.mail.polis.SimpleStudentGenerator;
+import ru.mail.polis.Student;
+import ru.mail.polis.StudentColumns;
+
+/**
+ * Аналитический запрос «сколько студентов каждого пола поступило в [2012, 2014] и родилось в 1995 году»
+ * по списку объектов {@link Student} и по колонкам {@link StudentColumns}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Thread)
+public class ColumnarScanBenchmark {
+
+    private static final LocalDate BORN_FROM = LocalDate.of(1995, 1, 1);
+    private static final LocalDate BORN_TO = LocalDate.of(1995, 12, 31);
+
+    @Param({"10000", "1000000"})
+    public int size;
+
+    private List<Student> students;
+    private StudentColumns columns;
+
+    @Setup
+    public void generate() {
+        students = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            students.add(SimpleStudentGenerator.getInstance().generate());
+        }
+        columns = new StudentColumns(students);
+    }
+
+    @Benchmark
+    public int[] objects() {
+        int[] counts = new int[Student.Gender.values().length];
+        for (Student student : students) {
+            if (student.getYearOfAdmission() >= 2012 && student.getYearOfAdmission() <= 2014
+                    && !student.getBirthday().isBefore(BORN_FROM) && !student.getBirthday().isAfter(BORN_TO)) {
+                counts[student.getGender().ordinal()]++;
+            }
+        }
+        return counts;
+    }
+
+    @Benchmark
+    public int[] columns() {
+        long[] selection = StudentColumns.and(columns.selectYearOfAdmission(2012, 2014),
+                columns.selectBornBetween(BORN_FROM, BORN_TO));
+        return columns.countByGender(selection);
+    }
+}
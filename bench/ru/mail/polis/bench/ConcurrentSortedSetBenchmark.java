@@ -0,0 +1,85 @@
+package ru.mail.polis.bench;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ru.mail.polis.ConcurrentRedBlackTree;
+import ru.mail.polis.RedBlackTree;
+
+/**
+ * Бенчмарк потокобезопасных упорядоченных множеств под смешанной нагрузкой:
+ * в группе семь потоков ищут ключи и один поток добавляет и удаляет.
+ *
+ * Множество заполняется чётными ключами из [0, 2 * size), писатель добавляет и сразу удаляет нечётные,
+ * поэтому размер множества за время замера почти не меняется. SynchronizedRedBlackTree —
+ * {@link RedBlackTree} под Collections.synchronizedSortedSet, то есть под одним монитором.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms6g", "-Xmx6g"})
+@State(Scope.Group)
+public class ConcurrentSortedSetBenchmark {
+
+    @Param({"ConcurrentRedBlackTree", "ConcurrentSkipListSet", "SynchronizedRedBlackTree"})
+    public String implementation;
+
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    private Set<Integer> set;
+
+    @Setup(Level.Trial)
+    public void fill() {
+        switch (implementation) {
+            case "ConcurrentRedBlackTree":
+                set = new ConcurrentRedBlackTree<>();
+                break;
+            case "ConcurrentSkipListSet":
+                set = new ConcurrentSkipListSet<>();
+                break;
+            case "SynchronizedRedBlackTree":
+                set = Collections.synchronizedSortedSet(new RedBlackTree<Integer>());
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown implementation " + implementation);
+        }
+        for (int i = 0; i < size; i++) {
+            set.add(2 * i);
+        }
+    }
+
+    @Benchmark
+    @Group("readHeavy")
+    @GroupThreads(7)
+    public boolean contains() {
+        return set.contains(ThreadLocalRandom.current().nextInt(2 * size));
+    }
+
+    @Benchmark
+    @Group("readHeavy")
+    @GroupThreads(1)
+    public boolean addRemove() {
+        Integer key = 2 * ThreadLocalRandom.current().nextInt(size) + 1;
+        return set.add(key) & set.remove(key);
+    }
+}
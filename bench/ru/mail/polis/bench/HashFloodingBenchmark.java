@@ -0,0 +1,133 @@
+package ru.mail.polis.bench;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import ru.mail.polis.ChainHashTable;
+import ru.mail.polis.OpenHashTable;
+import ru.mail.polis.ProbeStrategy;
+import ru.mail.polis.SimpleStudentGenerator;
+import ru.mail.polis.Student;
+
+/**
+ * Поиск в хеш-таблицах с ключом и без под атакой подбором коллизий.
+ *
+ * В CRAFTED у всех студентов одинаковый {@link Student#baseHash()}: имя каждого подобрано так,
+ * чтобы скомпенсировать разницу в id. Без ключа все они попадают в одну цепочку проб или одну корзину
+ * и поиск становится линейным, таблицы с ключом хешируют поля через SipHash и подбор не работает.
+ * RANDOM — обычные студенты из {@link SimpleStudentGenerator} для сравнения.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Thread)
+public class HashFloodingBenchmark {
+
+    public enum Workload {
+        RANDOM, CRAFTED
+    }
+
+    private static final int BATCH = 1024;
+    private static final int NAME_LENGTH = 7;
+    private static final int FIRST_NAME_MULTIPLIER = 31 * 31 * 31 * 31 * 31; //после имени в хеш входят ещё 5 полей
+
+    @Param({"OpenHashTable", "OpenHashTableSeeded", "ChainHashTable", "ChainHashTableSeeded"})
+    public String implementation;
+
+    @Param
+    public Workload workload;
+
+    @Param({"1000", "10000"})
+    public int size;
+
+    private Set<Student> set;
+    private Student[] keys;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void fill() {
+        switch (implementation) {
+            case "OpenHashTable":
+                set = new OpenHashTable<>();
+                break;
+            case "OpenHashTableSeeded":
+                set = new OpenHashTable<>(8, 0.5f, OpenHashTable.ProbingMode.PROBE_SEQUENCE, ProbeStrategy.seeded());
+                break;
+            case "ChainHashTable":
+                set = new ChainHashTable<>();
+                break;
+            case "ChainHashTableSeeded":
+                set = new ChainHashTable<>(8, true);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown implementation " + implementation);
+        }
+        keys = new Student[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = workload == Workload.CRAFTED ? crafted(i) : SimpleStudentGenerator.getInstance().generate();
+            set.add(keys[i]);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void contains(Blackhole blackhole) {
+        for (int i = 0; i < BATCH; i++) {
+            blackhole.consume(set.contains(keys[cursor]));
+            cursor = cursor + 1 == keys.length ? 0 : cursor + 1;
+        }
+    }
+
+    /**
+     * Студент с заданным id, у которого baseHash равен baseHash студента с id 0 и пустым именем.
+     * baseHash линеен по firstName.hashCode() с нечётным множителем 31^5, поэтому нужный hashCode имени
+     * вычисляется умножением на обратный по модулю 2^32, а строка с этим hashCode — разложением по основанию 31
+     */
+    private static Student crafted(long id) {
+        int target = student(0, "").baseHash();
+        int nameHash = (target - student(id, "").baseHash()) * inverse(FIRST_NAME_MULTIPLIER);
+        char[] name = new char[NAME_LENGTH];
+        Arrays.fill(name, 'A');
+        long digits = Integer.toUnsignedLong(nameHash - new String(name).hashCode());
+        for (int i = NAME_LENGTH - 1; i >= 0; i--) {
+            name[i] += digits % 31;
+            digits /= 31;
+        }
+        return student(id, new String(name));
+    }
+
+    private static Student student(long id, String firstName) {
+        return new Student(id, firstName, "ЯВЛАШКИН", Student.Gender.MALE, LocalDate.of(1995, 1, 1),
+                1000, 2015, null, null, null);
+    }
+
+    /**
+     * Обратный по модулю 2^32 к нечётному числу, итерации Ньютона
+     */
+    private static int inverse(int odd) {
+        int x = odd;
+        for (int i = 0; i < 5; i++) {
+            x *= 2 - odd * x;
+        }
+        return x;
+    }
+}
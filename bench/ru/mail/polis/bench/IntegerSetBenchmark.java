@@ -0,0 +1,79 @@
+package ru.mail.polis.bench;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.openjdk.jmh.annotations.Param;
+
+import ru.mail.polis.AVLTree;
+import ru.mail.polis.ArrayAVLTree;
+import ru.mail.polis.BPlusTree;
+import ru.mail.polis.ChainHashTable;
+import ru.mail.polis.RedBlackTree;
+
+/**
+ * Бенчмарк реализаций множеств на ключах Integer.
+ * OpenHashTable здесь не участвует: она хранит только {@link ru.mail.polis.OpenHashTableEntity}.
+ * BinarySearchTree вынесен в {@link BinarySearchTreeBenchmark}: на последовательных ключах ему нужны меньшие размеры.
+ */
+public class IntegerSetBenchmark extends AbstractSetBenchmark<Integer> {
+
+    @Param({"1000", "10000", "100000", "1000000", "10000000"})
+    public int size;
+
+    @Param
+    public KeyDistribution distribution;
+
+    @Param({"AVLTree", "ArrayAVLTree", "RedBlackTree", "BPlusTree", "ChainHashTable", "TreeSet", "HashSet"})
+    public String implementation;
+
+    @Override
+    protected int size() {
+        return size;
+    }
+
+    @Override
+    protected KeyDistribution distribution() {
+        return distribution;
+    }
+
+    @Override
+    protected Set<Integer> createSet() {
+        switch (implementation) {
+            case "AVLTree":
+                return new AVLTree<>();
+            case "ArrayAVLTree":
+                return new ArrayAVLTree<>();
+            case "RedBlackTree":
+                return new RedBlackTree<>();
+            case "BPlusTree":
+                return new BPlusTree<>();
+            case "ChainHashTable":
+                return new ChainHashTable<>();
+            case "TreeSet":
+                return new TreeSet<>();
+            case "HashSet":
+                return new HashSet<>();
+            default:
+                throw new IllegalArgumentException("Unknown implementation " + implementation);
+        }
+    }
+
+    @Override
+    protected Integer[] createKeys(int size, Random random) {
+        return integerKeys(size);
+    }
+
+    /**
+     * @return ключи 0, 1, ..., size - 1
+     */
+    static Integer[] integerKeys(int size) {
+        Integer[] keys = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = i;
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,99 @@
+package ru.mail.polis.bench;
+
+import java.util.Random;
+
+/**
+ * Порядок вставки ключей при заполнении множества и распределение обращений к ним.
+ * Ключи идентифицируются индексами из отрезка [0, size).
+ */
+public enum KeyDistribution {
+
+    /**
+     * Ключи вставляются и запрашиваются по возрастанию
+     */
+    SEQUENTIAL {
+        @Override
+        int[] insertionOrder(int size, Random random) {
+            return identity(size);
+        }
+
+        @Override
+        int[] accessPattern(int size, int length, Random random) {
+            int[] pattern = new int[length];
+            for (int i = 0; i < length; i++) {
+                pattern[i] = i % size;
+            }
+            return pattern;
+        }
+    },
+
+    /**
+     * Ключи вставляются в случайном порядке, обращения равномерны
+     */
+    RANDOM {
+        @Override
+        int[] insertionOrder(int size, Random random) {
+            return shuffle(identity(size), random);
+        }
+
+        @Override
+        int[] accessPattern(int size, int length, Random random) {
+            int[] pattern = new int[length];
+            for (int i = 0; i < length; i++) {
+                pattern[i] = random.nextInt(size);
+            }
+            return pattern;
+        }
+    },
+
+    /**
+     * Ключи вставляются в случайном порядке, обращения распределены по Ципфу:
+     * небольшая доля "горячих" ключей получает большую часть запросов.
+     * Горячие ключи разбросаны по всему диапазону, а не сосредоточены в начале.
+     */
+    ZIPF {
+        @Override
+        int[] insertionOrder(int size, Random random) {
+            return shuffle(identity(size), random);
+        }
+
+        @Override
+        int[] accessPattern(int size, int length, Random random) {
+            int[] hot = shuffle(identity(size), random);
+            ZipfGenerator zipf = new ZipfGenerator(size, random);
+            int[] pattern = new int[length];
+            for (int i = 0; i < length; i++) {
+                pattern[i] = hot[zipf.next()];
+            }
+            return pattern;
+        }
+    };
+
+    /**
+     * @return перестановка индексов [0, size) в порядке вставки
+     */
+    abstract int[] insertionOrder(int size, Random random);
+
+    /**
+     * @return последовательность из length индексов, к которым будут обращаться операции
+     */
+    abstract int[] accessPattern(int size, int length, Random random);
+
+    private static int[] identity(int size) {
+        int[] indexes = new int[size];
+        for (int i = 0; i < size; i++) {
+            indexes[i] = i;
+        }
+        return indexes;
+    }
+
+    private static int[] shuffle(int[] array, Random random) {
+        for (int i = array.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = array[i];
+            array[i] = array[j];
+            array[j] = tmp;
+        }
+        return array;
+    }
+}
@@ -0,0 +1,96 @@
+package ru.mail.polis.bench;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import ru.mail.polis.OpenHashTable;
+import ru.mail.polis.SimpleStudentGenerator;
+import ru.mail.polis.Student;
+import ru.mail.polis.StudentCodec;
+
+/**
+ * Стоимость поиска в {@link OpenHashTable}, заполненной до заданной доли ячеек.
+ *
+ * HIT ищет те же объекты, что лежат в таблице, COPY — их копии, прочитанные через {@link StudentCodec},
+ * для которых совпавшая ячейка проверяется полным equals, MISS — студентов, которых в таблице нет:
+ * на высокой загрузке такие поиски проходят длинные цепочки проб, и каждая занятая ячейка отсекается
+ * по сохранённому хешу.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Thread)
+public class ProbeCostBenchmark {
+
+    public enum Workload {
+        HIT, COPY, MISS
+    }
+
+    private static final int TABLE_SIZE = 1 << 20;
+    private static final int BATCH = 1 << 12;
+
+    @Param({"0.5", "0.75", "0.9"})
+    public float loadFactor;
+
+    @Param
+    public Workload workload;
+
+    private OpenHashTable<Student> table;
+    private Student[] queries;
+
+    @Setup
+    public void generate() {
+        int size = (int) (loadFactor * TABLE_SIZE);
+        table = new OpenHashTable<>(TABLE_SIZE, loadFactor);
+        Student[] students = new Student[size];
+        for (int i = 0; i < size; i++) {
+            students[i] = SimpleStudentGenerator.getInstance().generate();
+            table.add(students[i]);
+        }
+        StudentCodec codec = new StudentCodec();
+        ByteBuffer buffer = ByteBuffer.allocate(codec.recordSize());
+        Random random = new Random(1);
+        queries = new Student[BATCH];
+        for (int i = 0; i < BATCH; i++) {
+            Student student = students[random.nextInt(size)];
+            switch (workload) {
+                case HIT:
+                    queries[i] = student;
+                    break;
+                case COPY:
+                    buffer.clear();
+                    codec.encode(student, buffer);
+                    buffer.flip();
+                    queries[i] = codec.decode(buffer);
+                    break;
+                default:
+                    queries[i] = SimpleStudentGenerator.getInstance().generate();
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void contains(Blackhole blackhole) {
+        for (Student student : queries) {
+            blackhole.consume(table.contains(student));
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package ru.mail.polis.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import ru.mail.polis.SimpleStudentGenerator;
+import ru.mail.polis.Student;
+
+/**
+ * Стоимость вычисления индекса пробы: прежний путь Math.abs(h1 + probId * h2) % tableSize
+ * против маски в {@link Student#hashCode(int, int)} на таблице размера степени двойки.
+ * Базовые хеши закешированы, поэтому замеряется только арифметика индекса.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ProbeIndexBenchmark {
+
+    private static final int STUDENTS = 1024;
+    private static final int PROBES = 4;
+
+    @Param({"1024", "1048576"})
+    public int tableSize;
+
+    private Student[] students;
+
+    @Setup
+    public void generate() {
+        students = new Student[STUDENTS];
+        for (int i = 0; i < STUDENTS; i++) {
+            students[i] = SimpleStudentGenerator.getInstance().generate();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(STUDENTS * PROBES)
+    public void modulo(Blackhole blackhole) {
+        for (Student student : students) {
+            int step = student.stepHash() % (tableSize - 1) + 1;
+            for (int probId = 0; probId < PROBES; probId++) {
+                blackhole.consume(Math.abs(student.baseHash() + probId * step) % tableSize);
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(STUDENTS * PROBES)
+    public void mask(Blackhole blackhole) {
+        for (Student student : students) {
+            for (int probId = 0; probId < PROBES; probId++) {
+                blackhole.consume(student.hashCode(tableSize, probId));
+            }
+        }
+    }
+}
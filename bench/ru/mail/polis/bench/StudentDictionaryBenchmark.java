@@ -0,0 +1,156 @@
+package ru.mail.polis.bench;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import ru.mail.polis.OpenHashTable;
+import ru.mail.polis.SimpleStudentGenerator;
+import ru.mail.polis.Student;
+import ru.mail.polis.StudentCodec;
+
+/**
+ * Кодирование имён словарём в {@link Student}.
+ *
+ * Бенчмарк ищет в {@link OpenHashTable} копии студентов, прочитанные через {@link StudentCodec}: у копии свои
+ * объекты, поэтому на каждой пробе с совпавшим хешем equals сравнивает все поля, а имена — кодами словаря.
+ * {@link #containsCopyWithoutDictionary} делает то же в JVM с {@value #NO_DICTIONARY}, где equals сравнивает
+ * строки имён; отношение его времени к {@link #containsCopy} — ускорение проб от словаря.
+ * {@link #main(String[])} печатает, сколько памяти занимает миллион прочитанных студентов со словарём и без него
+ * (во второй JVM) и сколько байт на студента экономит словарь.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Thread)
+public class StudentDictionaryBenchmark {
+
+    private static final int BATCH = 1024;
+    private static final int FOOTPRINT_STUDENTS = 1000000;
+    private static final String NO_DICTIONARY = "-Dru.mail.polis.nameDictionary=false";
+    private static final String BYTES_ONLY = "--bytes";
+
+    @Param({"1000", "1000000"})
+    public int size;
+
+    private OpenHashTable<Student> table;
+    private Student[] copies;
+
+    @Setup
+    public void generate() {
+        table = new OpenHashTable<>();
+        copies = new Student[BATCH];
+        StudentCodec codec = new StudentCodec();
+        ByteBuffer buffer = ByteBuffer.allocate(codec.recordSize());
+        for (int i = 0; i < size; i++) {
+            Student student = SimpleStudentGenerator.getInstance().generate();
+            table.add(student);
+            if (i < BATCH) {
+                copies[i] = copy(codec, buffer, student);
+            }
+        }
+        for (int i = size; i < BATCH; i++) {
+            copies[i] = copies[i % size];
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void containsCopy(Blackhole blackhole) {
+        probe(blackhole);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    @Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g", NO_DICTIONARY})
+    public void containsCopyWithoutDictionary(Blackhole blackhole) {
+        probe(blackhole);
+    }
+
+    private void probe(Blackhole blackhole) {
+        for (Student student : copies) {
+            blackhole.consume(table.contains(student));
+        }
+    }
+
+    private static Student copy(StudentCodec codec, ByteBuffer buffer, Student student) {
+        buffer.clear();
+        codec.encode(student, buffer);
+        buffer.flip();
+        return codec.decode(buffer);
+    }
+
+    private static long usedMemory() {
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * @return байт на прочитанного студента в этой JVM
+     */
+    private static double bytesPerStudent() {
+        StudentCodec codec = new StudentCodec();
+        ByteBuffer buffer = ByteBuffer.allocate(codec.recordSize());
+        Student[] students = new Student[FOOTPRINT_STUDENTS];
+        long before = usedMemory();
+        for (int i = 0; i < students.length; i++) {
+            students[i] = copy(codec, buffer, SimpleStudentGenerator.getInstance().generate());
+        }
+        long after = usedMemory();
+        return (after - before) / (double) students.length;
+    }
+
+    /**
+     * Повторяет замер в новой JVM без словаря с тем же classpath и размером кучи
+     */
+    private static double bytesPerStudentWithoutDictionary() throws IOException, InterruptedException {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        Process process = new ProcessBuilder(java, "-Xmx" + (Runtime.getRuntime().maxMemory() >> 20) + "m", NO_DICTIONARY,
+                "-cp", System.getProperty("java.class.path"), StudentDictionaryBenchmark.class.getName(), BYTES_ONLY)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        String line;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            line = reader.readLine();
+        }
+        if (process.waitFor() != 0 || line == null) {
+            throw new IllegalStateException("footprint without dictionary failed, exit code = " + process.exitValue());
+        }
+        return Double.parseDouble(line);
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        double withDictionary = bytesPerStudent();
+        if (args.length > 0 && args[0].equals(BYTES_ONLY)) {
+            System.out.println(withDictionary);
+            return;
+        }
+        double withoutDictionary = bytesPerStudentWithoutDictionary();
+        System.out.printf("%d students: %.1f MB with dictionary, %.1f MB without%n", FOOTPRINT_STUDENTS,
+                withDictionary * FOOTPRINT_STUDENTS / 1e6, withoutDictionary * FOOTPRINT_STUDENTS / 1e6);
+        System.out.printf("%.1f bytes per student with dictionary, %.1f without, %.1f saved%n",
+                withDictionary, withoutDictionary, withoutDictionary - withDictionary);
+    }
+}
@@ -0,0 +1,77 @@
+package ru.mail.polis.bench;
+
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.openjdk.jmh.annotations.Param;
+
+import ru.mail.polis.ChainHashTable;
+import ru.mail.polis.ConcurrentChainHashTable;
+import ru.mail.polis.HashMixer;
+import ru.mail.polis.OpenHashTable;
+import ru.mail.polis.ProbeStrategy;
+import ru.mail.polis.SimpleStudentGenerator;
+import ru.mail.polis.Student;
+
+/**
+ * Бенчмарк реализаций множеств на сущностях {@link Student} из {@link SimpleStudentGenerator}.
+ * Деревья из этого пакета здесь не участвуют: Student не реализует Comparable,
+ * а AVLTree и RedBlackTree требуют E extends Comparable&lt;E&gt;. TreeSet упорядочивает студентов по id.
+ */
+public class StudentSetBenchmark extends AbstractSetBenchmark<Student> {
+
+    @Param({"1000", "10000", "100000", "1000000", "10000000"})
+    public int size;
+
+    @Param
+    public KeyDistribution distribution;
+
+    @Param({"OpenHashTable", "OpenHashTableRobinHood", "OpenHashTableMurmur3", "ChainHashTable", "ConcurrentChainHashTable", "TreeSet", "HashSet"})
+    public String implementation;
+
+    @Override
+    protected int size() {
+        return size;
+    }
+
+    @Override
+    protected KeyDistribution distribution() {
+        return distribution;
+    }
+
+    @Override
+    protected Set<Student> createSet() {
+        switch (implementation) {
+            case "OpenHashTable":
+                return new OpenHashTable<>();
+            case "OpenHashTableRobinHood":
+                return new OpenHashTable<>(8, 0.5f, OpenHashTable.ProbingMode.ROBIN_HOOD);
+            case "OpenHashTableMurmur3":
+                return new OpenHashTable<>(8, 0.5f, OpenHashTable.ProbingMode.PROBE_SEQUENCE,
+                        ProbeStrategy.doubleHashing(HashMixer.MURMUR3));
+            case "ChainHashTable":
+                return new ChainHashTable<>();
+            case "ConcurrentChainHashTable":
+                return new ConcurrentChainHashTable<>();
+            case "TreeSet":
+                return new TreeSet<>(Comparator.comparingLong(Student::getId));
+            case "HashSet":
+                return new HashSet<>();
+            default:
+                throw new IllegalArgumentException("Unknown implementation " + implementation);
+        }
+    }
+
+    @Override
+    protected Student[] createKeys(int size, Random random) {
+        SimpleStudentGenerator generator = SimpleStudentGenerator.getInstance();
+        Student[] keys = new Student[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = generator.generate();
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,62 @@
+package ru.mail.polis.bench;
+
+import java.util.Random;
+
+/**
+ * Генератор рангов с распределением Ципфа на отрезке [0, n).
+ * Ранг 0 — самый "горячий", вероятность ранга i пропорциональна 1 / (i + 1)^theta.
+ *
+ * Используется алгоритм Gray et al. "Quickly Generating Billion-Record Synthetic Databases":
+ * дзета-функция считается один раз за O(n), каждое следующее значение — за O(1) без таблицы распределения.
+ */
+public class ZipfGenerator {
+
+    public static final double DEFAULT_THETA = 0.99;
+
+    private final Random random;
+    private final int n;
+    private final double theta;
+    private final double alpha;
+    private final double eta;
+    private final double zetaN;
+
+    public ZipfGenerator(int n, Random random) {
+        this(n, DEFAULT_THETA, random);
+    }
+
+    public ZipfGenerator(int n, double theta, Random random) {
+        if (n <= 0) {
+            throw new IllegalArgumentException("n = " + n);
+        }
+        this.random = random;
+        this.n = n;
+        this.theta = theta;
+        this.zetaN = zeta(n, theta);
+        this.alpha = 1.0 / (1.0 - theta);
+        this.eta = (1 - Math.pow(2.0 / n, 1 - theta)) / (1 - zeta(2, theta) / zetaN);
+    }
+
+    /**
+     * @return следующий ранг из отрезка [0, n)
+     */
+    public int next() {
+        double u = random.nextDouble();
+        double uz = u * zetaN;
+        if (uz < 1.0) {
+            return 0;
+        }
+        if (uz < 1.0 + Math.pow(0.5, theta)) {
+            return Math.min(1, n - 1);
+        }
+        int rank = (int) (n * Math.pow(eta * u - eta + 1, alpha));
+        return Math.min(rank, n - 1);
+    }
+
+    private static double zeta(int n, double theta) {
+        double sum = 0;
+        for (int i = 1; i <= n; i++) {
+            sum += 1 / Math.pow(i, theta);
+        }
+        return sum;
+    }
+}
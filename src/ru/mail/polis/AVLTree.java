@@ -1,17 +1,32 @@
 package ru.mail.polis;
 
 import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Comparator;
+import java.util.ConcurrentModificationException;
 import java.util.Iterator;
+import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.Objects;
 import java.util.SortedSet;
+import java.util.Spliterator;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
 
-public class AVLTree<E extends Comparable<E>> extends AbstractSet<E> implements BalancedSortedSet<E> {
+public class AVLTree<E extends Comparable<E>> extends AbstractSet<E> implements BalancedSortedSet<E>, RangeSearchTree<E>,
+        OrderStatisticSet<E> {
+
+    /**
+     * Начиная с такого суммарного размера поддеревьев, операции над множествами обрабатывают левые части в ForkJoinPool
+     */
+    private static final int PARALLEL_THRESHOLD = 1 << 13;
 
     private final Comparator<E> comparator;
 
     private Node root;
     private int size;
+    private int modCount; //количество структурных изменений, для обнаружения модификации во время обхода
 
     public AVLTree() {
         this(null);
@@ -21,6 +36,20 @@ public class AVLTree<E extends Comparable<E>> extends AbstractSet<E> implements
         this.comparator = comparator;
     }
 
+    /**
+     * Строит дерево из последовательности, упорядоченной по возрастанию, за O(n) сравнений и без балансировок.
+     * Подряд идущие равные элементы схлопываются в один.
+     *
+     * @param sorted элементы по возрастанию в смысле comparator
+     * @param comparator порядок элементов, null — естественный порядок
+     * @throws IllegalArgumentException если элементы не упорядочены по возрастанию
+     */
+    public static <E extends Comparable<E>> AVLTree<E> fromSorted(Iterable<? extends E> sorted, Comparator<E> comparator) {
+        AVLTree<E> tree = new AVLTree<>(comparator);
+        tree.buildFromSorted(tree.collectSorted(sorted));
+        return tree;
+    }
+
     /**
      * Вставляет элемент в дерево.
      * Инвариант: на вход всегда приходит NotNull объект, который имеет корректный тип
@@ -36,14 +65,328 @@ public class AVLTree<E extends Comparable<E>> extends AbstractSet<E> implements
         } else {
             try {
                 root = insert(root, value);
+                root.parent = null;
             } catch (IllegalArgumentException e) {
                 return false;
             }
         }
+        modCount++;
 
         return true;
     }
 
+    /**
+     * Если дерево пустое, а коллекция — SortedSet с тем же порядком, строит дерево за O(n),
+     * иначе вставляет элементы по одному.
+     */
+    @Override
+    public boolean addAll(Collection<? extends E> collection) {
+        if (isCompatible(collection)) {
+            @SuppressWarnings("unchecked")
+            AVLTree<E> other = (AVLTree<E>) collection;
+            return union(other);
+        }
+        if (root == null && collection instanceof SortedSet
+                && Objects.equals(comparator, ((SortedSet<?>) collection).comparator())) {
+            buildFromSorted(collectSorted(collection));
+            return size > 0;
+        }
+        return super.addAll(collection);
+    }
+
+    /**
+     * Если коллекция — AVLTree с тем же порядком, оставляет общие элементы через split/join,
+     * иначе проверяет элементы по одному.
+     */
+    @Override
+    public boolean retainAll(Collection<?> collection) {
+        if (isCompatible(collection)) {
+            @SuppressWarnings("unchecked")
+            AVLTree<E> other = (AVLTree<E>) collection;
+            return intersection(other);
+        }
+        return super.retainAll(collection);
+    }
+
+    /**
+     * Если коллекция — AVLTree с тем же порядком, вычитает её через split/join,
+     * иначе удаляет элементы по одному.
+     */
+    @Override
+    public boolean removeAll(Collection<?> collection) {
+        if (isCompatible(collection)) {
+            @SuppressWarnings("unchecked")
+            AVLTree<E> other = (AVLTree<E>) collection;
+            return difference(other);
+        }
+        return super.removeAll(collection);
+    }
+
+    /**
+     * Добавляет в дерево все элементы other за O(m log(n/m + 1)), где m — размер меньшего дерева.
+     * Дерево разрезается по ключам other и склеивается обратно, other не изменяется.
+     * Независимые поддеревья большого размера обрабатываются параллельно в ForkJoinPool.
+     *
+     * @param other дерево с тем же компаратором
+     * @return true, если дерево изменилось
+     * @throws IllegalArgumentException если у other другой компаратор
+     */
+    public boolean union(AVLTree<E> other) {
+        return applySetOperation(SetOperation.UNION, other);
+    }
+
+    /**
+     * Оставляет в дереве только элементы, которые есть в other, за O(m log(n/m + 1)).
+     *
+     * @param other дерево с тем же компаратором
+     * @return true, если дерево изменилось
+     * @throws IllegalArgumentException если у other другой компаратор
+     * @see #union(AVLTree)
+     */
+    public boolean intersection(AVLTree<E> other) {
+        return applySetOperation(SetOperation.INTERSECTION, other);
+    }
+
+    /**
+     * Удаляет из дерева все элементы other за O(m log(n/m + 1)).
+     *
+     * @param other дерево с тем же компаратором
+     * @return true, если дерево изменилось
+     * @throws IllegalArgumentException если у other другой компаратор
+     * @see #union(AVLTree)
+     */
+    public boolean difference(AVLTree<E> other) {
+        return applySetOperation(SetOperation.DIFFERENCE, other);
+    }
+
+    private boolean isCompatible(Collection<?> collection) {
+        return collection instanceof AVLTree && Objects.equals(comparator, ((AVLTree<?>) collection).comparator);
+    }
+
+    private boolean applySetOperation(SetOperation operation, AVLTree<E> other) {
+        if (!Objects.equals(comparator, other.comparator)) {
+            throw new IllegalArgumentException("Trees have different comparators");
+        }
+        if (other == this) {
+            if (operation != SetOperation.DIFFERENCE || root == null) {
+                return false;
+            }
+            root = null;
+            size = 0;
+            modCount++;
+            return true;
+        }
+        int oldSize = size;
+        root = apply(operation, root, other.root);
+        setParent(root, null);
+        size = size(root);
+        modCount++;
+        return size != oldSize;
+    }
+
+    private Node apply(SetOperation operation, Node t1, Node t2) {
+        switch (operation) {
+            case UNION:
+                return union(t1, t2);
+            case INTERSECTION:
+                return intersection(t1, t2);
+            case DIFFERENCE:
+                return difference(t1, t2);
+            default:
+                throw new IllegalArgumentException("operation = " + operation);
+        }
+    }
+
+    /**
+     * Поддерево t1 принадлежит этому дереву и разбирается на части, поддерево t2 только читается
+     */
+    private Node union(Node t1, Node t2) {
+        if (t2 == null) {
+            return t1;
+        }
+        if (t1 == null) {
+            return copy(t2);
+        }
+        Split split = split(t1, t2.value);
+        Node key = split.found != null ? split.found : new Node(t2.value);
+        Split parts = applyToParts(SetOperation.UNION, split.left, t2.left, split.right, t2.right);
+        return join(parts.left, key, parts.right);
+    }
+
+    private Node intersection(Node t1, Node t2) {
+        if (t1 == null || t2 == null) {
+            return null;
+        }
+        Split split = split(t1, t2.value);
+        Split parts = applyToParts(SetOperation.INTERSECTION, split.left, t2.left, split.right, t2.right);
+        return split.found != null ? join(parts.left, split.found, parts.right) : join(parts.left, parts.right);
+    }
+
+    private Node difference(Node t1, Node t2) {
+        if (t1 == null || t2 == null) {
+            return t1;
+        }
+        Split split = split(t1, t2.value);
+        Split parts = applyToParts(SetOperation.DIFFERENCE, split.left, t2.left, split.right, t2.right);
+        return join(parts.left, parts.right);
+    }
+
+    /**
+     * Применяет операцию к левым и к правым частям, при большом объёме левые части уходят в ForkJoinPool
+     */
+    private Split applyToParts(SetOperation operation, Node left1, Node left2, Node right1, Node right2) {
+        Node left;
+        Node right;
+        if (size(left1) + size(left2) + size(right1) + size(right2) >= PARALLEL_THRESHOLD) {
+            SetOperationTask task = new SetOperationTask(operation, left1, left2);
+            task.fork();
+            right = apply(operation, right1, right2);
+            left = task.join();
+        } else {
+            left = apply(operation, left1, left2);
+            right = apply(operation, right1, right2);
+        }
+        return new Split(left, null, right);
+    }
+
+    /**
+     * Разрезает поддерево на элементы меньше value и больше value
+     *
+     * @return части и узел со значением value, если он был в поддереве
+     */
+    private Split split(Node t, E value) {
+        if (t == null) {
+            return new Split(null, null, null);
+        }
+        Node left = t.left;
+        Node right = t.right;
+        int cmp = compare(value, t.value);
+        if (cmp == 0) {
+            return new Split(left, t, right);
+        } else if (cmp < 0) {
+            Split split = split(left, value);
+            split.right = join(split.right, t, right);
+            return split;
+        } else {
+            Split split = split(right, value);
+            split.left = join(left, t, split.left);
+            return split;
+        }
+    }
+
+    /**
+     * Склеивает поддеревья через узел key, все элементы left меньше key, все элементы right больше.
+     * Узел key спускается по краю более высокого поддерева до места, где высоты почти равны,
+     * а на обратном пути путь балансируется как при вставке. Работает за O(|height(left) - height(right)| + 1).
+     */
+    private Node join(Node left, Node key, Node right) {
+        if (height(left) > height(right) + 1) {
+            return joinRight(left, key, right);
+        }
+        if (height(right) > height(left) + 1) {
+            return joinLeft(left, key, right);
+        }
+        return attach(left, key, right);
+    }
+
+    private Node joinRight(Node left, Node key, Node right) {
+        if (height(left.right) <= height(right) + 1) {
+            left.right = attach(left.right, key, right);
+        } else {
+            left.right = joinRight(left.right, key, right);
+        }
+        left.right.parent = left;
+        return balance(left);
+    }
+
+    private Node joinLeft(Node left, Node key, Node right) {
+        if (height(right.left) <= height(left) + 1) {
+            right.left = attach(left, key, right.left);
+        } else {
+            right.left = joinLeft(left, key, right.left);
+        }
+        right.left.parent = right;
+        return balance(right);
+    }
+
+    /**
+     * Склеивает поддеревья без разделяющего узла: им становится наибольший элемент left
+     */
+    private Node join(Node left, Node right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        Node max = findMax(left);
+        left = removeMax(left);
+        return join(left, max, right);
+    }
+
+    private Node attach(Node left, Node key, Node right) {
+        key.left = left;
+        key.right = right;
+        setParent(left, key);
+        setParent(right, key);
+        update(key);
+        return key;
+    }
+
+    private Node copy(Node t) {
+        if (t == null) {
+            return null;
+        }
+        Node node = new Node(t.value);
+        node.left = copy(t.left);
+        node.right = copy(t.right);
+        setParent(node.left, node);
+        setParent(node.right, node);
+        node.height = t.height;
+        node.size = t.size;
+        return node;
+    }
+
+    private List<E> collectSorted(Iterable<? extends E> sorted) {
+        List<E> values = sorted instanceof Collection ? new ArrayList<>(((Collection<?>) sorted).size()) : new ArrayList<>();
+        for (E value : sorted) {
+            if (!values.isEmpty()) {
+                int cmp = compare(values.get(values.size() - 1), value);
+                if (cmp > 0) {
+                    throw new IllegalArgumentException("Elements are not sorted: " + value);
+                } else if (cmp == 0) {
+                    continue;
+                }
+            }
+            values.add(value);
+        }
+        return values;
+    }
+
+    private void buildFromSorted(List<E> values) {
+        root = build(values, 0, values.size() - 1);
+        size = values.size();
+        modCount++;
+    }
+
+    /**
+     * Середина отрезка становится корнем, половины — поддеревьями,
+     * поэтому высоты поддеревьев любого узла отличаются не более чем на 1
+     */
+    private Node build(List<E> values, int lo, int hi) {
+        if (lo > hi) {
+            return null;
+        }
+        int mid = (lo + hi) >>> 1;
+        Node node = new Node(values.get(mid));
+        node.left = build(values, lo, mid - 1);
+        node.right = build(values, mid + 1, hi);
+        setParent(node.left, node);
+        setParent(node.right, node);
+        update(node);
+        return node;
+    }
+
     private Node insert(Node root, E key) {
         if (root == null) {
             size++;
@@ -78,7 +421,11 @@ public class AVLTree<E extends Comparable<E>> extends AbstractSet<E> implements
         E value = (E) object;
         try {
             root = remove(root,value);
+            if (root != null) {
+                root.parent = null;
+            }
             size--;
+            modCount++;
             return true;
         } catch (NoSuchElementException e) {
             return false;
@@ -93,8 +440,10 @@ public class AVLTree<E extends Comparable<E>> extends AbstractSet<E> implements
 
             if (cmp < 0) {
                 node.right = remove(node.right,value);
+                setParent(node.right, node);
             } else if (cmp > 0) {
                 node.left = remove(node.left,value);
+                setParent(node.left, node);
             } else {
                 Node leftNode = node.left;
                 Node rightNode = node.right;
@@ -104,6 +453,8 @@ public class AVLTree<E extends Comparable<E>> extends AbstractSet<E> implements
                 Node minNode = findMin(rightNode);
                 minNode.right = removeMin(rightNode);
                 minNode.left = leftNode;
+                setParent(minNode.right, minNode);
+                setParent(leftNode, minNode);
                 return balance(minNode);
             }
 
@@ -189,24 +540,161 @@ public class AVLTree<E extends Comparable<E>> extends AbstractSet<E> implements
                 '}';
     }
 
+    /**
+     * Возвращает живое представление элементов из [fromElement, toElement).
+     * Граница ищется за O(log n), элементы обходятся лениво, изменения видны в обе стороны.
+     *
+     * @throws IllegalArgumentException если fromElement больше toElement
+     */
     @Override
     public SortedSet<E> subSet(E fromElement, E toElement) {
-        throw new UnsupportedOperationException("subSet");
+        if (fromElement == null || toElement == null) {
+            throw new NullPointerException("bound is null");
+        }
+        if (compare(fromElement, toElement) > 0) {
+            throw new IllegalArgumentException("fromElement > toElement");
+        }
+        return new SubSortedSet<>(this, fromElement, toElement);
     }
 
     @Override
     public SortedSet<E> headSet(E toElement) {
-        throw new UnsupportedOperationException("headSet");
+        if (toElement == null) {
+            throw new NullPointerException("bound is null");
+        }
+        return new SubSortedSet<>(this, null, toElement);
     }
 
     @Override
     public SortedSet<E> tailSet(E fromElement) {
-        throw new UnsupportedOperationException("tailSet");
+        if (fromElement == null) {
+            throw new NullPointerException("bound is null");
+        }
+        return new SubSortedSet<>(this, fromElement, null);
+    }
+
+    @Override
+    public Iterator<E> iterator(E fromElement, E toElement) {
+        return new TreeIterator(fromElement == null ? findMin(root) : ceilingNode(fromElement), toElement);
+    }
+
+    @Override
+    public E ceiling(E value) {
+        Node node = ceilingNode(value);
+        return node == null ? null : node.value;
+    }
+
+    @Override
+    public E lower(E value) {
+        Node curr = root;
+        Node lower = null;
+        while (curr != null) {
+            if (compare(curr.value, value) < 0) {
+                lower = curr;
+                curr = curr.right;
+            } else {
+                curr = curr.left;
+            }
+        }
+        return lower == null ? null : lower.value;
+    }
+
+    /**
+     * Считает элементы, строго меньшие value, за O(log n)
+     *
+     * @return количество элементов дерева, меньших value
+     */
+    @Override
+    public int rank(E value) {
+        int rank = 0;
+        Node curr = root;
+        while (curr != null) {
+            if (compare(curr.value, value) < 0) {
+                rank += size(curr.left) + 1;
+                curr = curr.right;
+            } else {
+                curr = curr.left;
+            }
+        }
+        return rank;
+    }
+
+    /**
+     * Ищет k-й по возрастанию элемент за O(log n)
+     *
+     * @param k номер элемента, начиная с 0
+     * @throws IndexOutOfBoundsException если k < 0 или k >= size()
+     */
+    @Override
+    public E select(int k) {
+        if (k < 0 || k >= size) {
+            throw new IndexOutOfBoundsException("k = " + k + ", size = " + size);
+        }
+        Node curr = root;
+        while (true) {
+            int leftSize = size(curr.left);
+            if (k < leftSize) {
+                curr = curr.left;
+            } else if (k > leftSize) {
+                k -= leftSize + 1;
+                curr = curr.right;
+            } else {
+                return curr.value;
+            }
+        }
     }
 
+    /**
+     * Считает элементы из [fromElement, toElement) за O(log n).
+     * Граница, равная null, означает отсутствие границы.
+     *
+     * @throws IllegalArgumentException если fromElement больше toElement
+     */
+    @Override
+    public int countInRange(E fromElement, E toElement) {
+        if (fromElement != null && toElement != null && compare(fromElement, toElement) > 0) {
+            throw new IllegalArgumentException("fromElement > toElement");
+        }
+        int from = fromElement == null ? 0 : rank(fromElement);
+        int to = toElement == null ? size : rank(toElement);
+        return to - from;
+    }
+
+    private Node ceilingNode(E value) {
+        Node curr = root;
+        Node ceiling = null;
+        while (curr != null) {
+            int cmp = compare(curr.value, value);
+            if (cmp == 0) {
+                return curr;
+            } else if (cmp > 0) {
+                ceiling = curr;
+                curr = curr.left;
+            } else {
+                curr = curr.right;
+            }
+        }
+        return ceiling;
+    }
+
+    /**
+     * Возвращает итератор по возрастанию элементов.
+     * Следующий элемент находится по ссылкам на родителя, без стека и рекурсии.
+     *
+     * @throws ConcurrentModificationException из next(), если дерево изменили не через этот итератор
+     */
     @Override
     public Iterator<E> iterator() {
-        throw new UnsupportedOperationException("iterator");
+        return new TreeIterator(findMin(root), null);
+    }
+
+    /**
+     * Возвращает сплитератор, который делится по поддеревьям: первый раз по корню, дальше по детям
+     * узлов на границе диапазона, поэтому части получаются примерно равными.
+     */
+    @Override
+    public Spliterator<E> spliterator() {
+        return new TreeSpliterator(null, null, 0, -1, 0);
     }
 
     /**
@@ -221,7 +709,7 @@ public class AVLTree<E extends Comparable<E>> extends AbstractSet<E> implements
     }
 
     private Node balance(Node v) {
-        updateHeight(v);
+        update(v);
         if (diff(v) == -2) {
             // rotateLeft or bigRotateLeft
             if (diff(v.right) > 0) {
@@ -244,8 +732,16 @@ public class AVLTree<E extends Comparable<E>> extends AbstractSet<E> implements
         return v == null ? 0 : v.height;
     }
 
-    private void updateHeight(Node v) {
+    private int size(Node v) {
+        return v == null ? 0 : v.size;
+    }
+
+    /**
+     * Пересчитывает высоту и размер поддерева по детям
+     */
+    private void update(Node v) {
         v.height = Math.max(height(v.left), height(v.right)) + 1;
+        v.size = size(v.left) + size(v.right) + 1;
     }
 
     private int diff(Node v) {
@@ -258,10 +754,11 @@ public class AVLTree<E extends Comparable<E>> extends AbstractSet<E> implements
         x.parent = v.parent;
         v.parent = x;
         v.right = x.left;
+        setParent(v.right, v);
         x.left = v;
 
-        updateHeight(v);
-        updateHeight(x);
+        update(v);
+        update(x);
 
         return x;
     }
@@ -272,10 +769,11 @@ public class AVLTree<E extends Comparable<E>> extends AbstractSet<E> implements
         x.parent = v.parent;
         v.parent = x;
         v.left = x.right;
+        setParent(v.left, v);
         x.right = v;
 
-        updateHeight(v);
-        updateHeight(x);
+        update(v);
+        update(x);
 
         return x;
     }
@@ -299,9 +797,35 @@ public class AVLTree<E extends Comparable<E>> extends AbstractSet<E> implements
     private Node removeMin(Node v) {
         if (v.left == null) return v.right;
         v.left = removeMin(v.left);
+        setParent(v.left, v);
+        return balance(v);
+    }
+
+    private Node removeMax(Node v) {
+        if (v.right == null) return v.left;
+        v.right = removeMax(v.right);
+        setParent(v.right, v);
         return balance(v);
     }
 
+    private void setParent(Node child, Node parent) {
+        if (child != null) {
+            child.parent = parent;
+        }
+    }
+
+    private Node successor(Node v) {
+        if (v.right != null) {
+            return findMin(v.right);
+        }
+        Node p = v.parent;
+        while (p != null && v == p.right) {
+            v = p;
+            p = p.parent;
+        }
+        return p;
+    }
+
     private int traverseTreeAndCheckBalanced(Node curr) throws NotBalancedTreeException {
         if (curr == null) {
             return 1;
@@ -315,14 +839,209 @@ public class AVLTree<E extends Comparable<E>> extends AbstractSet<E> implements
         return Math.max(leftHeight, rightHeight) + 1;
     }
 
+    private enum SetOperation {
+        UNION, INTERSECTION, DIFFERENCE
+    }
+
+    /**
+     * Результат разреза поддерева: элементы меньше ключа, узел с ключом (или null) и элементы больше ключа
+     */
+    private class Split {
+        Node left;
+        Node found;
+        Node right;
+
+        Split(Node left, Node found, Node right) {
+            this.left = left;
+            this.found = found;
+            this.right = right;
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private class SetOperationTask extends RecursiveTask<Node> {
+
+        private final SetOperation operation;
+        private final Node t1;
+        private final Node t2;
+
+        SetOperationTask(SetOperation operation, Node t1, Node t2) {
+            this.operation = operation;
+            this.t1 = t1;
+            this.t2 = t2;
+        }
+
+        @Override
+        protected Node compute() {
+            return apply(operation, t1, t2);
+        }
+    }
+
+    /**
+     * Обходит узлы начиная с first, пока значения меньше toElement (null — до конца дерева)
+     */
+    private class TreeIterator implements Iterator<E> {
+
+        private final E toElement;
+        private Node next;
+        private Node lastReturned;
+        private int expectedModCount = modCount;
+
+        TreeIterator(Node first, E toElement) {
+            this.toElement = toElement;
+            this.next = first;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null && (toElement == null || compare(next.value, toElement) < 0);
+        }
+
+        @Override
+        public E next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException("next");
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            lastReturned = next;
+            next = successor(next);
+            return lastReturned.value;
+        }
+
+        @Override
+        public void remove() {
+            if (lastReturned == null) {
+                throw new IllegalStateException("remove");
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            AVLTree.this.remove(lastReturned.value);
+            expectedModCount = modCount;
+            lastReturned = null;
+        }
+    }
+
+    /**
+     * Обходит узлы от current включительно до fence не включительно (null — до конца дерева).
+     * side равен 0 у сплитератора всего дерева, 1 — у суффикса, от которого отделили префикс, -1 — у префикса.
+     */
+    private class TreeSpliterator implements Spliterator<E> {
+
+        private Node current;
+        private final Node fence;
+        private int side;
+        private int est; //оценка размера, -1 пока сплитератор не инициализирован
+        private int expectedModCount;
+
+        TreeSpliterator(Node origin, Node fence, int side, int est, int expectedModCount) {
+            this.current = origin;
+            this.fence = fence;
+            this.side = side;
+            this.est = est;
+            this.expectedModCount = expectedModCount;
+        }
+
+        private int getEstimate() {
+            if (est < 0) {
+                est = size;
+                expectedModCount = modCount;
+                current = findMin(root);
+            }
+            return est;
+        }
+
+        @Override
+        public Spliterator<E> trySplit() {
+            if (est < 0) {
+                getEstimate();
+            }
+            Node e = current;
+            Node f = fence;
+            Node s = (e == null || e == f) ? null
+                    : side == 0 ? root
+                    : side > 0 ? e.right
+                    : f != null ? f.left
+                    : null;
+            if (s != null && s != e && s != f && compare(e.value, s.value) < 0) {
+                side = 1;
+                current = s;
+                return new TreeSpliterator(e, s, -1, est >>>= 1, expectedModCount);
+            }
+            return null;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super E> action) {
+            if (action == null) {
+                throw new NullPointerException("action");
+            }
+            if (est < 0) {
+                getEstimate();
+            }
+            Node e = current;
+            if (e == null || e == fence) {
+                return false;
+            }
+            current = successor(e);
+            action.accept(e.value);
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super E> action) {
+            if (action == null) {
+                throw new NullPointerException("action");
+            }
+            if (est < 0) {
+                getEstimate();
+            }
+            Node e = current;
+            Node f = fence;
+            if (e != null && e != f) {
+                current = f;
+                do {
+                    action.accept(e.value);
+                    e = successor(e);
+                } while (e != null && e != f);
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+            }
+        }
+
+        @Override
+        public long estimateSize() {
+            return getEstimate();
+        }
+
+        @Override
+        public int characteristics() {
+            return (side == 0 ? Spliterator.SIZED : 0)
+                    | Spliterator.DISTINCT | Spliterator.SORTED | Spliterator.ORDERED | Spliterator.NONNULL;
+        }
+
+        @Override
+        public Comparator<? super E> getComparator() {
+            return comparator;
+        }
+    }
+
     class Node {
         E value;
         int height;
+        int size; //количество узлов в поддереве
         Node parent, left, right;
 
         Node(E value) {
             this.value = value;
             this.height = 1;
+            this.size = 1;
         }
 
         @Override
@@ -0,0 +1,656 @@
+package ru.mail.polis;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.SortedSet;
+
+/**
+ * АВЛ-дерево без объектов-узлов. Узел — это номер ячейки в параллельных массивах:
+ * values хранит значение, left, right и parent — номера детей и родителя, height — высоту, sizes — размер поддерева.
+ * Ячейка 0 играет роль null: высота и размер у неё нулевые.
+ *
+ * На элемент приходится одна ссылка на значение и 17 байт примитивов вместо объекта-узла с заголовком
+ * и тремя ссылками, а сборщику мусора не нужно обходить миллионы узлов.
+ * Освобождённые при удалении ячейки связываются в список через right и переиспользуются при вставке.
+ */
+public class ArrayAVLTree<E extends Comparable<E>> extends AbstractSet<E> implements BalancedSortedSet<E>,
+        RangeSearchTree<E>, OrderStatisticSet<E> {
+
+    private static final int NIL = 0;
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Comparator<E> comparator;
+    private Object[] values;
+    private int[] left;
+    private int[] right;
+    private int[] parent;
+    private int[] sizes;
+    private byte[] height; //высота АВЛ-дерева из 2^31 элементов меньше 45
+    private int root = NIL;
+    private int size;
+    private int allocated; //ячейки 1..allocated уже выдавались
+    private int free = NIL; //голова списка освобождённых ячеек
+    private boolean changed; //изменила ли дерево последняя рекурсивная вставка или удаление
+    private int modCount; //количество структурных изменений, для обнаружения модификации во время обхода
+
+    public ArrayAVLTree() {
+        this(null);
+    }
+
+    public ArrayAVLTree(Comparator<E> comparator) {
+        this.comparator = comparator;
+        allocate(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Строит дерево из последовательности, упорядоченной по возрастанию, за O(n) сравнений и без поворотов.
+     * Подряд идущие равные элементы схлопываются в один.
+     *
+     * @param sorted элементы по возрастанию в смысле comparator
+     * @param comparator порядок элементов, null — естественный порядок
+     * @throws IllegalArgumentException если элементы не упорядочены по возрастанию
+     */
+    public static <E extends Comparable<E>> ArrayAVLTree<E> fromSorted(Iterable<? extends E> sorted, Comparator<E> comparator) {
+        ArrayAVLTree<E> tree = new ArrayAVLTree<>(comparator);
+        tree.buildFromSorted(tree.collectSorted(sorted));
+        return tree;
+    }
+
+    /**
+     * Вставляет элемент в дерево.
+     * Инвариант: на вход всегда приходит NotNull объект, который имеет корректный тип
+     *
+     * @param value элемент который необходимо вставить
+     * @return true, если элемент в дереве отсутствовал
+     */
+    @Override
+    public boolean add(E value) {
+        changed = false;
+        root = insert(root, value);
+        parent[root] = NIL;
+        if (!changed) {
+            return false;
+        }
+        size++;
+        modCount++;
+        return true;
+    }
+
+    /**
+     * Если дерево пустое, а коллекция — SortedSet с тем же порядком, строит дерево за O(n),
+     * иначе вставляет элементы по одному.
+     */
+    @Override
+    public boolean addAll(Collection<? extends E> collection) {
+        if (root == NIL && collection instanceof SortedSet
+                && Objects.equals(comparator, ((SortedSet<?>) collection).comparator())) {
+            buildFromSorted(collectSorted(collection));
+            return size > 0;
+        }
+        return super.addAll(collection);
+    }
+
+    /**
+     * Удаляет элемент с таким же значением из дерева.
+     * Инвариант: на вход всегда приходит NotNull объект, который имеет корректный тип
+     *
+     * @param object элемент который необходимо удалить
+     * @return true, если элемент содержался в дереве
+     */
+    @Override
+    public boolean remove(Object object) {
+        @SuppressWarnings("unchecked")
+        E value = (E) object;
+        changed = false;
+        root = delete(root, value);
+        setParent(root, NIL);
+        if (!changed) {
+            return false;
+        }
+        size--;
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        allocate(INITIAL_CAPACITY);
+        root = NIL;
+        size = 0;
+        allocated = 0;
+        free = NIL;
+        modCount++;
+    }
+
+    /**
+     * Ищет элемент с таким же значением в дереве.
+     * Инвариант: на вход всегда приходит NotNull объект, который имеет корректный тип
+     *
+     * @param object элемент который необходимо поискать
+     * @return true, если такой элемент содержится в дереве
+     */
+    @Override
+    public boolean contains(Object object) {
+        @SuppressWarnings("unchecked")
+        E value = (E) object;
+        int curr = root;
+        while (curr != NIL) {
+            int cmp = compare(value, value(curr));
+            if (cmp == 0) {
+                return true;
+            }
+            curr = cmp < 0 ? left[curr] : right[curr];
+        }
+        return false;
+    }
+
+    /**
+     * Ищет наименьший элемент в дереве
+     * @return Возвращает наименьший элемент в дереве
+     * @throws NoSuchElementException если дерево пустое
+     */
+    @Override
+    public E first() {
+        if (root == NIL) {
+            throw new NoSuchElementException("first");
+        }
+        return value(findMin(root));
+    }
+
+    /**
+     * Ищет наибольший элемент в дереве
+     * @return Возвращает наибольший элемент в дереве
+     * @throws NoSuchElementException если дерево пустое
+     */
+    @Override
+    public E last() {
+        if (root == NIL) {
+            throw new NoSuchElementException("last");
+        }
+        int curr = root;
+        while (right[curr] != NIL) {
+            curr = right[curr];
+        }
+        return value(curr);
+    }
+
+    @Override
+    public Comparator<? super E> comparator() {
+        return comparator;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public SortedSet<E> subSet(E fromElement, E toElement) {
+        if (fromElement == null || toElement == null) {
+            throw new NullPointerException("bound is null");
+        }
+        if (compare(fromElement, toElement) > 0) {
+            throw new IllegalArgumentException("fromElement > toElement");
+        }
+        return new SubSortedSet<>(this, fromElement, toElement);
+    }
+
+    @Override
+    public SortedSet<E> headSet(E toElement) {
+        if (toElement == null) {
+            throw new NullPointerException("bound is null");
+        }
+        return new SubSortedSet<>(this, null, toElement);
+    }
+
+    @Override
+    public SortedSet<E> tailSet(E fromElement) {
+        if (fromElement == null) {
+            throw new NullPointerException("bound is null");
+        }
+        return new SubSortedSet<>(this, fromElement, null);
+    }
+
+    /**
+     * Возвращает итератор по возрастанию элементов.
+     * Следующий элемент находится по массиву parent, без стека и рекурсии.
+     *
+     * @throws ConcurrentModificationException из next(), если дерево изменили не через этот итератор
+     */
+    @Override
+    public Iterator<E> iterator() {
+        return new TreeIterator(findMin(root), null);
+    }
+
+    @Override
+    public Iterator<E> iterator(E fromElement, E toElement) {
+        return new TreeIterator(fromElement == null ? findMin(root) : ceilingNode(fromElement), toElement);
+    }
+
+    @Override
+    public E ceiling(E value) {
+        int node = ceilingNode(value);
+        return node == NIL ? null : value(node);
+    }
+
+    @Override
+    public E lower(E value) {
+        int curr = root;
+        int lower = NIL;
+        while (curr != NIL) {
+            if (compare(value(curr), value) < 0) {
+                lower = curr;
+                curr = right[curr];
+            } else {
+                curr = left[curr];
+            }
+        }
+        return lower == NIL ? null : value(lower);
+    }
+
+    /**
+     * Считает элементы, строго меньшие value, за O(log n)
+     *
+     * @return количество элементов дерева, меньших value
+     */
+    @Override
+    public int rank(E value) {
+        int rank = 0;
+        int curr = root;
+        while (curr != NIL) {
+            if (compare(value(curr), value) < 0) {
+                rank += sizes[left[curr]] + 1;
+                curr = right[curr];
+            } else {
+                curr = left[curr];
+            }
+        }
+        return rank;
+    }
+
+    /**
+     * Ищет k-й по возрастанию элемент за O(log n)
+     *
+     * @param k номер элемента, начиная с 0
+     * @throws IndexOutOfBoundsException если k < 0 или k >= size()
+     */
+    @Override
+    public E select(int k) {
+        if (k < 0 || k >= size) {
+            throw new IndexOutOfBoundsException("k = " + k + ", size = " + size);
+        }
+        int curr = root;
+        while (true) {
+            int leftSize = sizes[left[curr]];
+            if (k < leftSize) {
+                curr = left[curr];
+            } else if (k > leftSize) {
+                k -= leftSize + 1;
+                curr = right[curr];
+            } else {
+                return value(curr);
+            }
+        }
+    }
+
+    /**
+     * Считает элементы из [fromElement, toElement) за O(log n).
+     * Граница, равная null, означает отсутствие границы.
+     *
+     * @throws IllegalArgumentException если fromElement больше toElement
+     */
+    @Override
+    public int countInRange(E fromElement, E toElement) {
+        if (fromElement != null && toElement != null && compare(fromElement, toElement) > 0) {
+            throw new IllegalArgumentException("fromElement > toElement");
+        }
+        int from = fromElement == null ? 0 : rank(fromElement);
+        int to = toElement == null ? size : rank(toElement);
+        return to - from;
+    }
+
+    /**
+     * Обходит дерево и проверяет что высоты двух поддеревьев
+     * различны по высоте не более чем на 1
+     *
+     * @throws NotBalancedTreeException если высоты отличаются более чем на один
+     */
+    @Override
+    public void checkBalanced() throws NotBalancedTreeException {
+        traverseTreeAndCheckBalanced(root);
+    }
+
+    private int compare(E v1, E v2) {
+        return comparator == null ? v1.compareTo(v2) : comparator.compare(v1, v2);
+    }
+
+    @SuppressWarnings("unchecked")
+    private E value(int node) {
+        return (E) values[node];
+    }
+
+    private void allocate(int capacity) {
+        values = new Object[capacity];
+        left = new int[capacity];
+        right = new int[capacity];
+        parent = new int[capacity];
+        sizes = new int[capacity];
+        height = new byte[capacity];
+    }
+
+    /**
+     * Выдаёт ячейку под новый лист: сначала из списка освобождённых, иначе следующую по порядку,
+     * при нехватке места все массивы удваиваются
+     */
+    private int newNode(E value) {
+        int node;
+        if (free != NIL) {
+            node = free;
+            free = right[node];
+        } else {
+            if (allocated + 1 == values.length) {
+                int capacity = values.length << 1;
+                values = Arrays.copyOf(values, capacity);
+                left = Arrays.copyOf(left, capacity);
+                right = Arrays.copyOf(right, capacity);
+                parent = Arrays.copyOf(parent, capacity);
+                sizes = Arrays.copyOf(sizes, capacity);
+                height = Arrays.copyOf(height, capacity);
+            }
+            node = ++allocated;
+        }
+        values[node] = value;
+        left[node] = NIL;
+        right[node] = NIL;
+        parent[node] = NIL;
+        sizes[node] = 1;
+        height[node] = 1;
+        return node;
+    }
+
+    private void freeNode(int node) {
+        values[node] = null;
+        left[node] = NIL;
+        right[node] = free;
+        free = node;
+    }
+
+    /**
+     * Ребёнок сначала вычисляется в локальную переменную: вставка может заменить массивы на более длинные,
+     * а в left[node] = insert(...) запись ушла бы в старый массив
+     */
+    private int insert(int node, E value) {
+        if (node == NIL) {
+            changed = true;
+            return newNode(value);
+        }
+        int cmp = compare(value, value(node));
+        if (cmp < 0) {
+            int child = insert(left[node], value);
+            left[node] = child;
+            parent[child] = node;
+        } else if (cmp > 0) {
+            int child = insert(right[node], value);
+            right[node] = child;
+            parent[child] = node;
+        } else {
+            return node;
+        }
+        return balance(node);
+    }
+
+    /**
+     * Узел с двумя детьми заменяется не значением, а самой ячейкой минимума правого поддерева,
+     * поэтому номера остальных ячеек, которые мог запомнить итератор, остаются верными
+     */
+    private int delete(int node, E value) {
+        if (node == NIL) {
+            return NIL;
+        }
+        int cmp = compare(value, value(node));
+        if (cmp < 0) {
+            left[node] = delete(left[node], value);
+            setParent(left[node], node);
+        } else if (cmp > 0) {
+            right[node] = delete(right[node], value);
+            setParent(right[node], node);
+        } else {
+            changed = true;
+            int l = left[node];
+            int r = right[node];
+            freeNode(node);
+            if (r == NIL) {
+                return l;
+            }
+            int min = findMin(r);
+            right[min] = removeMin(r);
+            setParent(right[min], min);
+            left[min] = l;
+            setParent(l, min);
+            return balance(min);
+        }
+        return balance(node);
+    }
+
+    private int removeMin(int node) {
+        if (left[node] == NIL) {
+            return right[node];
+        }
+        left[node] = removeMin(left[node]);
+        setParent(left[node], node);
+        return balance(node);
+    }
+
+    private void setParent(int child, int node) {
+        if (child != NIL) {
+            parent[child] = node;
+        }
+    }
+
+    private int balance(int v) {
+        update(v);
+        if (diff(v) == -2) {
+            if (diff(right[v]) > 0) {
+                right[v] = rotateRight(right[v]);
+            }
+            return rotateLeft(v);
+        } else if (diff(v) == 2) {
+            if (diff(left[v]) < 0) {
+                left[v] = rotateLeft(left[v]);
+            }
+            return rotateRight(v);
+        }
+        return v;
+    }
+
+    /**
+     * Пересчитывает высоту и размер поддерева по детям
+     */
+    private void update(int v) {
+        height[v] = (byte) (Math.max(height[left[v]], height[right[v]]) + 1);
+        sizes[v] = sizes[left[v]] + sizes[right[v]] + 1;
+    }
+
+    private int diff(int v) {
+        return height[left[v]] - height[right[v]];
+    }
+
+    private int rotateLeft(int v) {
+        int x = right[v];
+        parent[x] = parent[v];
+        parent[v] = x;
+        right[v] = left[x];
+        setParent(right[v], v);
+        left[x] = v;
+        update(v);
+        update(x);
+        return x;
+    }
+
+    private int rotateRight(int v) {
+        int x = left[v];
+        parent[x] = parent[v];
+        parent[v] = x;
+        left[v] = right[x];
+        setParent(left[v], v);
+        right[x] = v;
+        update(v);
+        update(x);
+        return x;
+    }
+
+    private int findMin(int node) {
+        if (node == NIL) {
+            return NIL;
+        }
+        while (left[node] != NIL) {
+            node = left[node];
+        }
+        return node;
+    }
+
+    private int successor(int v) {
+        if (right[v] != NIL) {
+            return findMin(right[v]);
+        }
+        int p = parent[v];
+        while (p != NIL && v == right[p]) {
+            v = p;
+            p = parent[p];
+        }
+        return p;
+    }
+
+    private int ceilingNode(E value) {
+        int curr = root;
+        int ceiling = NIL;
+        while (curr != NIL) {
+            int cmp = compare(value(curr), value);
+            if (cmp == 0) {
+                return curr;
+            } else if (cmp > 0) {
+                ceiling = curr;
+                curr = left[curr];
+            } else {
+                curr = right[curr];
+            }
+        }
+        return ceiling;
+    }
+
+    private List<E> collectSorted(Iterable<? extends E> sorted) {
+        List<E> values = sorted instanceof Collection ? new ArrayList<>(((Collection<?>) sorted).size()) : new ArrayList<>();
+        for (E value : sorted) {
+            if (!values.isEmpty()) {
+                int cmp = compare(values.get(values.size() - 1), value);
+                if (cmp > 0) {
+                    throw new IllegalArgumentException("Elements are not sorted: " + value);
+                } else if (cmp == 0) {
+                    continue;
+                }
+            }
+            values.add(value);
+        }
+        return values;
+    }
+
+    private void buildFromSorted(List<E> sorted) {
+        allocate(Math.max(INITIAL_CAPACITY, sorted.size() + 1));
+        allocated = 0;
+        free = NIL;
+        root = build(sorted, 0, sorted.size() - 1);
+        size = sorted.size();
+        modCount++;
+    }
+
+    /**
+     * Середина отрезка становится корнем, половины — поддеревьями
+     */
+    private int build(List<E> sorted, int lo, int hi) {
+        if (lo > hi) {
+            return NIL;
+        }
+        int mid = (lo + hi) >>> 1;
+        int node = newNode(sorted.get(mid));
+        int l = build(sorted, lo, mid - 1);
+        int r = build(sorted, mid + 1, hi);
+        left[node] = l;
+        right[node] = r;
+        setParent(l, node);
+        setParent(r, node);
+        update(node);
+        return node;
+    }
+
+    private int traverseTreeAndCheckBalanced(int curr) throws NotBalancedTreeException {
+        if (curr == NIL) {
+            return 1;
+        }
+        int leftHeight = traverseTreeAndCheckBalanced(left[curr]);
+        int rightHeight = traverseTreeAndCheckBalanced(right[curr]);
+        if (Math.abs(leftHeight - rightHeight) > 1) {
+            throw NotBalancedTreeException.create("The heights of the two child subtrees of any node must be differ by at most one",
+                    leftHeight, rightHeight, "value = " + values[curr]);
+        }
+        return Math.max(leftHeight, rightHeight) + 1;
+    }
+
+    /**
+     * Обходит узлы начиная с first, пока значения меньше toElement (null — до конца дерева)
+     */
+    private class TreeIterator implements Iterator<E> {
+
+        private final E toElement;
+        private int next;
+        private int lastReturned = NIL;
+        private int expectedModCount = modCount;
+
+        TreeIterator(int first, E toElement) {
+            this.toElement = toElement;
+            this.next = first;
+        }
+
+        /**
+         * После изменения дерева ячейка next может быть уже освобождена, поэтому её значение не читается:
+         * итератор сообщает о следующем элементе, а next бросает ConcurrentModificationException
+         */
+        @Override
+        public boolean hasNext() {
+            return next != NIL && (modCount != expectedModCount || toElement == null || compare(value(next), toElement) < 0);
+        }
+
+        @Override
+        public E next() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (!hasNext()) {
+                throw new NoSuchElementException("next");
+            }
+            lastReturned = next;
+            next = successor(next);
+            return value(lastReturned);
+        }
+
+        @Override
+        public void remove() {
+            if (lastReturned == NIL) {
+                throw new IllegalStateException("remove");
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            ArrayAVLTree.this.remove(value(lastReturned));
+            expectedModCount = modCount;
+            lastReturned = NIL;
+        }
+    }
+}
@@ -0,0 +1,849 @@
+package ru.mail.polis;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.SortedSet;
+
+/**
+ * B+-дерево: элементы хранятся только в листьях, листья связаны в список для обхода,
+ * внутренние узлы хранят разделители и количество элементов в каждом поддереве.
+ *
+ * Ключи узла лежат подряд в одном массиве, поэтому поиск внутри узла — двоичный поиск по массиву,
+ * а высота дерева — log по основанию order / 2, а не 2. Каждый узел, кроме корня,
+ * заполнен не меньше чем наполовину: в листе от (order + 1) / 2 до order ключей,
+ * у внутреннего узла от (order + 1) / 2 до order детей.
+ *
+ * Разделитель keys[i] внутреннего узла не больше всех элементов поддерева i + 1
+ * и больше всех элементов поддерева i. При удалении элемента разделители не обновляются:
+ * устаревший разделитель по-прежнему разделяет поддеревья.
+ */
+public class BPlusTree<E extends Comparable<E>> extends AbstractSet<E> implements BalancedSortedSet<E>, RangeSearchTree<E>,
+        OrderStatisticSet<E> {
+
+    private static final int DEFAULT_ORDER = 64;
+    private static final int MIN_ORDER = 3;
+
+    private final Comparator<E> comparator;
+    private final int order; //наибольшее количество ключей в листе и детей во внутреннем узле
+    private final int minFill; //наименьшее количество ключей в листе и детей во внутреннем узле, кроме корня
+    private Node root;
+    private Node head; //самый левый лист, с него начинается обход
+    private int size;
+    private int modCount; //количество структурных изменений, для обнаружения модификации во время обхода
+
+    public BPlusTree() {
+        this(null);
+    }
+
+    public BPlusTree(Comparator<E> comparator) {
+        this(DEFAULT_ORDER, comparator);
+    }
+
+    /**
+     * @param order наибольшее количество ключей в листе и детей во внутреннем узле
+     * @param comparator порядок элементов, null — естественный порядок
+     */
+    public BPlusTree(int order, Comparator<E> comparator) {
+        if (order < MIN_ORDER) {
+            throw new IllegalArgumentException("order = " + order);
+        }
+        this.order = order;
+        this.minFill = (order + 1) / 2;
+        this.comparator = comparator;
+        this.root = this.head = newLeaf();
+    }
+
+    /**
+     * Строит дерево из последовательности, упорядоченной по возрастанию, за O(n) сравнений.
+     * Подряд идущие равные элементы схлопываются в один.
+     *
+     * @param sorted элементы по возрастанию в смысле comparator
+     * @param comparator порядок элементов, null — естественный порядок
+     * @throws IllegalArgumentException если элементы не упорядочены по возрастанию
+     */
+    public static <E extends Comparable<E>> BPlusTree<E> fromSorted(Iterable<? extends E> sorted, Comparator<E> comparator) {
+        BPlusTree<E> tree = new BPlusTree<>(comparator);
+        tree.buildFromSorted(tree.collectSorted(sorted));
+        return tree;
+    }
+
+    /**
+     * Вставляет элемент в дерево.
+     * Инвариант: на вход всегда приходит NotNull объект, который имеет корректный тип
+     *
+     * @param value элемент который необходимо вставить
+     * @return true, если элемент в дереве отсутствовал
+     */
+    @Override
+    public boolean add(E value) {
+        if (!insert(root, value)) {
+            return false;
+        }
+        if (root.length > order) {
+            Node left = root;
+            root = newInternal();
+            root.children[0] = left;
+            root.counts[0] = size + 1;
+            root.length = 1;
+            insertChild(root, 0, split(left));
+        }
+        size++;
+        modCount++;
+        return true;
+    }
+
+    /**
+     * Если дерево пустое, а коллекция — SortedSet с тем же порядком, строит дерево за O(n),
+     * иначе вставляет элементы по одному.
+     */
+    @Override
+    public boolean addAll(Collection<? extends E> collection) {
+        if (size == 0 && collection instanceof SortedSet
+                && Objects.equals(comparator, ((SortedSet<?>) collection).comparator())) {
+            buildFromSorted(collectSorted(collection));
+            return size > 0;
+        }
+        return super.addAll(collection);
+    }
+
+    /**
+     * Удаляет элемент с таким же значением из дерева.
+     * Инвариант: на вход всегда приходит NotNull объект, который имеет корректный тип
+     *
+     * @param object элемент который необходимо удалить
+     * @return true, если элемент содержался в дереве
+     */
+    @Override
+    public boolean remove(Object object) {
+        @SuppressWarnings("unchecked")
+        E value = (E) object;
+        if (!delete(root, value)) {
+            return false;
+        }
+        if (root.children != null && root.length == 1) {
+            root = root.children[0];
+        }
+        size--;
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        root = head = newLeaf();
+        size = 0;
+        modCount++;
+    }
+
+    /**
+     * Ищет элемент с таким же значением в дереве.
+     * Инвариант: на вход всегда приходит NotNull объект, который имеет корректный тип
+     *
+     * @param object элемент который необходимо поискать
+     * @return true, если такой элемент содержится в дереве
+     */
+    @Override
+    public boolean contains(Object object) {
+        @SuppressWarnings("unchecked")
+        E value = (E) object;
+        Node node = root;
+        while (node.children != null) {
+            node = node.children[upperBound(node, value)];
+        }
+        return search(node, value) >= 0;
+    }
+
+    /**
+     * Ищет наименьший элемент в дереве
+     *
+     * @return Возвращает наименьший элемент в дереве
+     * @throws NoSuchElementException если дерево пустое
+     */
+    @Override
+    public E first() {
+        if (isEmpty()) {
+            throw new NoSuchElementException("first");
+        }
+        return key(head, 0);
+    }
+
+    /**
+     * Ищет наибольший элемент в дереве
+     *
+     * @return Возвращает наибольший элемент в дереве
+     * @throws NoSuchElementException если дерево пустое
+     */
+    @Override
+    public E last() {
+        if (isEmpty()) {
+            throw new NoSuchElementException("last");
+        }
+        return max(root);
+    }
+
+    @Override
+    public Comparator<? super E> comparator() {
+        return comparator;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public SortedSet<E> subSet(E fromElement, E toElement) {
+        if (fromElement == null || toElement == null) {
+            throw new NullPointerException("bound is null");
+        }
+        if (compare(fromElement, toElement) > 0) {
+            throw new IllegalArgumentException("fromElement > toElement");
+        }
+        return new SubSortedSet<>(this, fromElement, toElement);
+    }
+
+    @Override
+    public SortedSet<E> headSet(E toElement) {
+        if (toElement == null) {
+            throw new NullPointerException("bound is null");
+        }
+        return new SubSortedSet<>(this, null, toElement);
+    }
+
+    @Override
+    public SortedSet<E> tailSet(E fromElement) {
+        if (fromElement == null) {
+            throw new NullPointerException("bound is null");
+        }
+        return new SubSortedSet<>(this, fromElement, null);
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new TreeIterator(head, 0, null);
+    }
+
+    @Override
+    public Iterator<E> iterator(E fromElement, E toElement) {
+        if (fromElement == null) {
+            return new TreeIterator(head, 0, toElement);
+        }
+        Node leaf = leafFor(fromElement);
+        return new TreeIterator(leaf, lowerBound(leaf, fromElement), toElement);
+    }
+
+    @Override
+    public E ceiling(E value) {
+        Node leaf = leafFor(value);
+        int idx = lowerBound(leaf, value);
+        if (idx == leaf.length) {
+            leaf = leaf.next;
+            idx = 0;
+        }
+        return leaf == null ? null : key(leaf, idx);
+    }
+
+    @Override
+    public E lower(E value) {
+        return lower(root, value);
+    }
+
+    /**
+     * Считает элементы, строго меньшие value, за O(log n) по счётчикам внутренних узлов
+     *
+     * @return количество элементов дерева, меньших value
+     */
+    @Override
+    public int rank(E value) {
+        int rank = 0;
+        Node node = root;
+        while (node.children != null) {
+            int idx = upperBound(node, value);
+            for (int i = 0; i < idx; i++) {
+                rank += node.counts[i];
+            }
+            node = node.children[idx];
+        }
+        return rank + lowerBound(node, value);
+    }
+
+    @Override
+    public E select(int k) {
+        if (k < 0 || k >= size) {
+            throw new IndexOutOfBoundsException("k = " + k + ", size = " + size);
+        }
+        Node node = root;
+        while (node.children != null) {
+            int idx = 0;
+            while (k >= node.counts[idx]) {
+                k -= node.counts[idx++];
+            }
+            node = node.children[idx];
+        }
+        return key(node, k);
+    }
+
+    @Override
+    public int countInRange(E fromElement, E toElement) {
+        if (fromElement != null && toElement != null && compare(fromElement, toElement) > 0) {
+            throw new IllegalArgumentException("fromElement > toElement");
+        }
+        int to = toElement == null ? size : rank(toElement);
+        int from = fromElement == null ? 0 : rank(fromElement);
+        return to - from;
+    }
+
+    /**
+     * Проверяет, что все листья на одной глубине, узлы заполнены не меньше чем наполовину,
+     * ключи внутри узлов возрастают и лежат между разделителями родителя,
+     * счётчики поддеревьев верны, а список листьев обходит все элементы по порядку.
+     */
+    @Override
+    public void checkBalanced() throws NotBalancedTreeException {
+        int depth = 0;
+        for (Node node = root; node.children != null; node = node.children[0]) {
+            depth++;
+        }
+        int count = traverseTreeAndCheckBalanced(root, 0, depth, null, null);
+        if (count != size) {
+            throw new NotBalancedTreeException("size = " + size + ", but tree contains " + count);
+        }
+        int linked = 0;
+        E prev = null;
+        for (Node leaf = head; leaf != null; leaf = leaf.next) {
+            for (int i = 0; i < leaf.length; i++) {
+                if (prev != null && compare(prev, key(leaf, i)) >= 0) {
+                    throw new NotBalancedTreeException("Leaf list is not sorted at " + key(leaf, i));
+                }
+                prev = key(leaf, i);
+                linked++;
+            }
+        }
+        if (linked != size) {
+            throw new NotBalancedTreeException("size = " + size + ", but leaf list contains " + linked);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "BPlusTree{" +
+                "order=" + order +
+                ", size=" + size +
+                ", root=" + root +
+                '}';
+    }
+
+    private int compare(E v1, E v2) {
+        return comparator == null ? v1.compareTo(v2) : comparator.compare(v1, v2);
+    }
+
+    @SuppressWarnings("unchecked")
+    private E key(Node node, int idx) {
+        return (E) node.keys[idx];
+    }
+
+    private Node newLeaf() {
+        return new Node(new Object[order + 1], null, null);
+    }
+
+    private Node newInternal() {
+        return new Node(new Object[order], new Node[order + 1], new int[order + 1]);
+    }
+
+    /**
+     * Двоичный поиск в листе
+     *
+     * @return индекс ключа или -(точка вставки) - 1, как в Arrays.binarySearch
+     */
+    private int search(Node leaf, E value) {
+        int lo = 0;
+        int hi = leaf.length - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int cmp = compare(key(leaf, mid), value);
+            if (cmp < 0) {
+                lo = mid + 1;
+            } else if (cmp > 0) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(lo + 1);
+    }
+
+    /**
+     * @return количество ключей узла, строго меньших value
+     */
+    private int lowerBound(Node node, E value) {
+        return bound(node, value, false);
+    }
+
+    /**
+     * @return количество ключей узла, меньших либо равных value; у внутреннего узла это номер поддерева с value
+     */
+    private int upperBound(Node node, E value) {
+        return bound(node, value, true);
+    }
+
+    private int bound(Node node, E value, boolean inclusive) {
+        int lo = 0;
+        int hi = node.children == null ? node.length : node.length - 1;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            int cmp = compare(key(node, mid), value);
+            if (cmp < 0 || inclusive && cmp == 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private Node leafFor(E value) {
+        Node node = root;
+        while (node.children != null) {
+            node = node.children[upperBound(node, value)];
+        }
+        return node;
+    }
+
+    private int count(Node node) {
+        if (node.children == null) {
+            return node.length;
+        }
+        int count = 0;
+        for (int i = 0; i < node.length; i++) {
+            count += node.counts[i];
+        }
+        return count;
+    }
+
+    private E max(Node node) {
+        while (node.children != null) {
+            node = node.children[node.length - 1];
+        }
+        return key(node, node.length - 1);
+    }
+
+    private E lower(Node node, E value) {
+        if (node.children == null) {
+            int idx = lowerBound(node, value);
+            return idx == 0 ? null : key(node, idx - 1);
+        }
+        int idx = lowerBound(node, value);
+        E lower = lower(node.children[idx], value);
+        if (lower == null && idx > 0) {
+            lower = max(node.children[idx - 1]);
+        }
+        return lower;
+    }
+
+    /**
+     * Вставляет value в поддерево node. Переполненный ребёнок делится здесь же,
+     * переполнение самого node разбирает вызывающий.
+     *
+     * @return true, если элемента не было
+     */
+    private boolean insert(Node node, E value) {
+        if (node.children == null) {
+            int idx = search(node, value);
+            if (idx >= 0) {
+                return false;
+            }
+            idx = -(idx + 1);
+            System.arraycopy(node.keys, idx, node.keys, idx + 1, node.length - idx);
+            node.keys[idx] = value;
+            node.length++;
+            return true;
+        }
+        int idx = upperBound(node, value);
+        Node child = node.children[idx];
+        if (!insert(child, value)) {
+            return false;
+        }
+        node.counts[idx]++;
+        if (child.length > order) {
+            insertChild(node, idx, split(child));
+        }
+        return true;
+    }
+
+    /**
+     * Отделяет от переполненного узла правую половину.
+     * У внутреннего узла средний разделитель уходит к родителю и запоминается в splitKey новой половины.
+     *
+     * @return новый правый узел
+     */
+    private Node split(Node node) {
+        int leftLength = (node.length + 1) / 2;
+        int rightLength = node.length - leftLength;
+        Node right;
+        if (node.children == null) {
+            right = newLeaf();
+            System.arraycopy(node.keys, leftLength, right.keys, 0, rightLength);
+            Arrays.fill(node.keys, leftLength, node.length, null);
+            right.next = node.next;
+            node.next = right;
+            right.splitKey = right.keys[0];
+        } else {
+            right = newInternal();
+            System.arraycopy(node.children, leftLength, right.children, 0, rightLength);
+            System.arraycopy(node.counts, leftLength, right.counts, 0, rightLength);
+            System.arraycopy(node.keys, leftLength, right.keys, 0, rightLength - 1);
+            right.splitKey = node.keys[leftLength - 1];
+            Arrays.fill(node.keys, leftLength - 1, node.length - 1, null);
+            Arrays.fill(node.children, leftLength, node.length, null);
+        }
+        node.length = leftLength;
+        right.length = rightLength;
+        return right;
+    }
+
+    /**
+     * Вставляет правую половину разделённого ребёнка idx следующим ребёнком node
+     */
+    private void insertChild(Node node, int idx, Node right) {
+        System.arraycopy(node.children, idx + 1, node.children, idx + 2, node.length - idx - 1);
+        System.arraycopy(node.counts, idx + 1, node.counts, idx + 2, node.length - idx - 1);
+        System.arraycopy(node.keys, idx, node.keys, idx + 1, node.length - idx - 1);
+        node.children[idx + 1] = right;
+        node.keys[idx] = right.splitKey;
+        right.splitKey = null;
+        int rightCount = count(right);
+        node.counts[idx + 1] = rightCount;
+        node.counts[idx] -= rightCount;
+        node.length++;
+    }
+
+    /**
+     * Удаляет value из поддерева node. Недозаполненный ребёнок чинится здесь же,
+     * недозаполненность самого node разбирает вызывающий.
+     *
+     * @return true, если элемент был
+     */
+    private boolean delete(Node node, E value) {
+        if (node.children == null) {
+            int idx = search(node, value);
+            if (idx < 0) {
+                return false;
+            }
+            System.arraycopy(node.keys, idx + 1, node.keys, idx, node.length - idx - 1);
+            node.keys[--node.length] = null;
+            return true;
+        }
+        int idx = upperBound(node, value);
+        Node child = node.children[idx];
+        if (!delete(child, value)) {
+            return false;
+        }
+        node.counts[idx]--;
+        if (child.length < minFill) {
+            fixUnderflow(node, idx);
+        }
+        return true;
+    }
+
+    /**
+     * Занимает один ключ у соседа ребёнка idx, а если у соседей нечего занять — сливает ребёнка с соседом
+     */
+    private void fixUnderflow(Node parent, int idx) {
+        if (idx > 0 && parent.children[idx - 1].length > minFill) {
+            borrowFromLeft(parent, idx);
+        } else if (idx + 1 < parent.length && parent.children[idx + 1].length > minFill) {
+            borrowFromRight(parent, idx);
+        } else if (idx > 0) {
+            merge(parent, idx - 1);
+        } else {
+            merge(parent, idx);
+        }
+    }
+
+    private void borrowFromLeft(Node parent, int idx) {
+        Node left = parent.children[idx - 1];
+        Node node = parent.children[idx];
+        if (node.children == null) {
+            System.arraycopy(node.keys, 0, node.keys, 1, node.length);
+            node.keys[0] = left.keys[left.length - 1];
+            left.keys[left.length - 1] = null;
+            parent.keys[idx - 1] = node.keys[0];
+            parent.counts[idx - 1]--;
+            parent.counts[idx]++;
+        } else {
+            System.arraycopy(node.children, 0, node.children, 1, node.length);
+            System.arraycopy(node.counts, 0, node.counts, 1, node.length);
+            System.arraycopy(node.keys, 0, node.keys, 1, node.length - 1);
+            node.children[0] = left.children[left.length - 1];
+            node.counts[0] = left.counts[left.length - 1];
+            node.keys[0] = parent.keys[idx - 1];
+            parent.keys[idx - 1] = left.keys[left.length - 2];
+            left.keys[left.length - 2] = null;
+            left.children[left.length - 1] = null;
+            parent.counts[idx - 1] -= node.counts[0];
+            parent.counts[idx] += node.counts[0];
+        }
+        left.length--;
+        node.length++;
+    }
+
+    private void borrowFromRight(Node parent, int idx) {
+        Node node = parent.children[idx];
+        Node right = parent.children[idx + 1];
+        if (node.children == null) {
+            node.keys[node.length] = right.keys[0];
+            System.arraycopy(right.keys, 1, right.keys, 0, right.length - 1);
+            right.keys[right.length - 1] = null;
+            parent.keys[idx] = right.keys[0];
+            parent.counts[idx]++;
+            parent.counts[idx + 1]--;
+        } else {
+            int moved = right.counts[0];
+            node.children[node.length] = right.children[0];
+            node.counts[node.length] = moved;
+            node.keys[node.length - 1] = parent.keys[idx];
+            parent.keys[idx] = right.keys[0];
+            System.arraycopy(right.children, 1, right.children, 0, right.length - 1);
+            System.arraycopy(right.counts, 1, right.counts, 0, right.length - 1);
+            System.arraycopy(right.keys, 1, right.keys, 0, right.length - 2);
+            right.children[right.length - 1] = null;
+            right.keys[right.length - 2] = null;
+            parent.counts[idx] += moved;
+            parent.counts[idx + 1] -= moved;
+        }
+        node.length++;
+        right.length--;
+    }
+
+    /**
+     * Сливает ребёнка idx + 1 в ребёнка idx и убирает разделитель между ними из parent
+     */
+    private void merge(Node parent, int idx) {
+        Node left = parent.children[idx];
+        Node right = parent.children[idx + 1];
+        if (left.children == null) {
+            System.arraycopy(right.keys, 0, left.keys, left.length, right.length);
+            left.next = right.next;
+        } else {
+            left.keys[left.length - 1] = parent.keys[idx];
+            System.arraycopy(right.keys, 0, left.keys, left.length, right.length - 1);
+            System.arraycopy(right.children, 0, left.children, left.length, right.length);
+            System.arraycopy(right.counts, 0, left.counts, left.length, right.length);
+        }
+        left.length += right.length;
+        parent.counts[idx] += parent.counts[idx + 1];
+        System.arraycopy(parent.keys, idx + 1, parent.keys, idx, parent.length - idx - 2);
+        System.arraycopy(parent.children, idx + 2, parent.children, idx + 1, parent.length - idx - 2);
+        System.arraycopy(parent.counts, idx + 2, parent.counts, idx + 1, parent.length - idx - 2);
+        parent.length--;
+        parent.keys[parent.length - 1] = null;
+        parent.children[parent.length] = null;
+    }
+
+    private List<E> collectSorted(Iterable<? extends E> sorted) {
+        List<E> values = sorted instanceof Collection ? new ArrayList<>(((Collection<?>) sorted).size()) : new ArrayList<>();
+        for (E value : sorted) {
+            if (!values.isEmpty()) {
+                int cmp = compare(values.get(values.size() - 1), value);
+                if (cmp > 0) {
+                    throw new IllegalArgumentException("Elements are not sorted: " + value);
+                } else if (cmp == 0) {
+                    continue;
+                }
+            }
+            values.add(value);
+        }
+        return values;
+    }
+
+    /**
+     * Раскладывает элементы по листьям поровну, затем так же группирует узлы каждого уровня под общих родителей.
+     * Узлы получаются заполненными почти полностью, но не меньше чем наполовину.
+     */
+    private void buildFromSorted(List<E> values) {
+        clear();
+        if (values.isEmpty()) {
+            return;
+        }
+        int leaves = (values.size() + order - 1) / order;
+        List<Node> level = new ArrayList<>(leaves);
+        List<Object> minKeys = new ArrayList<>(leaves);
+        Node prev = null;
+        for (int i = 0, from = 0; i < leaves; i++) {
+            int to = (int) ((long) values.size() * (i + 1) / leaves);
+            Node leaf = newLeaf();
+            for (int j = from; j < to; j++) {
+                leaf.keys[leaf.length++] = values.get(j);
+            }
+            if (prev == null) {
+                head = leaf;
+            } else {
+                prev.next = leaf;
+            }
+            prev = leaf;
+            level.add(leaf);
+            minKeys.add(leaf.keys[0]);
+            from = to;
+        }
+        while (level.size() > 1) {
+            int parents = (level.size() + order - 1) / order;
+            List<Node> upper = new ArrayList<>(parents);
+            List<Object> upperMinKeys = new ArrayList<>(parents);
+            for (int i = 0, from = 0; i < parents; i++) {
+                int to = (int) ((long) level.size() * (i + 1) / parents);
+                Node node = newInternal();
+                for (int j = from; j < to; j++) {
+                    if (j > from) {
+                        node.keys[node.length - 1] = minKeys.get(j);
+                    }
+                    node.children[node.length] = level.get(j);
+                    node.counts[node.length] = count(level.get(j));
+                    node.length++;
+                }
+                upper.add(node);
+                upperMinKeys.add(minKeys.get(from));
+                from = to;
+            }
+            level = upper;
+            minKeys = upperMinKeys;
+        }
+        root = level.get(0);
+        size = values.size();
+    }
+
+    /**
+     * @return количество элементов в поддереве
+     */
+    private int traverseTreeAndCheckBalanced(Node node, int depth, int leafDepth, E from, E to) throws NotBalancedTreeException {
+        int keys = node.children == null ? node.length : node.length - 1;
+        if (node != root && node.length < minFill || node.length > order) {
+            throw new NotBalancedTreeException("Node must be at least half full: length = " + node.length
+                    + ", order = " + order + "\nnodeInfo = " + node);
+        }
+        for (int i = 0; i < keys; i++) {
+            if (i > 0 && compare(key(node, i - 1), key(node, i)) >= 0
+                    || from != null && compare(key(node, i), from) < 0
+                    || to != null && compare(key(node, i), to) >= 0) {
+                throw new NotBalancedTreeException("Keys are out of order at " + key(node, i) + "\nnodeInfo = " + node);
+            }
+        }
+        if (node.children == null) {
+            if (depth != leafDepth) {
+                throw NotBalancedTreeException.create("All leaves must have the same depth.", leafDepth, depth, node.toString());
+            }
+            return node.length;
+        }
+        int count = 0;
+        for (int i = 0; i < node.length; i++) {
+            E childFrom = i == 0 ? from : key(node, i - 1);
+            E childTo = i == keys ? to : key(node, i);
+            int childCount = traverseTreeAndCheckBalanced(node.children[i], depth + 1, leafDepth, childFrom, childTo);
+            if (childCount != node.counts[i]) {
+                throw new NotBalancedTreeException("counts[" + i + "] = " + node.counts[i]
+                        + ", but subtree contains " + childCount + "\nnodeInfo = " + node);
+            }
+            count += childCount;
+        }
+        return count;
+    }
+
+    /**
+     * Обходит список листьев начиная с ключа idx листа leaf, пока значения меньше toElement (null — до конца)
+     */
+    private class TreeIterator implements Iterator<E> {
+
+        private final E toElement;
+        private Node leaf;
+        private int idx;
+        private E lastReturned;
+        private int expectedModCount = modCount;
+
+        TreeIterator(Node leaf, int idx, E toElement) {
+            this.leaf = leaf;
+            this.idx = idx;
+            this.toElement = toElement;
+            skipExhaustedLeaf();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return leaf != null && (toElement == null || compare(key(leaf, idx), toElement) < 0);
+        }
+
+        @Override
+        public E next() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            lastReturned = key(leaf, idx++);
+            skipExhaustedLeaf();
+            return lastReturned;
+        }
+
+        /**
+         * После удаления узлы могли перестроиться, поэтому позиция ищется заново от корня
+         */
+        @Override
+        public void remove() {
+            if (lastReturned == null) {
+                throw new IllegalStateException();
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            BPlusTree.this.remove(lastReturned);
+            leaf = leafFor(lastReturned);
+            idx = lowerBound(leaf, lastReturned);
+            skipExhaustedLeaf();
+            lastReturned = null;
+            expectedModCount = modCount;
+        }
+
+        private void skipExhaustedLeaf() {
+            while (leaf != null && idx == leaf.length) {
+                leaf = leaf.next;
+                idx = 0;
+            }
+        }
+    }
+
+    /**
+     * Лист (children == null) хранит length ключей. Внутренний узел хранит length детей,
+     * length - 1 разделителей и количество элементов в поддереве каждого ребёнка.
+     * Массивы на один элемент длиннее, чем нужно, чтобы переполнение разбиралось уже после вставки.
+     */
+    private static final class Node {
+        final Object[] keys;
+        final Node[] children;
+        final int[] counts;
+        int length;
+        Node next; //следующий лист
+        Object splitKey; //разделитель, с которым только что отделённая половина вставляется в родителя
+
+        Node(Object[] keys, Node[] children, int[] counts) {
+            this.keys = keys;
+            this.children = children;
+            this.counts = counts;
+        }
+
+        @Override
+        public String toString() {
+            int keys = children == null ? length : length - 1;
+            return "Node{" +
+                    "keys=" + Arrays.toString(Arrays.copyOf(this.keys, Math.max(keys, 0))) +
+                    (children == null ? "" : ", counts=" + Arrays.toString(Arrays.copyOf(counts, length))) +
+                    '}';
+        }
+    }
+}
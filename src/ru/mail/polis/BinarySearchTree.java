@@ -1,17 +1,21 @@
 package ru.mail.polis;
 
 import java.util.AbstractSet;
+import java.util.ArrayDeque;
 import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Deque;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 import java.util.Random;
 import java.util.SortedSet;
 
-public class BinarySearchTree<E extends Comparable<E>> extends AbstractSet<E> implements SortedSet<E> {
+public class BinarySearchTree<E extends Comparable<E>> extends AbstractSet<E> implements RangeSearchTree<E> {
 
     private final Comparator<E> comparator;
     private Node root;
     private int size;
+    private int modCount;
     public BinarySearchTree() {
         this(null);
     }
@@ -79,6 +83,7 @@ public class BinarySearchTree<E extends Comparable<E>> extends AbstractSet<E> im
             }
         }
         size++;
+        modCount++;
         return true;
     }
 
@@ -132,6 +137,7 @@ public class BinarySearchTree<E extends Comparable<E>> extends AbstractSet<E> im
             }
         }
         size--;
+        modCount++;
         return true;
     }
 
@@ -182,22 +188,72 @@ public class BinarySearchTree<E extends Comparable<E>> extends AbstractSet<E> im
 
     @Override
     public SortedSet<E> subSet(E fromElement, E toElement) {
-        throw new UnsupportedOperationException();
+        if (fromElement == null || toElement == null) {
+            throw new NullPointerException("bound is null");
+        }
+        if (compare(fromElement, toElement) > 0) {
+            throw new IllegalArgumentException("fromElement > toElement");
+        }
+        return new SubSortedSet<>(this, fromElement, toElement);
     }
 
     @Override
     public SortedSet<E> headSet(E toElement) {
-        throw new UnsupportedOperationException();
+        if (toElement == null) {
+            throw new NullPointerException("bound is null");
+        }
+        return new SubSortedSet<>(this, null, toElement);
     }
 
     @Override
     public SortedSet<E> tailSet(E fromElement) {
-        throw new UnsupportedOperationException();
+        if (fromElement == null) {
+            throw new NullPointerException("bound is null");
+        }
+        return new SubSortedSet<>(this, fromElement, null);
     }
 
     @Override
     public Iterator<E> iterator() {
-        throw new UnsupportedOperationException();
+        return new TreeIterator(null, null);
+    }
+
+    @Override
+    public Iterator<E> iterator(E fromElement, E toElement) {
+        return new TreeIterator(fromElement, toElement);
+    }
+
+    @Override
+    public E ceiling(E value) {
+        Node curr = root;
+        Node ceiling = null;
+        while (curr != null) {
+            int cmp = compare(curr.value, value);
+            if (cmp == 0) {
+                return curr.value;
+            } else if (cmp > 0) {
+                ceiling = curr;
+                curr = curr.left;
+            } else {
+                curr = curr.right;
+            }
+        }
+        return ceiling == null ? null : ceiling.value;
+    }
+
+    @Override
+    public E lower(E value) {
+        Node curr = root;
+        Node lower = null;
+        while (curr != null) {
+            if (compare(curr.value, value) < 0) {
+                lower = curr;
+                curr = curr.right;
+            } else {
+                curr = curr.left;
+            }
+        }
+        return lower == null ? null : lower.value;
     }
 
     @Override
@@ -219,6 +275,75 @@ public class BinarySearchTree<E extends Comparable<E>> extends AbstractSet<E> im
         inorderTraverse(curr.right, sb);
     }
 
+    /**
+     * Обходит дерево по возрастанию со стеком предков, пока значения меньше toElement (null — до конца дерева).
+     * Ссылок на родителя нет, поэтому после remove() стек заново строится поиском следующего значения.
+     */
+    private class TreeIterator implements Iterator<E> {
+
+        private final E toElement;
+        private final Deque<Node> stack = new ArrayDeque<>();
+        private E lastReturned;
+        private int expectedModCount = modCount;
+
+        TreeIterator(E fromElement, E toElement) {
+            this.toElement = toElement;
+            seek(fromElement, true);
+        }
+
+        /**
+         * Кладёт в стек путь к наименьшему узлу, большему from (или равному, если inclusive)
+         */
+        private void seek(E from, boolean inclusive) {
+            stack.clear();
+            Node curr = root;
+            while (curr != null) {
+                int cmp = from == null ? 1 : compare(curr.value, from);
+                if (cmp > 0 || inclusive && cmp == 0) {
+                    stack.push(curr);
+                    curr = curr.left;
+                } else {
+                    curr = curr.right;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !stack.isEmpty() && (toElement == null || compare(stack.peek().value, toElement) < 0);
+        }
+
+        @Override
+        public E next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException("next");
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            Node node = stack.pop();
+            for (Node curr = node.right; curr != null; curr = curr.left) {
+                stack.push(curr);
+            }
+            lastReturned = node.value;
+            return lastReturned;
+        }
+
+        @Override
+        public void remove() {
+            if (lastReturned == null) {
+                throw new IllegalStateException("remove");
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            BinarySearchTree.this.remove(lastReturned);
+            expectedModCount = modCount;
+            seek(lastReturned, false);
+            lastReturned = null;
+        }
+    }
+
     class Node {
 
         E value;
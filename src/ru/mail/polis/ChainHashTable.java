@@ -6,15 +6,62 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 
+/**
+ * Хеш-таблица с цепочками. Корзина хранит односвязный список, а когда в ней набирается больше
+ * {@link #TREEIFY_THRESHOLD} элементов — сбалансированное дерево {@link TreeBin}, поэтому даже при плохом
+ * hashCode поиск в корзине логарифмический. Когда дерево уменьшается до {@link #UNTREEIFY_THRESHOLD},
+ * корзина снова становится списком.
+ *
+ * Таблица с ключом (seeded) хеширует значения функцией {@link SipHash} со случайным ключом:
+ * {@link KeyedHashable} и строки целиком, остальные — перемешивая hashCode с ключом.
+ * Подобрать значения, которые попадут в одну корзину, тогда можно только для последних.
+ */
 public class ChainHashTable<E> extends AbstractSet<E> implements Set<E> {
 
-    private final int INITIAL_CAPACITY = 8;
+    private static final int INITIAL_CAPACITY = 8;
+    private static final int TREEIFY_THRESHOLD = 8;
+    private static final int UNTREEIFY_THRESHOLD = 6;
+    private static final int MAX_EXPECTED_SIZE = (1 << 29) - 1;
 //    private final float LOAD_FACTOR = 0.5f;
+    private final boolean seeded;
+    private final long k0;
+    private final long k1;
     private Object[] table;
     private int size;
 
     public ChainHashTable() {
-        this.table = new Object[INITIAL_CAPACITY];
+        this(INITIAL_CAPACITY);
+    }
+
+    public ChainHashTable(int initialCapacity) {
+        this(initialCapacity, false);
+    }
+
+    /**
+     * @param initialCapacity начальное количество корзин, округляется вверх до степени двойки
+     * @param seeded хешировать ли значения со случайным ключом этой таблицы
+     */
+    public ChainHashTable(int initialCapacity, boolean seeded) {
+        if (initialCapacity < 1 || initialCapacity > 1 << 30) {
+            throw new IllegalArgumentException("initialCapacity = " + initialCapacity);
+        }
+        this.table = new Object[tableSizeFor(initialCapacity)];
+        this.seeded = seeded;
+        this.k0 = seeded ? SipHash.randomKey() : 0;
+        this.k1 = seeded ? SipHash.randomKey() : 0;
+    }
+
+    /**
+     * Создаёт хеш-таблицу, в которую можно вставить expectedSize элементов без единого перестроения.
+     * Таблица перестраивается, как только заполнена наполовину, поэтому корзин берётся больше 2 * expectedSize
+     *
+     * @param expectedSize ожидаемое количество элементов, не больше 2^29 - 1
+     */
+    public static <E> ChainHashTable<E> withExpectedSize(int expectedSize) {
+        if (expectedSize < 0 || expectedSize > MAX_EXPECTED_SIZE) {
+            throw new IllegalArgumentException("expectedSize = " + expectedSize);
+        }
+        return new ChainHashTable<>(Math.max(INITIAL_CAPACITY, 2 * expectedSize + 1));
     }
 
     /**
@@ -25,19 +72,30 @@ public class ChainHashTable<E> extends AbstractSet<E> implements Set<E> {
      * @return true, если элемент в хеш-таблице отсутствовал
      */
     @Override
+    @SuppressWarnings("unchecked")
     public boolean add(E value) {
-        int idx = hash(value);
-        if (table[idx] == null) {
-            table[idx] = new Node<>(value);
+        int hash = hash(value);
+        int idx = index(hash);
+        if (table[idx] instanceof TreeBin) {
+            if (!((TreeBin<E>) table[idx]).add(value, hash)) {
+                return false;
+            }
+        } else if (table[idx] == null) {
+            table[idx] = new Node<>(value, hash);
         } else {
             Node curr = getNode(idx);
-            while (curr.next != null && !value.equals(curr.value)) {
+            int length = 1;
+            while (curr.next != null && !matches(curr, value, hash)) {
                 curr = curr.next;
+                length++;
             }
-            if (value.equals(curr.value)) {
+            if (matches(curr, value, hash)) {
                 return false;
             }
-            curr.next = new Node<>(value);
+            curr.next = new Node<>(value, hash);
+            if (length >= TREEIFY_THRESHOLD) {
+                table[idx] = TreeBin.treeify(getNode(idx));
+            }
         }
         size++;
         resize();
@@ -52,14 +110,26 @@ public class ChainHashTable<E> extends AbstractSet<E> implements Set<E> {
      * @return true, если элемент содержался в хеш-таблице
      */
     @Override
+    @SuppressWarnings("unchecked")
     public boolean remove(Object object) {
-        @SuppressWarnings("unchecked")
         E value = (E) object;
 
+        int hash = hash(value);
+        int idx = index(hash);
+        if (table[idx] instanceof TreeBin) {
+            TreeBin<E> bin = (TreeBin<E>) table[idx];
+            if (!bin.remove(value, hash)) {
+                return false;
+            }
+            if (bin.size <= UNTREEIFY_THRESHOLD) {
+                table[idx] = bin.untreeify();
+            }
+            size--;
+            return true;
+        }
         Node prev = null;
-        int idx = hash(value);
         Node curr = getNode(idx);
-        while (curr != null && !value.equals(curr.value)) {
+        while (curr != null && !matches(curr, value, hash)) {
             prev = curr;
             curr = curr.next;
         }
@@ -85,20 +155,54 @@ public class ChainHashTable<E> extends AbstractSet<E> implements Set<E> {
      * @return true, если такой элемент содержится в хеш-таблице
      */
     @Override
+    @SuppressWarnings("unchecked")
     public boolean contains(Object object) {
-        @SuppressWarnings("unchecked")
         E value = (E) object;
 
-        Node curr = getNode(hash(value));
-        while (curr != null && !value.equals(curr.value)) {
+        int hash = hash(value);
+        int idx = index(hash);
+        if (table[idx] instanceof TreeBin) {
+            return ((TreeBin<E>) table[idx]).find(value, hash) != null;
+        }
+        Node curr = getNode(idx);
+        while (curr != null && !matches(curr, value, hash)) {
             curr = curr.next;
         }
         //Вышли по второму условию
         return curr != null;
     }
 
-    private int hash(E value) {
-        return Math.abs(value.hashCode()) % table.length;
+    /**
+     * Сравнивает сохранённый хеш узла прежде, чем вызывать equals: в длинной цепочке
+     * большинство чужих элементов отсекается без обращения к ним
+     */
+    private static boolean matches(Node<?> node, Object value, int hash) {
+        return node.hash == hash && value.equals(node.value);
+    }
+
+    /**
+     * Количество корзин — степень двойки, поэтому корзина выбирается маской по перемешанному хешу
+     */
+    private int index(int hash) {
+        return hash & (table.length - 1);
+    }
+
+    private int hash(Object value) {
+        int h;
+        if (!seeded) {
+            h = value.hashCode();
+        } else if (value instanceof KeyedHashable) {
+            h = ((KeyedHashable) value).keyedHash(k0, k1);
+        } else if (value instanceof String) {
+            h = SipHash.hash(k0, k1, (String) value);
+        } else {
+            h = HashMixer.MURMUR3.mix(value.hashCode() ^ (int) k0);
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private static int tableSizeFor(int capacity) {
+        return capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
     }
 
     @SuppressWarnings("unchecked")
@@ -106,47 +210,300 @@ public class ChainHashTable<E> extends AbstractSet<E> implements Set<E> {
         return (Node<E>) table[idx];
     }
 
+    /**
+     * Удваивает количество корзин, если таблица заполнена наполовину.
+     * Узлы не пересоздаются и не сравниваются: все значения заведомо различны,
+     * поэтому каждый узел просто переносится в голову своей новой корзины.
+     * Деревья разворачиваются в списки, а списки, которые и после удвоения длиннее порога, собираются в деревья заново.
+     */
     @SuppressWarnings("unchecked")
     private void resize() {
         if (size * 2 < table.length) {
             return;
         }
         Object[] old = this.table;
-        size = 0;
         table = new Object[table.length << 1];
+        boolean hadTrees = false;
         for (int i = 0; i < old.length; i++) {
-            Node<E> node = (Node<E>) old[i];
-            if (node != null) {
-                Node<E> curr = node;
-                while (curr != null) {
-                    Node next = curr.next;
-                    //FIXME: insert value in head (all unique)
-                    add(curr.value);
-                    curr.next = null;
-                    curr.value = null;
-                    curr = next;
+            Node<E> curr;
+            if (old[i] instanceof TreeBin) {
+                curr = ((TreeBin<E>) old[i]).untreeify();
+                hadTrees = true;
+            } else {
+                curr = (Node<E>) old[i];
+            }
+            while (curr != null) {
+                Node<E> next = curr.next;
+                int idx = index(curr.hash);
+                curr.next = getNode(idx);
+                table[idx] = curr;
+                curr = next;
+            }
+            old[i] = null;
+        }
+        if (hadTrees) {
+            for (int idx = 0; idx < table.length; idx++) {
+                if (length(getNode(idx)) > TREEIFY_THRESHOLD) {
+                    table[idx] = TreeBin.treeify(getNode(idx));
                 }
-                old[i] = null;
             }
         }
     }
 
+    private static int length(Node<?> node) {
+        int length = 0;
+        for (; node != null; node = node.next) {
+            length++;
+        }
+        return length;
+    }
+
     @Override
     public int size() {
         return size;
     }
 
+    /**
+     * @return текущее количество корзин
+     */
+    public int capacity() {
+        return table.length;
+    }
+
     @Override
     public Iterator<E> iterator() {
         throw new UnsupportedOperationException();
     }
 
+    /**
+     * АВЛ-дерево корзины. Узлы упорядочены по полному хешу, при равных хешах — по compareTo,
+     * если значения одного Comparable класса. Если и так порядок не определён, вставка раскладывает
+     * значения по имени класса и identityHashCode, а поиск и удаление проходят оба поддерева.
+     */
+    private static final class TreeBin<E> {
+
+        TreeNode<E> root;
+        int size;
+        private boolean removed;
+
+        static <E> TreeBin<E> treeify(Node<E> head) {
+            TreeBin<E> bin = new TreeBin<>();
+            for (Node<E> curr = head; curr != null; curr = curr.next) {
+                bin.root = bin.insert(bin.root, new TreeNode<>(curr.value, curr.hash));
+                bin.size++;
+            }
+            return bin;
+        }
+
+        /**
+         * @return список из значений дерева
+         */
+        Node<E> untreeify() {
+            Node<E> head = null;
+            TreeNode<E> curr = root;
+            List<TreeNode<E>> stack = new ArrayList<>();
+            while (curr != null || !stack.isEmpty()) {
+                for (; curr != null; curr = curr.left) {
+                    stack.add(curr);
+                }
+                curr = stack.remove(stack.size() - 1);
+                Node<E> node = new Node<>(curr.value, curr.hash);
+                node.next = head;
+                head = node;
+                curr = curr.right;
+            }
+            return head;
+        }
+
+        TreeNode<E> find(Object value, int hash) {
+            return find(root, value, hash);
+        }
+
+        boolean add(E value, int hash) {
+            if (find(value, hash) != null) {
+                return false;
+            }
+            root = insert(root, new TreeNode<>(value, hash));
+            size++;
+            return true;
+        }
+
+        boolean remove(Object value, int hash) {
+            removed = false;
+            root = remove(root, value, hash);
+            if (removed) {
+                size--;
+            }
+            return removed;
+        }
+
+        private TreeNode<E> find(TreeNode<E> node, Object value, int hash) {
+            while (node != null) {
+                int cmp = compare(value, hash, node);
+                if (cmp < 0) {
+                    node = node.left;
+                } else if (cmp > 0) {
+                    node = node.right;
+                } else if (value.equals(node.value)) {
+                    return node;
+                } else {
+                    TreeNode<E> found = find(node.left, value, hash);
+                    if (found != null) {
+                        return found;
+                    }
+                    node = node.right;
+                }
+            }
+            return null;
+        }
+
+        private TreeNode<E> insert(TreeNode<E> node, TreeNode<E> inserted) {
+            if (node == null) {
+                return inserted;
+            }
+            int cmp = compare(inserted.value, inserted.hash, node);
+            if (cmp == 0) {
+                cmp = tieBreak(inserted.value, node.value);
+            }
+            if (cmp < 0) {
+                node.left = insert(node.left, inserted);
+            } else {
+                node.right = insert(node.right, inserted);
+            }
+            return balance(node);
+        }
+
+        private TreeNode<E> remove(TreeNode<E> node, Object value, int hash) {
+            if (node == null) {
+                return null;
+            }
+            int cmp = compare(value, hash, node);
+            if (cmp < 0) {
+                node.left = remove(node.left, value, hash);
+            } else if (cmp > 0) {
+                node.right = remove(node.right, value, hash);
+            } else if (value.equals(node.value)) {
+                removed = true;
+                if (node.left == null) {
+                    return node.right;
+                }
+                if (node.right == null) {
+                    return node.left;
+                }
+                TreeNode<E> min = node.right;
+                while (min.left != null) {
+                    min = min.left;
+                }
+                min.right = removeMin(node.right);
+                min.left = node.left;
+                return balance(min);
+            } else {
+                node.left = remove(node.left, value, hash);
+                if (!removed) {
+                    node.right = remove(node.right, value, hash);
+                }
+            }
+            return balance(node);
+        }
+
+        private TreeNode<E> removeMin(TreeNode<E> node) {
+            if (node.left == null) {
+                return node.right;
+            }
+            node.left = removeMin(node.left);
+            return balance(node);
+        }
+
+        /**
+         * @return знак порядка value относительно узла или 0, если порядок не определён
+         */
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private static int compare(Object value, int hash, TreeNode<?> node) {
+            if (hash != node.hash) {
+                return hash < node.hash ? -1 : 1;
+            }
+            if (value instanceof Comparable && value.getClass() == node.value.getClass()) {
+                return ((Comparable) value).compareTo(node.value);
+            }
+            return 0;
+        }
+
+        private static int tieBreak(Object v1, Object v2) {
+            int cmp = v1.getClass().getName().compareTo(v2.getClass().getName());
+            if (cmp == 0) {
+                cmp = System.identityHashCode(v1) <= System.identityHashCode(v2) ? -1 : 1;
+            }
+            return cmp;
+        }
+
+        private TreeNode<E> balance(TreeNode<E> v) {
+            update(v);
+            if (diff(v) == -2) {
+                if (diff(v.right) > 0) {
+                    v.right = rotateRight(v.right);
+                }
+                return rotateLeft(v);
+            } else if (diff(v) == 2) {
+                if (diff(v.left) < 0) {
+                    v.left = rotateLeft(v.left);
+                }
+                return rotateRight(v);
+            }
+            return v;
+        }
+
+        private TreeNode<E> rotateLeft(TreeNode<E> v) {
+            TreeNode<E> r = v.right;
+            v.right = r.left;
+            r.left = v;
+            update(v);
+            update(r);
+            return r;
+        }
+
+        private TreeNode<E> rotateRight(TreeNode<E> v) {
+            TreeNode<E> l = v.left;
+            v.left = l.right;
+            l.right = v;
+            update(v);
+            update(l);
+            return l;
+        }
+
+        private static int height(TreeNode<?> v) {
+            return v == null ? 0 : v.height;
+        }
+
+        private static int diff(TreeNode<?> v) {
+            return height(v.left) - height(v.right);
+        }
+
+        private static void update(TreeNode<?> v) {
+            v.height = Math.max(height(v.left), height(v.right)) + 1;
+        }
+    }
+
+    private static final class TreeNode<E> {
+        final E value;
+        final int hash;
+        TreeNode<E> left;
+        TreeNode<E> right;
+        int height = 1;
+
+        TreeNode(E value, int hash) {
+            this.value = value;
+            this.hash = hash;
+        }
+    }
+
     private static class Node<E> {
         E value;
+        final int hash; //перемешанный хеш значения, чтобы не пересчитывать его при перестроении
         Node<E> next;
 
-        Node(E value) {
+        Node(E value, int hash) {
             this.value = value;
+            this.hash = hash;
         }
 
         @Override
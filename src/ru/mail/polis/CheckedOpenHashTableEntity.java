@@ -16,8 +16,18 @@ public abstract class CheckedOpenHashTableEntity implements OpenHashTableEntity
      * @return true, если с помощью хеш-функции можно обойти все ячейки хеш-таблицы за tableSize раз
      */
     public boolean isHashFunctionValid(int tableSize) {
+        return isHashFunctionValid(ProbeStrategy.entity(), tableSize);
+    }
+
+    /**
+     * Проверяет корректность последовательности проб для этой сущности
+     * @param strategy стратегия проб
+     * @param tableSize размер таблицы
+     * @return true, если стратегия обходит все ячейки хеш-таблицы за tableSize проб
+     */
+    public boolean isHashFunctionValid(ProbeStrategy strategy, int tableSize) {
         SortedSet<Integer> idx = new TreeSet<>();
-        IntStream.range(0, tableSize).forEach((probId) -> idx.add(hashCode(tableSize, probId)));
+        IntStream.range(0, tableSize).forEach((probId) -> idx.add(strategy.index(this, tableSize, probId)));
         return idx.first() == 0 && idx.last() == tableSize - 1 && idx.size() == tableSize;
     }
 }
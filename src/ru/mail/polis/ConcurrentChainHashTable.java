@@ -0,0 +1,409 @@
+package ru.mail.polis;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Потокобезопасная хеш-таблица с цепочками, устроенная по образцу ConcurrentHashMap.
+ *
+ * contains не берёт блокировок: значения в узлах неизменяемы, а ссылки next volatile.
+ * Пустая корзина занимается через CAS, непустая изменяется под монитором своего первого узла,
+ * поэтому писатели в разные корзины друг другу не мешают.
+ *
+ * Расширение таблицы инкрементальное: корзины переносятся в новую таблицу порциями,
+ * перенесённая корзина заменяется узлом-переадресацией на новую таблицу.
+ * Читатели переходят по переадресации, а писатели, наткнувшиеся на неё, сначала помогают с переносом.
+ *
+ * Итератор слабо согласованный: не бросает ConcurrentModificationException
+ * и видит элементы, добавленные или удалённые во время обхода, не обязательно.
+ */
+public class ConcurrentChainHashTable<E> extends AbstractSet<E> implements Set<E> {
+
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int MAX_CAPACITY = 1 << 30;
+    private static final int MOVED = -1; //хеш узла-переадресации
+    private static final int HASH_BITS = 0x7fffffff; //хеши обычных узлов неотрицательны
+    private static final int TRANSFER_STRIDE = 16; //количество корзин, которое поток забирает на перенос за раз
+
+    private volatile AtomicReferenceArray<Node<E>> table;
+    private final AtomicReference<Resize<E>> resize; //последнее начатое расширение
+    private final LongAdder size = new LongAdder();
+
+    public ConcurrentChainHashTable() {
+        this(INITIAL_CAPACITY);
+    }
+
+    /**
+     * @param initialCapacity начальное количество корзин, округляется вверх до степени двойки
+     */
+    public ConcurrentChainHashTable(int initialCapacity) {
+        if (initialCapacity < 1 || initialCapacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("initialCapacity = " + initialCapacity);
+        }
+        this.table = new AtomicReferenceArray<>(Math.max(2, Integer.highestOneBit(initialCapacity - 1) << 1));
+        this.resize = new AtomicReference<>(new Resize<>(null, table));
+    }
+
+    /**
+     * Вставляет элемент в хеш-таблицу.
+     * Инвариант: на вход всегда приходит NotNull объект, который имеет корректный тип
+     *
+     * @param value элемент который необходимо вставить
+     * @return true, если элемент в хеш-таблице отсутствовал
+     */
+    @Override
+    public boolean add(E value) {
+        int hash = spread(value.hashCode());
+        AtomicReferenceArray<Node<E>> tab = table;
+        while (true) {
+            int idx = hash & (tab.length() - 1);
+            Node<E> head = tab.get(idx);
+            if (head == null) {
+                if (tab.compareAndSet(idx, null, new Node<>(hash, value, null))) {
+                    break;
+                }
+            } else if (head.hash == MOVED) {
+                tab = helpTransfer(tab, (ForwardingNode<E>) head);
+            } else {
+                synchronized (head) {
+                    if (tab.get(idx) != head) {
+                        continue;
+                    }
+                    Node<E> curr = head;
+                    while (true) {
+                        if (curr.hash == hash && value.equals(curr.value)) {
+                            return false;
+                        }
+                        if (curr.next == null) {
+                            curr.next = new Node<>(hash, value, null);
+                            break;
+                        }
+                        curr = curr.next;
+                    }
+                }
+                break;
+            }
+        }
+        size.increment();
+        tryResize(tab);
+        return true;
+    }
+
+    /**
+     * Удаляет элемент с таким же значением из хеш-таблицы.
+     * Инвариант: на вход всегда приходит NotNull объект, который имеет корректный тип
+     *
+     * @param object элемент который необходимо удалить
+     * @return true, если элемент содержался в хеш-таблице
+     */
+    @Override
+    public boolean remove(Object object) {
+        int hash = spread(object.hashCode());
+        AtomicReferenceArray<Node<E>> tab = table;
+        while (true) {
+            int idx = hash & (tab.length() - 1);
+            Node<E> head = tab.get(idx);
+            if (head == null) {
+                return false;
+            } else if (head.hash == MOVED) {
+                tab = helpTransfer(tab, (ForwardingNode<E>) head);
+            } else {
+                synchronized (head) {
+                    if (tab.get(idx) != head) {
+                        continue;
+                    }
+                    Node<E> prev = null;
+                    for (Node<E> curr = head; curr != null; prev = curr, curr = curr.next) {
+                        if (curr.hash == hash && object.equals(curr.value)) {
+                            if (prev == null) {
+                                tab.set(idx, curr.next);
+                            } else {
+                                prev.next = curr.next;
+                            }
+                            size.decrement();
+                            return true;
+                        }
+                    }
+                }
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Ищет элемент с таким же значением в хеш-таблице без блокировок.
+     * Инвариант: на вход всегда приходит NotNull объект, который имеет корректный тип
+     *
+     * @param object элемент который необходимо поискать
+     * @return true, если такой элемент содержится в хеш-таблице
+     */
+    @Override
+    public boolean contains(Object object) {
+        int hash = spread(object.hashCode());
+        AtomicReferenceArray<Node<E>> tab = table;
+        while (true) {
+            Node<E> curr = tab.get(hash & (tab.length() - 1));
+            if (curr != null && curr.hash == MOVED) {
+                tab = ((ForwardingNode<E>) curr).nextTable;
+                continue;
+            }
+            for (; curr != null; curr = curr.next) {
+                if (curr.hash == hash && object.equals(curr.value)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * @return количество элементов; во время параллельных изменений — приблизительное
+     */
+    @Override
+    public int size() {
+        long sum = size.sum();
+        return sum < 0 ? 0 : sum > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) sum;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size.sum() <= 0;
+    }
+
+    public int getTableSize() {
+        return table.length();
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new TableIterator();
+    }
+
+    private static int spread(int hashCode) {
+        return (hashCode ^ (hashCode >>> 16)) & HASH_BITS;
+    }
+
+    /**
+     * Если таблица заполнена на три четверти, начинает её расширение или помогает уже идущему.
+     * Новое расширение начинается только из законченного, результатом которого была tab,
+     * поэтому устаревшая таблица повторно не расширяется.
+     */
+    private void tryResize(AtomicReferenceArray<Node<E>> tab) {
+        int length = tab.length();
+        if (size.sum() < length - (length >>> 2) || length >= MAX_CAPACITY) {
+            return;
+        }
+        Resize<E> current = resize.get();
+        if (!current.finished) {
+            transfer(current);
+        } else if (current.nextTable == tab) {
+            Resize<E> started = new Resize<>(tab, new AtomicReferenceArray<>(length << 1));
+            if (resize.compareAndSet(current, started)) {
+                transfer(started);
+            }
+        }
+    }
+
+    /**
+     * Помогает перенести корзины старой таблицы и возвращает новую
+     */
+    private AtomicReferenceArray<Node<E>> helpTransfer(AtomicReferenceArray<Node<E>> tab, ForwardingNode<E> forwarding) {
+        Resize<E> current = resize.get();
+        if (!current.finished && current.table == tab) {
+            transfer(current);
+        }
+        return forwarding.nextTable;
+    }
+
+    /**
+     * Забирает порции корзин, пока они не кончатся, и переносит их.
+     * Поток, перенёсший последнюю корзину, публикует новую таблицу.
+     */
+    private void transfer(Resize<E> current) {
+        AtomicReferenceArray<Node<E>> tab = current.table;
+        ForwardingNode<E> forwarding = new ForwardingNode<>(current.nextTable);
+        while (true) {
+            int hi = current.transferIndex.get();
+            if (hi <= 0) {
+                return;
+            }
+            int lo = Math.max(0, hi - TRANSFER_STRIDE);
+            if (!current.transferIndex.compareAndSet(hi, lo)) {
+                continue;
+            }
+            for (int idx = hi - 1; idx >= lo; idx--) {
+                transferBin(tab, idx, current.nextTable, forwarding);
+            }
+            if (current.remaining.addAndGet(lo - hi) == 0) {
+                table = current.nextTable;
+                current.finished = true;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Копирует цепочку корзины idx в корзины idx и idx + n новой таблицы и ставит на её место переадресацию.
+     * Старые узлы не изменяются, поэтому читатели, которые по ним идут, доходят до конца цепочки.
+     */
+    private void transferBin(AtomicReferenceArray<Node<E>> tab, int idx,
+                             AtomicReferenceArray<Node<E>> nextTable, ForwardingNode<E> forwarding) {
+        int length = tab.length();
+        while (true) {
+            Node<E> head = tab.get(idx);
+            if (head == null) {
+                if (tab.compareAndSet(idx, null, forwarding)) {
+                    return;
+                }
+                continue;
+            }
+            if (head.hash == MOVED) {
+                return;
+            }
+            synchronized (head) {
+                if (tab.get(idx) != head) {
+                    continue;
+                }
+                Node<E> low = null;
+                Node<E> high = null;
+                for (Node<E> curr = head; curr != null; curr = curr.next) {
+                    if ((curr.hash & length) == 0) {
+                        low = new Node<>(curr.hash, curr.value, low);
+                    } else {
+                        high = new Node<>(curr.hash, curr.value, high);
+                    }
+                }
+                nextTable.set(idx, low);
+                nextTable.set(idx + length, high);
+                tab.set(idx, forwarding);
+                return;
+            }
+        }
+    }
+
+    private static class Node<E> {
+        final int hash;
+        final E value;
+        volatile Node<E> next;
+
+        Node(int hash, E value, Node<E> next) {
+            this.hash = hash;
+            this.value = value;
+            this.next = next;
+        }
+
+        @Override
+        public String toString() {
+            List<E> values = new ArrayList<>();
+            for (Node<E> curr = this; curr != null; curr = curr.next) {
+                values.add(curr.value);
+            }
+            return values.toString();
+        }
+    }
+
+    /**
+     * Ставится на место перенесённой корзины и указывает, где теперь искать её элементы
+     */
+    private static class ForwardingNode<E> extends Node<E> {
+        final AtomicReferenceArray<Node<E>> nextTable;
+
+        ForwardingNode(AtomicReferenceArray<Node<E>> nextTable) {
+            super(MOVED, null, null);
+            this.nextTable = nextTable;
+        }
+    }
+
+    /**
+     * Состояние одного расширения: корзины старой таблицы раздаются потокам с конца.
+     * Начальная таблица считается результатом законченного расширения без старой таблицы.
+     */
+    private static class Resize<E> {
+        final AtomicReferenceArray<Node<E>> table;
+        final AtomicReferenceArray<Node<E>> nextTable;
+        final AtomicInteger transferIndex; //корзины с этого индекса и дальше уже розданы
+        final AtomicInteger remaining; //количество ещё не перенесённых корзин
+        volatile boolean finished; //новая таблица опубликована
+
+        Resize(AtomicReferenceArray<Node<E>> table, AtomicReferenceArray<Node<E>> nextTable) {
+            int length = table == null ? 0 : table.length();
+            this.table = table;
+            this.nextTable = nextTable;
+            this.transferIndex = new AtomicInteger(length);
+            this.remaining = new AtomicInteger(length);
+            this.finished = table == null;
+        }
+    }
+
+    /**
+     * Обходит корзины текущей таблицы по порядку. Элементы очередной корзины копируются в буфер;
+     * если корзина уже перенесена, её элементы собираются из соответствующих корзин новой таблицы.
+     */
+    private class TableIterator implements Iterator<E> {
+
+        private final AtomicReferenceArray<Node<E>> tab = table;
+        private final List<E> buffer = new ArrayList<>();
+        private int nextBin;
+        private int position;
+        private E lastReturned;
+
+        TableIterator() {
+            advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return position < buffer.size();
+        }
+
+        @Override
+        public E next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            lastReturned = buffer.get(position++);
+            if (position == buffer.size()) {
+                advance();
+            }
+            return lastReturned;
+        }
+
+        @Override
+        public void remove() {
+            if (lastReturned == null) {
+                throw new IllegalStateException();
+            }
+            ConcurrentChainHashTable.this.remove(lastReturned);
+            lastReturned = null;
+        }
+
+        private void advance() {
+            buffer.clear();
+            position = 0;
+            while (buffer.isEmpty() && nextBin < tab.length()) {
+                collect(tab, nextBin++);
+            }
+        }
+
+        private void collect(AtomicReferenceArray<Node<E>> tab, int idx) {
+            Node<E> curr = tab.get(idx);
+            if (curr != null && curr.hash == MOVED) {
+                AtomicReferenceArray<Node<E>> nextTable = ((ForwardingNode<E>) curr).nextTable;
+                collect(nextTable, idx);
+                collect(nextTable, idx + tab.length());
+                return;
+            }
+            for (; curr != null; curr = curr.next) {
+                buffer.add(curr.value);
+            }
+        }
+    }
+}
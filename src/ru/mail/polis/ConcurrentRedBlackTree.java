@@ -0,0 +1,287 @@
+package ru.mail.polis;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.SortedSet;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Supplier;
+
+/**
+ * Потокобезопасное множество поверх {@link RedBlackTree}.
+ *
+ * Писатели берут эксклюзивную блокировку StampedLock. Поиск (contains, first, last, ceiling, lower, size)
+ * сначала выполняется оптимистично, вообще без блокировки: если за время чтения ни один писатель
+ * не захватил блокировку, результат верен, иначе поиск повторяется под блокировкой чтения.
+ * Спуск при оптимистичном чтении ограничен по глубине, поэтому несогласованные во время поворота ссылки
+ * не могут его зациклить.
+ *
+ * Итераторы копируют диапазон кусками по {@link #CHUNK} элементов, каждый под своей блокировкой чтения,
+ * поэтому писатель ждёт не дольше копирования одного куска. Итераторы слабо согласованы:
+ * они не бросают ConcurrentModificationException, а изменения между кусками видят, если те лежат дальше
+ * уже скопированного.
+ */
+public class ConcurrentRedBlackTree<E extends Comparable<E>> extends AbstractSet<E> implements BalancedSortedSet<E>,
+        RangeSearchTree<E> {
+
+    /**
+     * Высота красно-чёрного дерева не больше 2 log(n + 1), а n < 2^31
+     */
+    private static final int MAX_DEPTH = 64;
+    /**
+     * Столько элементов итератор копирует за одно взятие блокировки чтения
+     */
+    private static final int CHUNK = 256;
+
+    private final RedBlackTree<E> tree;
+    private final StampedLock lock = new StampedLock();
+
+    public ConcurrentRedBlackTree() {
+        this(null);
+    }
+
+    public ConcurrentRedBlackTree(Comparator<E> comparator) {
+        this.tree = new RedBlackTree<>(comparator);
+    }
+
+    @Override
+    public boolean add(E value) {
+        long stamp = lock.writeLock();
+        try {
+            return tree.add(value);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public boolean remove(Object object) {
+        long stamp = lock.writeLock();
+        try {
+            return tree.remove(object);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public void clear() {
+        long stamp = lock.writeLock();
+        try {
+            tree.clear();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public boolean contains(Object object) {
+        @SuppressWarnings("unchecked")
+        E value = (E) object;
+        E ceiling = read(() -> tree.search(value, true, MAX_DEPTH));
+        return ceiling != null && compare(ceiling, value) == 0;
+    }
+
+    @Override
+    public E first() {
+        E first = read(() -> tree.search(null, true, MAX_DEPTH));
+        if (first == null) {
+            throw new NoSuchElementException("first");
+        }
+        return first;
+    }
+
+    @Override
+    public E last() {
+        E last = read(() -> tree.search(null, false, MAX_DEPTH));
+        if (last == null) {
+            throw new NoSuchElementException("last");
+        }
+        return last;
+    }
+
+    @Override
+    public E ceiling(E value) {
+        return read(() -> tree.search(value, true, MAX_DEPTH));
+    }
+
+    @Override
+    public E lower(E value) {
+        return read(() -> tree.search(value, false, MAX_DEPTH));
+    }
+
+    @Override
+    public int size() {
+        return read(tree::size);
+    }
+
+    @Override
+    public int countInRange(E fromElement, E toElement) {
+        long stamp = lock.readLock();
+        try {
+            return tree.countInRange(fromElement, toElement);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public Comparator<? super E> comparator() {
+        return tree.comparator();
+    }
+
+    @Override
+    public SortedSet<E> subSet(E fromElement, E toElement) {
+        if (fromElement == null || toElement == null) {
+            throw new NullPointerException("bound is null");
+        }
+        if (compare(fromElement, toElement) > 0) {
+            throw new IllegalArgumentException("fromElement > toElement");
+        }
+        return new SubSortedSet<>(this, fromElement, toElement);
+    }
+
+    @Override
+    public SortedSet<E> headSet(E toElement) {
+        if (toElement == null) {
+            throw new NullPointerException("bound is null");
+        }
+        return new SubSortedSet<>(this, null, toElement);
+    }
+
+    @Override
+    public SortedSet<E> tailSet(E fromElement) {
+        if (fromElement == null) {
+            throw new NullPointerException("bound is null");
+        }
+        return new SubSortedSet<>(this, fromElement, null);
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return iterator(null, null);
+    }
+
+    @Override
+    public Iterator<E> iterator(E fromElement, E toElement) {
+        return new ChunkedIterator(fromElement, toElement);
+    }
+
+    /**
+     * Проверяет сбалансированность под блокировкой чтения, то есть между операциями писателей
+     */
+    @Override
+    public void checkBalanced() throws NotBalancedTreeException {
+        long stamp = lock.readLock();
+        try {
+            tree.checkBalanced();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Выполняет чтение оптимистично, а если оно пересеклось с писателем — под блокировкой чтения.
+     * Исключение при оптимистичном чтении означает, что оно увидело дерево посреди изменения.
+     */
+    private <T> T read(Supplier<T> reader) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                T result = reader.get();
+                if (lock.validate(stamp)) {
+                    return result;
+                }
+            } catch (RuntimeException e) {
+                if (lock.validate(stamp)) {
+                    throw e;
+                }
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return reader.get();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private int compare(E v1, E v2) {
+        Comparator<? super E> comparator = tree.comparator();
+        return comparator == null ? v1.compareTo(v2) : comparator.compare(v1, v2);
+    }
+
+    /**
+     * Обходит диапазон кусками: кусок копируется под блокировкой чтения за O(CHUNK + log n),
+     * а следующий ищется в дереве заново от последнего скопированного элемента
+     */
+    private class ChunkedIterator implements Iterator<E> {
+
+        private final E toElement;
+        private final List<E> chunk = new ArrayList<>();
+        private E from; //начало следующего куска или null, если диапазон не ограничен снизу
+        private boolean afterFrom; //from уже скопирован, следующий кусок начинается строго после него
+        private boolean exhausted;
+        private int position;
+        private E lastReturned;
+
+        ChunkedIterator(E fromElement, E toElement) {
+            this.from = fromElement;
+            this.toElement = toElement;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (position == chunk.size() && !exhausted) {
+                fill();
+            }
+            return position < chunk.size();
+        }
+
+        @Override
+        public E next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException("next");
+            }
+            lastReturned = chunk.get(position++);
+            return lastReturned;
+        }
+
+        @Override
+        public void remove() {
+            if (lastReturned == null) {
+                throw new IllegalStateException();
+            }
+            ConcurrentRedBlackTree.this.remove(lastReturned);
+            lastReturned = null;
+        }
+
+        private void fill() {
+            chunk.clear();
+            position = 0;
+            long stamp = lock.readLock();
+            try {
+                Iterator<E> iterator = tree.iterator(from, toElement);
+                if (afterFrom && iterator.hasNext()) {
+                    E first = iterator.next();
+                    if (compare(first, from) != 0) {
+                        chunk.add(first);
+                    }
+                }
+                while (chunk.size() < CHUNK && iterator.hasNext()) {
+                    chunk.add(iterator.next());
+                }
+                exhausted = !iterator.hasNext();
+            } finally {
+                lock.unlockRead(stamp);
+            }
+            if (!chunk.isEmpty()) {
+                from = chunk.get(chunk.size() - 1);
+                afterFrom = true;
+            }
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package ru.mail.polis;
+
+/**
+ * Перемешивает биты хеша, чтобы младшие биты, по которым выбирается ячейка, зависели от всех битов
+ */
+public interface HashMixer {
+
+    /**
+     * Хеш как есть
+     */
+    HashMixer IDENTITY = hash -> hash;
+
+    /**
+     * Умножение на золотое сечение 2^32 / φ со сворачиванием старшей половины, как в {@link IntOpenHashSet}
+     */
+    HashMixer FIBONACCI = hash -> {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    };
+
+    /**
+     * Финализатор fmix32 из MurmurHash3: каждый входной бит влияет на каждый выходной
+     */
+    HashMixer MURMUR3 = hash -> {
+        int h = hash;
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    };
+
+    int mix(int hash);
+}
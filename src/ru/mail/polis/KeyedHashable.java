@@ -0,0 +1,17 @@
+package ru.mail.polis;
+
+/**
+ * Значение, которое умеет хешироваться ключевой функцией {@link SipHash}.
+ * Таблицы с ключом вызывают этот метод вместо hashCode, чтобы подобранные значения не попадали в одну корзину
+ */
+public interface KeyedHashable {
+
+    /**
+     * Равные по equals значения должны давать равные хеши при одном и том же ключе
+     *
+     * @param k0 первая половина ключа
+     * @param k1 вторая половина ключа
+     * @return хеш значения
+     */
+    int keyedHash(long k0, long k1);
+}
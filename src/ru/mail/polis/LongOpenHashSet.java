@@ -0,0 +1,264 @@
+package ru.mail.polis;
+
+import java.util.Arrays;
+
+/**
+ * Множество примитивных long на хеш-таблице с открытой адресацией и двойным хешированием.
+ * Ключи лежат прямо в массиве long[], поэтому add, contains и remove не упаковывают ключи и ничего не выделяют.
+ *
+ * Свободная и удалённая ячейки помечаются значениями-маркерами {@link #FREE} и {@link #DELETED},
+ * а сами эти значения, если их добавить в множество, хранятся отдельными флагами.
+ */
+public class LongOpenHashSet {
+
+    private static final int INITIAL_CAPACITY = 8;
+    private static final float DEFAULT_MAX_LOAD_FACTOR = 0.5f;
+    private static final long FREE = 0L;
+    private static final long DELETED = Long.MIN_VALUE;
+
+    private final float maxLoadFactor;
+    private long[] table;
+    private boolean containsFree; //лежит ли в множестве ключ FREE
+    private boolean containsDeleted; //лежит ли в множестве ключ DELETED
+    private int size; //количество ключей в ячейках таблицы
+    private int deleted; //количество ячеек DELETED
+
+    public LongOpenHashSet() {
+        this(INITIAL_CAPACITY, DEFAULT_MAX_LOAD_FACTOR);
+    }
+
+    /**
+     * @param initialCapacity начальный размер хеш-таблицы, округляется вверх до степени двойки
+     * @param maxLoadFactor максимальная доля занятых ячеек, считая вместе живые и удалённые
+     */
+    public LongOpenHashSet(int initialCapacity, float maxLoadFactor) {
+        if (initialCapacity < 2 || initialCapacity > 1 << 30) {
+            throw new IllegalArgumentException("initialCapacity = " + initialCapacity);
+        }
+        if (!(maxLoadFactor > 0 && maxLoadFactor < 1)) {
+            throw new IllegalArgumentException("maxLoadFactor = " + maxLoadFactor);
+        }
+        this.maxLoadFactor = maxLoadFactor;
+        this.table = new long[Integer.highestOneBit(initialCapacity - 1) << 1];
+    }
+
+    /**
+     * Вычисляет индекс ячейки для ключа по тому же контракту, что и {@link OpenHashTableEntity#hashCode(int, int)}:
+     * при probId от 0 до tableSize - 1 получаются все индексы таблицы.
+     * Шаг второй хеш-функции нечётный, поэтому для tableSize, равного степени двойки, обход полный.
+     *
+     * @param key ключ
+     * @param tableSize размер хеш-таблицы, степень двойки
+     * @param probId номер пробы. Значение от 0 до tableSize - 1
+     * @return значение вычисленного хеша
+     * @throws IllegalArgumentException если tableSize не степень двойки, probId < 0 или probId >= tableSize
+     */
+    public static int hashCode(long key, int tableSize, int probId) throws IllegalArgumentException {
+        if (tableSize <= 0 || Integer.bitCount(tableSize) != 1 || probId < 0 || probId >= tableSize) {
+            throw new IllegalArgumentException("tableSize = " + tableSize + ", probId = " + probId);
+        }
+        int hash = mix(key);
+        int mask = tableSize - 1;
+        return (h1(hash) + probId * h2(hash)) & mask;
+    }
+
+    /**
+     * Вставляет ключ в множество.
+     *
+     * @param key ключ который необходимо вставить
+     * @return true, если ключ в множестве отсутствовал
+     */
+    public boolean add(long key) {
+        if (key == FREE) {
+            if (containsFree) {
+                return false;
+            }
+            containsFree = true;
+            return true;
+        }
+        if (key == DELETED) {
+            if (containsDeleted) {
+                return false;
+            }
+            containsDeleted = true;
+            return true;
+        }
+        final long[] table = this.table;
+        final int mask = table.length - 1;
+        final int hash = mix(key);
+        final int step = h2(hash);
+        int idx = h1(hash) & mask;
+        int freeIdx = -1;
+        for (int probId = 0; probId < table.length; probId++) {
+            long curr = table[idx];
+            if (curr == FREE) {
+                if (freeIdx < 0) {
+                    freeIdx = idx;
+                }
+                break;
+            }
+            if (curr == DELETED) {
+                if (freeIdx < 0) {
+                    freeIdx = idx;
+                }
+            } else if (curr == key) {
+                return false;
+            }
+            idx = (idx + step) & mask;
+        }
+        if (table[freeIdx] == DELETED) {
+            deleted--;
+        }
+        table[freeIdx] = key;
+        size++;
+        if (size + deleted > maxLoadFactor * table.length) {
+            rehash(size > maxLoadFactor * table.length / 2 ? table.length << 1 : table.length);
+        }
+        return true;
+    }
+
+    /**
+     * Удаляет ключ из множества.
+     *
+     * @param key ключ который необходимо удалить
+     * @return true, если ключ содержался в множестве
+     */
+    public boolean remove(long key) {
+        if (key == FREE) {
+            if (!containsFree) {
+                return false;
+            }
+            containsFree = false;
+            return true;
+        }
+        if (key == DELETED) {
+            if (!containsDeleted) {
+                return false;
+            }
+            containsDeleted = false;
+            return true;
+        }
+        int idx = find(key);
+        if (idx < 0) {
+            return false;
+        }
+        table[idx] = DELETED;
+        size--;
+        deleted++;
+        return true;
+    }
+
+    /**
+     * Ищет ключ в множестве.
+     *
+     * @param key ключ который необходимо поискать
+     * @return true, если такой ключ содержится в множестве
+     */
+    public boolean contains(long key) {
+        if (key == FREE) {
+            return containsFree;
+        }
+        if (key == DELETED) {
+            return containsDeleted;
+        }
+        return find(key) >= 0;
+    }
+
+    public int size() {
+        return size + (containsFree ? 1 : 0) + (containsDeleted ? 1 : 0);
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(table, FREE);
+        containsFree = false;
+        containsDeleted = false;
+        size = 0;
+        deleted = 0;
+    }
+
+    public int getTableSize() {
+        return table.length;
+    }
+
+    /**
+     * @return ключи множества в порядке ячеек хеш-таблицы
+     */
+    public long[] toArray() {
+        long[] keys = new long[size()];
+        int i = 0;
+        if (containsFree) {
+            keys[i++] = FREE;
+        }
+        if (containsDeleted) {
+            keys[i++] = DELETED;
+        }
+        for (long key : table) {
+            if (key != FREE && key != DELETED) {
+                keys[i++] = key;
+            }
+        }
+        return keys;
+    }
+
+    private int find(long key) {
+        final long[] table = this.table;
+        final int mask = table.length - 1;
+        final int hash = mix(key);
+        final int step = h2(hash);
+        int idx = h1(hash) & mask;
+        for (int probId = 0; probId < table.length; probId++) {
+            long curr = table[idx];
+            if (curr == key) {
+                return idx;
+            }
+            if (curr == FREE) {
+                return -1;
+            }
+            idx = (idx + step) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Переносит живые ключи в таблицу заданного размера, удалённые ячейки при этом пропадают
+     *
+     * @param tableSize новый размер хеш-таблицы, может совпадать с текущим
+     */
+    private void rehash(int tableSize) {
+        final long[] oldTable = table;
+        final long[] table = new long[tableSize];
+        final int mask = tableSize - 1;
+        for (long key : oldTable) {
+            if (key == FREE || key == DELETED) {
+                continue;
+            }
+            int hash = mix(key);
+            int step = h2(hash);
+            int idx = h1(hash) & mask;
+            while (table[idx] != FREE) {
+                idx = (idx + step) & mask;
+            }
+            table[idx] = key;
+        }
+        this.table = table;
+        deleted = 0;
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 32;
+        return (int) (h ^ (h >>> 16));
+    }
+
+    private static int h1(int hash) {
+        return hash;
+    }
+
+    private static int h2(int hash) {
+        return Integer.rotateLeft(hash, 16) | 1;
+    }
+}
@@ -0,0 +1,460 @@
+package ru.mail.polis;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractSet;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Хеш-таблица с открытой адресацией, ячейки которой лежат вне кучи — в файле, отображённом в память.
+ * Пробы те же, что у {@link OpenHashTable}: {@link OpenHashTableEntity#hashCode(int, int)}.
+ *
+ * Элементы хранятся записями фиксированной длины, которые пишет и читает {@link RecordCodec}.
+ * Ключи сравниваются по байтам записи, поэтому поиск не создаёт объектов.
+ * Файл начинается с заголовка (размер таблицы, число живых и удалённых ячеек), за ним идут ячейки:
+ * байт состояния и запись. Открытие существующего файла не перестраивает таблицу,
+ * а только проверяет заголовок, поэтому хеши элементов не должны меняться между запусками JVM.
+ * Таблица больше 2 ГБ отображается несколькими кусками.
+ *
+ * Изменения попадают в файл, когда ОС сбросит страницы, или при {@link #force()} и {@link #close()}.
+ * Перехеширование пишет новую таблицу во временный файл рядом и атомарно подменяет им старый.
+ */
+public class MappedOpenHashTable<E extends OpenHashTableEntity> extends AbstractSet<E> implements Closeable {
+
+    private static final int INITIAL_CAPACITY = 8;
+    private static final float DEFAULT_MAX_LOAD_FACTOR = 0.5f;
+
+    private static final long MAGIC = 0x6d6170706564L; //"mapped"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+    private static final int RECORD_SIZE_OFFSET = 12;
+    private static final int TABLE_SIZE_OFFSET = 16;
+    private static final int SIZE_OFFSET = 20;
+    private static final int DELETED_OFFSET = 24;
+
+    private static final byte FREE = 0;
+    private static final byte USED = 1;
+    private static final byte DELETED = 2;
+
+    private final Path file;
+    private final RecordCodec<E> codec;
+    private final float maxLoadFactor;
+    private final int slotSize;
+    private final int slotsPerChunk;
+    private final byte[] key; //закодированный ключ текущей операции
+    private final ByteBuffer keyBuffer;
+
+    private MappedByteBuffer header;
+    private MappedByteBuffer[] chunks;
+    private int tableSize;
+    private int size; //количество элементов в хеш-таблице
+    private int deleted; //количество удалённых ячеек, которые ещё удлиняют цепочки проб
+    private int modCount;
+
+    public MappedOpenHashTable(Path file, RecordCodec<E> codec) throws IOException {
+        this(file, codec, INITIAL_CAPACITY, DEFAULT_MAX_LOAD_FACTOR);
+    }
+
+    /**
+     * Открывает таблицу из файла или создаёт новую, если файла нет
+     *
+     * @param file файл таблицы
+     * @param codec кодек записей, должен совпадать с тем, которым таблица была записана
+     * @param initialCapacity начальный размер новой хеш-таблицы, при открытии существующего файла не используется
+     * @param maxLoadFactor максимальная доля занятых ячеек, считая вместе живые и удалённые
+     * @throws IOException если файл не читается или записан другим кодеком
+     */
+    public MappedOpenHashTable(Path file, RecordCodec<E> codec, int initialCapacity, float maxLoadFactor)
+            throws IOException {
+        if (initialCapacity < 2) {
+            throw new IllegalArgumentException("initialCapacity = " + initialCapacity);
+        }
+        if (!(maxLoadFactor > 0 && maxLoadFactor < 1)) {
+            throw new IllegalArgumentException("maxLoadFactor = " + maxLoadFactor);
+        }
+        this.file = file;
+        this.codec = codec;
+        this.maxLoadFactor = maxLoadFactor;
+        this.slotSize = 1 + codec.recordSize();
+        this.slotsPerChunk = Integer.MAX_VALUE / slotSize;
+        this.key = new byte[codec.recordSize()];
+        this.keyBuffer = ByteBuffer.wrap(key);
+        if (Files.exists(file) && Files.size(file) > 0) {
+            open();
+        } else {
+            create(file, initialCapacity);
+        }
+    }
+
+    /**
+     * Вставляет элемент в хеш-таблицу.
+     * Инвариант: на вход всегда приходит NotNull объект, который имеет корректный тип
+     *
+     * @param value элемент который необходимо вставить
+     * @return true, если элемент в хеш-таблице отсутствовал
+     * @throws IllegalArgumentException если элемент не помещается в запись
+     */
+    @Override
+    public boolean add(E value) {
+        encodeKey(value);
+        int freeIdx = -1;
+        for (int probId = 0; probId < tableSize; probId++) {
+            int idx = index(value, probId);
+            byte state = state(idx);
+            if (state != USED) {
+                if (freeIdx < 0) {
+                    freeIdx = idx;
+                }
+                if (state == FREE) {
+                    break;
+                }
+            } else if (keyEquals(idx)) {
+                return false;
+            }
+        }
+        if (freeIdx < 0) {
+            rehash(tableSize << 1);
+            return add(value);
+        }
+        if (state(freeIdx) == DELETED) {
+            deleted--;
+        }
+        writeKey(freeIdx);
+        size++;
+        modCount++;
+        if (size + deleted > maxLoadFactor * tableSize) {
+            rehash(size > maxLoadFactor * tableSize / 2 ? tableSize << 1 : tableSize);
+        } else {
+            writeCounters();
+        }
+        return true;
+    }
+
+    /**
+     * Удаляет элемент с таким же значением из хеш-таблицы.
+     * Инвариант: на вход всегда приходит NotNull объект, который имеет корректный тип
+     *
+     * @param object элемент который необходимо удалить
+     * @return true, если элемент содержался в хеш-таблице
+     */
+    @Override
+    public boolean remove(Object object) {
+        int idx = find(object);
+        if (idx < 0) {
+            return false;
+        }
+        removeAt(idx);
+        return true;
+    }
+
+    /**
+     * Ищет элемент с таким же значением в хеш-таблице.
+     * Инвариант: на вход всегда приходит NotNull объект, который имеет корректный тип
+     *
+     * @param object элемент который необходимо поискать
+     * @return true, если такой элемент содержится в хеш-таблице
+     */
+    @Override
+    public boolean contains(Object object) {
+        return find(object) >= 0;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        for (int idx = 0; idx < tableSize; idx++) {
+            setState(idx, FREE);
+        }
+        size = 0;
+        deleted = 0;
+        modCount++;
+        writeCounters();
+    }
+
+    public int getTableSize() {
+        return tableSize;
+    }
+
+    /**
+     * Сбрасывает изменения отображённых страниц в файл
+     */
+    public void force() {
+        header.force();
+        for (MappedByteBuffer chunk : chunks) {
+            chunk.force();
+        }
+    }
+
+    /**
+     * Сбрасывает изменения в файл. Отображение освобождается сборщиком мусора,
+     * пользоваться таблицей после закрытия нельзя
+     */
+    @Override
+    public void close() {
+        force();
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new TableIterator();
+    }
+
+    @SuppressWarnings("unchecked")
+    private int find(Object object) {
+        E value = (E) object;
+        try {
+            encodeKey(value);
+        } catch (IllegalArgumentException e) {
+            return -1; //такая запись не могла попасть в таблицу
+        }
+        for (int probId = 0; probId < tableSize; probId++) {
+            int idx = index(value, probId);
+            byte state = state(idx);
+            if (state == FREE) {
+                return -1;
+            }
+            if (state == USED && keyEquals(idx)) {
+                return idx;
+            }
+        }
+        return -1;
+    }
+
+    private void removeAt(int idx) {
+        setState(idx, DELETED);
+        size--;
+        deleted++;
+        modCount++;
+        writeCounters();
+    }
+
+    private int index(E value, int probId) {
+        return Math.abs(value.hashCode(tableSize, probId));
+    }
+
+    private void encodeKey(E value) {
+        keyBuffer.clear();
+        codec.encode(value, keyBuffer);
+        while (keyBuffer.hasRemaining()) {
+            keyBuffer.put((byte) 0);
+        }
+    }
+
+    private boolean keyEquals(int idx) {
+        MappedByteBuffer chunk = chunks[idx / slotsPerChunk];
+        int offset = (idx % slotsPerChunk) * slotSize + 1;
+        for (int i = 0; i < key.length; i++) {
+            if (chunk.get(offset + i) != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Копирует закодированный ключ в ячейку и только потом помечает её занятой
+     */
+    private void writeKey(int idx) {
+        ByteBuffer slot = chunks[idx / slotsPerChunk].duplicate();
+        slot.position((idx % slotsPerChunk) * slotSize + 1);
+        slot.put(key);
+        setState(idx, USED);
+    }
+
+    private E read(int idx) {
+        ByteBuffer slot = chunks[idx / slotsPerChunk].duplicate();
+        slot.position((idx % slotsPerChunk) * slotSize + 1);
+        return codec.decode(slot);
+    }
+
+    private byte state(int idx) {
+        return chunks[idx / slotsPerChunk].get((idx % slotsPerChunk) * slotSize);
+    }
+
+    private void setState(int idx, byte state) {
+        chunks[idx / slotsPerChunk].put((idx % slotsPerChunk) * slotSize, state);
+    }
+
+    private void writeCounters() {
+        header.putInt(SIZE_OFFSET, size);
+        header.putInt(DELETED_OFFSET, deleted);
+    }
+
+    private void open() throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            if (channel.size() < HEADER_SIZE) {
+                throw new IOException("Truncated header in " + file);
+            }
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+            if (header.getLong(0) != MAGIC || header.getInt(8) != VERSION) {
+                throw new IOException("Not a hash table file: " + file);
+            }
+            if (header.getInt(RECORD_SIZE_OFFSET) != codec.recordSize()) {
+                throw new IOException("Record size " + header.getInt(RECORD_SIZE_OFFSET)
+                        + " does not match codec record size " + codec.recordSize());
+            }
+            int tableSize = header.getInt(TABLE_SIZE_OFFSET);
+            if (channel.size() < HEADER_SIZE + (long) tableSize * slotSize) {
+                throw new IOException("Truncated table in " + file);
+            }
+            map(channel, header, tableSize);
+            this.size = header.getInt(SIZE_OFFSET);
+            this.deleted = header.getInt(DELETED_OFFSET);
+        }
+    }
+
+    /**
+     * Создаёт файл с пустой таблицей и отображает его
+     */
+    private void create(Path path, int tableSize) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+            header.putLong(0, MAGIC);
+            header.putInt(8, VERSION);
+            header.putInt(RECORD_SIZE_OFFSET, codec.recordSize());
+            header.putInt(TABLE_SIZE_OFFSET, tableSize);
+            map(channel, header, tableSize);
+            this.size = 0;
+            this.deleted = 0;
+            writeCounters();
+        }
+    }
+
+    private void map(FileChannel channel, MappedByteBuffer header, int tableSize) throws IOException {
+        MappedByteBuffer[] chunks = new MappedByteBuffer[(tableSize - 1) / slotsPerChunk + 1];
+        for (int i = 0; i < chunks.length; i++) {
+            int slots = Math.min(slotsPerChunk, tableSize - i * slotsPerChunk);
+            long position = HEADER_SIZE + (long) i * slotsPerChunk * slotSize;
+            chunks[i] = channel.map(FileChannel.MapMode.READ_WRITE, position, (long) slots * slotSize);
+        }
+        this.header = header;
+        this.chunks = chunks;
+        this.tableSize = tableSize;
+    }
+
+    /**
+     * Переносит живые элементы в таблицу заданного размера во временном файле, удалённые ячейки при этом пропадают.
+     * Если хеш-функция не обошла все ячейки новой таблицы, размер удваивается.
+     *
+     * @param newTableSize новый размер хеш-таблицы, может совпадать с текущим
+     */
+    private void rehash(int newTableSize) {
+        Path tmp = file.resolveSibling(file.getFileName() + ".rehash");
+        MappedByteBuffer[] oldChunks = chunks;
+        int oldTableSize = tableSize;
+        try {
+            while (!moveAll(tmp, oldChunks, oldTableSize, newTableSize)) {
+                newTableSize <<= 1;
+            }
+            force();
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        deleted = 0;
+        modCount++;
+    }
+
+    private boolean moveAll(Path tmp, MappedByteBuffer[] oldChunks, int oldTableSize, int newTableSize)
+            throws IOException {
+        create(tmp, newTableSize);
+        size = 0;
+        for (int oldIdx = 0; oldIdx < oldTableSize; oldIdx++) {
+            MappedByteBuffer chunk = oldChunks[oldIdx / slotsPerChunk];
+            int offset = (oldIdx % slotsPerChunk) * slotSize;
+            if (chunk.get(offset) != USED) {
+                continue;
+            }
+            ByteBuffer slot = chunk.duplicate();
+            slot.position(offset + 1);
+            E value = codec.decode(slot);
+            slot.position(offset + 1);
+            slot.get(key);
+            if (!insertUnique(value)) {
+                return false;
+            }
+            size++;
+        }
+        writeCounters();
+        return true;
+    }
+
+    /**
+     * Кладёт в первую свободную ячейку запись из key, которой заведомо нет в таблице
+     *
+     * @return false, если за tableSize проб свободная ячейка не нашлась
+     */
+    private boolean insertUnique(E value) {
+        for (int probId = 0; probId < tableSize; probId++) {
+            int idx = index(value, probId);
+            if (state(idx) == FREE) {
+                writeKey(idx);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private class TableIterator implements Iterator<E> {
+
+        private int next;
+        private int lastReturned = -1;
+        private int expectedModCount = modCount;
+
+        TableIterator() {
+            advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < tableSize;
+        }
+
+        @Override
+        public E next() {
+            if (expectedModCount != modCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            lastReturned = next++;
+            advance();
+            return read(lastReturned);
+        }
+
+        @Override
+        public void remove() {
+            if (lastReturned < 0) {
+                throw new IllegalStateException();
+            }
+            if (expectedModCount != modCount) {
+                throw new ConcurrentModificationException();
+            }
+            removeAt(lastReturned);
+            lastReturned = -1;
+            expectedModCount = modCount;
+        }
+
+        private void advance() {
+            while (next < tableSize && state(next) != USED) {
+                next++;
+            }
+        }
+    }
+}
@@ -6,17 +6,69 @@ import java.util.Set;
 
 public class OpenHashTable<E extends OpenHashTableEntity> extends AbstractSet<E> implements Set<E> {
 
-    private int INITIAL_CAPACITY = 8;
+    private static final int INITIAL_CAPACITY = 8;
+    private static final float DEFAULT_MAX_LOAD_FACTOR = 0.5f;
+    private static final int MAX_DISTANCE = Byte.MAX_VALUE - 1;
+
+    /**
+     * Способ разрешения коллизий
+     */
+    public enum ProbingMode {
+        /**
+         * Пробы по {@link ProbeStrategy}, удалённые ячейки помечаются и остаются в цепочках
+         */
+        PROBE_SEQUENCE,
+        /**
+         * Линейные пробы от ячейки нулевой пробы {@link ProbeStrategy} с вытеснением по Робину Гуду:
+         * элемент, ушедший от своей ячейки дальше, занимает место у более близкого.
+         * Поиск останавливается, как только расстояние встреченного элемента меньше пройденного,
+         * а удаление сдвигает хвост цепочки назад, поэтому удалённых ячеек нет
+         */
+        ROBIN_HOOD
+    }
+
+    private final float maxLoadFactor;
+    private final ProbingMode mode;
+    private final ProbeStrategy strategy;
     private Object[] table;
-    private boolean[] isDeleted;
+    //baseHash элементов по ячейкам: проба сравнивает его прежде, чем обращаться к элементу и вызывать equals
+    private int[] hashes;
+    private boolean[] isDeleted; //только в режиме PROBE_SEQUENCE
+    private byte[] distances; //только в режиме ROBIN_HOOD: 0 — пустая ячейка, иначе расстояние от своей ячейки + 1
     private int size; //количество элементов в хеш-таблице
-    private int tableSize; //размер хещ-таблицы
+    private int deleted; //количество удалённых ячеек, которые ещё удлиняют цепочки проб
 
     public OpenHashTable() {
-        //todo
-        this.table = new Object[INITIAL_CAPACITY];
-        this.isDeleted = new boolean[INITIAL_CAPACITY];
-        size = 0;
+        this(INITIAL_CAPACITY, DEFAULT_MAX_LOAD_FACTOR);
+    }
+
+    public OpenHashTable(int initialCapacity, float maxLoadFactor) {
+        this(initialCapacity, maxLoadFactor, ProbingMode.PROBE_SEQUENCE);
+    }
+
+    public OpenHashTable(int initialCapacity, float maxLoadFactor, ProbingMode mode) {
+        this(initialCapacity, maxLoadFactor, mode, ProbeStrategy.entity());
+    }
+
+    /**
+     * @param initialCapacity начальный размер хеш-таблицы, округляется вверх стратегией проб
+     * @param maxLoadFactor максимальная доля занятых ячеек, считая вместе живые и удалённые.
+     *                      При её превышении таблица перестраивается: удваивается, если живых элементов много,
+     *                      иначе перехешируется в том же размере, чтобы избавиться от удалённых ячеек
+     * @param mode способ разрешения коллизий
+     * @param strategy последовательность проб
+     */
+    public OpenHashTable(int initialCapacity, float maxLoadFactor, ProbingMode mode, ProbeStrategy strategy) {
+        if (initialCapacity < 2) {
+            throw new IllegalArgumentException("initialCapacity = " + initialCapacity);
+        }
+        if (!(maxLoadFactor > 0 && maxLoadFactor < 1)) {
+            throw new IllegalArgumentException("maxLoadFactor = " + maxLoadFactor);
+        }
+        this.maxLoadFactor = maxLoadFactor;
+        this.mode = mode;
+        this.strategy = strategy;
+        allocate(strategy.tableSizeFor(initialCapacity));
     }
 
     /**
@@ -28,23 +80,39 @@ public class OpenHashTable<E extends OpenHashTableEntity> extends AbstractSet<E>
      */
     @Override
     public boolean add(E value) {
-        int probId = 0;
-        int hashcode = Math.abs(value.hashCode(table.length, probId++));
-        while (probId < table.length) {
+        if (mode == ProbingMode.ROBIN_HOOD) {
+            return addRobinHood(value);
+        }
+        int hash = value.baseHash();
+        int probeHash = strategy.probeHash(value);
+        int freeIdx = -1;
+        for (int probId = 0; probId < table.length; probId++) {
+            int hashcode = index(value, probeHash, probId);
             if (table[hashcode] == null) {
-                table[hashcode] = value;
-                size++;
-                break;
-            }
-            if (table[hashcode].equals(value)) {
+                if (freeIdx < 0) {
+                    freeIdx = hashcode;
+                }
+                if (!isDeleted[hashcode]) {
+                    break;
+                }
+            } else if (matches(hashcode, value, hash)) {
                 return false;
             }
-            hashcode = Math.abs(value.hashCode(table.length, probId++));
         }
-        if (probId >= table.length) {
-            resize();
+        if (freeIdx < 0) {
+            rehash(table.length << 1);
             return add(value);
         }
+        if (isDeleted[freeIdx]) {
+            isDeleted[freeIdx] = false;
+            deleted--;
+        }
+        table[freeIdx] = value;
+        hashes[freeIdx] = hash;
+        size++;
+        if (size + deleted > maxLoadFactor * table.length) {
+            rehash(size > maxLoadFactor * table.length / 2 ? table.length << 1 : table.length);
+        }
         return true;
     }
 
@@ -60,11 +128,22 @@ public class OpenHashTable<E extends OpenHashTableEntity> extends AbstractSet<E>
     public boolean remove(Object object) {
         @SuppressWarnings("unchecked")
         E value = (E) object;
+        if (mode == ProbingMode.ROBIN_HOOD) {
+            int idx = findRobinHood(value);
+            if (idx < 0) {
+                return false;
+            }
+            shiftBackward(idx);
+            size--;
+            return true;
+        }
+        int hash = value.baseHash();
+        int probeHash = strategy.probeHash(value);
         int probId = 0;
         int hashcode;
 
         while (probId < table.length) {
-            hashcode = Math.abs(value.hashCode(table.length, probId++));
+            hashcode = index(value, probeHash, probId++);
             if(table[hashcode]==null){
                 if(isDeleted[hashcode]){
                     continue;
@@ -72,10 +151,11 @@ public class OpenHashTable<E extends OpenHashTableEntity> extends AbstractSet<E>
                     return false;
                 }
             }
-            if (value.equals(table[hashcode])) {
+            if (matches(hashcode, value, hash)) {
                 table[hashcode] = null;
                 isDeleted[hashcode] = true;
                 size--;
+                deleted++;
                 return true;
             }
         }
@@ -93,44 +173,215 @@ public class OpenHashTable<E extends OpenHashTableEntity> extends AbstractSet<E>
     public boolean contains(Object object) {
         @SuppressWarnings("unchecked")
         E value = (E) object;
+        return indexOf(value) >= 0;
+    }
+
+    /**
+     * Ищет в хеш-таблице элемент, равный данному. Позволяет хранить сущности, равенство которых
+     * определяется ключом, и доставать их по сущности-образцу с тем же ключом
+     *
+     * @param value образец для поиска
+     * @return элемент из хеш-таблицы или null, если равного нет
+     */
+    @SuppressWarnings("unchecked")
+    public E find(E value) {
+        int idx = indexOf(value);
+        return idx < 0 ? null : (E) table[idx];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    public int getTableSize() {
+        return table.length;
+    }
+
+    private int indexOf(E value) {
+        if (mode == ProbingMode.ROBIN_HOOD) {
+            return findRobinHood(value);
+        }
+        int hash = value.baseHash();
+        int probeHash = strategy.probeHash(value);
         int probId = 0;
         int hashcode;
 
         while (probId < table.length) {
-            hashcode = Math.abs(value.hashCode(table.length, probId++));
+            hashcode = index(value, probeHash, probId++);
             if(table[hashcode]==null){
                 if(isDeleted[hashcode]){
                     continue;
                 } else {
-                    return false;
+                    return -1;
                 }
             }
-            if (table[hashcode].equals(value)) {
-                return true;
+            if (matches(hashcode, value, hash)) {
+                return hashcode;
             }
         }
-        return false;
+        return -1;
     }
 
-    @Override
-    public int size() {
-        return size;
+    /**
+     * Сравнивает элемент ячейки с искомым. Ссылка на элемент уже прочитана проверкой на null, поэтому сначала
+     * сравнивается она, затем сохранённый хеш, и только при совпадении хешей вызывается equals:
+     * на длинных цепочках проб большинство чужих элементов отсекается без обращения к ним
+     */
+    private boolean matches(int idx, E value, int hash) {
+        Object entry = table[idx];
+        return entry == value || entry != null && hashes[idx] == hash && value.equals(entry);
     }
 
-    public int getTableSize() {
-        return tableSize;
+    private int index(E value, int probeHash, int probId) {
+        return Math.abs(strategy.index(value, probeHash, table.length, probId));
     }
 
-    private void resize() {
-        int tableSize = 2 * table.length;
-        size = 0;
-        Object[] oldTable = table;
+    private int next(int idx) {
+        return idx + 1 == table.length ? 0 : idx + 1;
+    }
+
+    private void allocate(int tableSize) {
         table = new Object[tableSize];
-        isDeleted = new boolean[tableSize];
+        hashes = new int[tableSize];
+        if (mode == ProbingMode.ROBIN_HOOD) {
+            distances = new byte[tableSize];
+        } else {
+            isDeleted = new boolean[tableSize];
+        }
+    }
+
+    private boolean addRobinHood(E value) {
+        if (findRobinHood(value) >= 0) {
+            return false;
+        }
+        E carried = insertRobinHood(value);
+        while (carried != null) {
+            rehash(table.length << 1);
+            carried = insertRobinHood(carried);
+        }
+        size++;
+        if (size > maxLoadFactor * table.length) {
+            rehash(table.length << 1);
+        }
+        return true;
+    }
 
-        for (int i = 0; i < oldTable.length; i++)
-            if (oldTable[i] != null)
-                add((E) oldTable[i]);
+    /**
+     * Ищет элемент линейными пробами. Элементы цепочки лежат по неубыванию расстояния от своей ячейки
+     * там, где их не сдвинули более дальние, поэтому элемент с расстоянием меньше пройденного
+     * означает, что искомого в таблице нет
+     *
+     * @return индекс ячейки с элементом или -1
+     */
+    private int findRobinHood(E value) {
+        int hash = value.baseHash();
+        int idx = index(value, strategy.probeHash(value), 0);
+        for (int distance = 0; distance < distances[idx]; distance++) {
+            if (matches(idx, value, hash)) {
+                return idx;
+            }
+            idx = next(idx);
+        }
+        return -1;
+    }
+
+    /**
+     * Кладёт элемент, которого заведомо нет в таблице, вытесняя более близкие к своим ячейкам элементы
+     *
+     * @return null или вытесненный элемент, расстояние которого не помещается в {@link #distances}:
+     * его надо вставить заново после увеличения таблицы
+     */
+    @SuppressWarnings("unchecked")
+    private E insertRobinHood(E value) {
+        Object current = value;
+        int hash = value.baseHash();
+        int distance = 0;
+        int idx = index(value, strategy.probeHash(value), 0);
+        while (table[idx] != null) {
+            if (distances[idx] - 1 < distance) {
+                Object displaced = table[idx];
+                int displacedHash = hashes[idx];
+                int displacedDistance = distances[idx] - 1;
+                table[idx] = current;
+                hashes[idx] = hash;
+                distances[idx] = (byte) (distance + 1);
+                current = displaced;
+                hash = displacedHash;
+                distance = displacedDistance;
+            }
+            idx = next(idx);
+            if (++distance > MAX_DISTANCE) {
+                return (E) current;
+            }
+        }
+        table[idx] = current;
+        hashes[idx] = hash;
+        distances[idx] = (byte) (distance + 1);
+        return null;
+    }
+
+    /**
+     * Освобождает ячейку и сдвигает на одну назад следующие элементы, пока они не на своих местах
+     */
+    private void shiftBackward(int idx) {
+        int next = next(idx);
+        while (distances[next] > 1) {
+            table[idx] = table[next];
+            hashes[idx] = hashes[next];
+            distances[idx] = (byte) (distances[next] - 1);
+            idx = next;
+            next = next(idx);
+        }
+        table[idx] = null;
+        distances[idx] = 0;
+    }
+
+    /**
+     * Переносит живые элементы в таблицу заданного размера, удалённые ячейки при этом пропадают.
+     * Если хеш-функция не обошла все ячейки новой таблицы или в режиме ROBIN_HOOD расстояние вышло за предел,
+     * размер удваивается.
+     *
+     * @param tableSize новый размер хеш-таблицы, может совпадать с текущим
+     */
+    private void rehash(int tableSize) {
+        Object[] oldTable = table;
+        while (!moveAll(oldTable, tableSize)) {
+            tableSize <<= 1;
+        }
+        deleted = 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    private boolean moveAll(Object[] values, int tableSize) {
+        allocate(tableSize);
+        for (Object value : values) {
+            if (value == null) {
+                continue;
+            }
+            if (mode == ProbingMode.ROBIN_HOOD ? insertRobinHood((E) value) != null : !insertUnique((E) value)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Кладёт в первую свободную ячейку элемент, которого заведомо нет в таблице
+     *
+     * @return false, если за tableSize проб свободная ячейка не нашлась
+     */
+    private boolean insertUnique(E value) {
+        int probeHash = strategy.probeHash(value);
+        for (int probId = 0; probId < table.length; probId++) {
+            int hashcode = index(value, probeHash, probId);
+            if (table[hashcode] == null) {
+                table[hashcode] = value;
+                hashes[hashcode] = value.baseHash();
+                return true;
+            }
+        }
+        return false;
     }
 
     @Override
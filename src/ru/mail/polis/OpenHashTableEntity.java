@@ -26,4 +26,23 @@ public interface OpenHashTableEntity {
      */
     int hashCode(int tableSize, int probId) throws IllegalArgumentException;
 
+    /**
+     * Первый базовый хеш, из которого {@link #hashCode(int, int)} получает ячейку первой пробы.
+     *
+     * Базовые хеши вычисляются один раз по неизменяемым полям и дальше только возвращаются,
+     * поэтому ни пробы, ни перехеширование не пересчитывают хеши полей.
+     * Равные по equals сущности должны иметь равные базовые хеши
+     *
+     * @return сохранённое значение хеша
+     */
+    int baseHash();
+
+    /**
+     * Второй базовый хеш, из которого {@link #hashCode(int, int)} получает шаг проб.
+     * Кешируется так же, как {@link #baseHash()}
+     *
+     * @return сохранённое значение хеша
+     */
+    int stepHash();
+
 }
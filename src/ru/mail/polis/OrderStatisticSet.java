@@ -0,0 +1,30 @@
+package ru.mail.polis;
+
+import java.util.SortedSet;
+
+/**
+ * Упорядоченное множество, которое знает позицию каждого элемента.
+ * Деревья поддерживают в каждом узле размер поддерева, поэтому все операции работают за O(log n).
+ */
+public interface OrderStatisticSet<E> extends SortedSet<E> {
+
+    /**
+     * @return количество элементов, строго меньших value
+     */
+    int rank(E value);
+
+    /**
+     * @param k номер элемента по возрастанию, начиная с 0
+     * @return k-й по возрастанию элемент
+     * @throws IndexOutOfBoundsException если k < 0 или k >= size()
+     */
+    E select(int k);
+
+    /**
+     * Граница, равная null, означает отсутствие границы.
+     *
+     * @return количество элементов из [fromElement, toElement)
+     * @throws IllegalArgumentException если fromElement больше toElement
+     */
+    int countInRange(E fromElement, E toElement);
+}
@@ -0,0 +1,138 @@
+package ru.mail.polis;
+
+/**
+ * Последовательность проб хеш-таблицы с открытой адресацией.
+ *
+ * Контракт тот же, что у {@link OpenHashTableEntity#hashCode(int, int)}: при probId от 0 до tableSize - 1
+ * получаются все индексы таблицы, если её размер получен из {@link #tableSizeFor(int)}.
+ * Стратегии, кроме {@link #entity()}, строят пробы по базовым хешам сущности
+ * {@link OpenHashTableEntity#baseHash()} и {@link OpenHashTableEntity#stepHash()}, поэтому их можно менять,
+ * не трогая класс сущности.
+ */
+public interface ProbeStrategy {
+
+    /**
+     * @param entity сущность
+     * @param tableSize размер хеш-таблицы
+     * @param probId номер пробы. Значение от 0 до tableSize - 1
+     * @return индекс ячейки
+     */
+    int index(OpenHashTableEntity entity, int tableSize, int probId);
+
+    /**
+     * Хеш сущности, общий для всех проб одной операции. Таблица считает его один раз и передаёт
+     * в {@link #index(OpenHashTableEntity, int, int, int)}, поэтому дорогой хеш не пересчитывается на каждой пробе,
+     * а стратегия не хранит состояние и может использоваться из нескольких потоков
+     *
+     * @return хеш операции; стратегии, которым он не нужен, возвращают 0
+     */
+    default int probeHash(OpenHashTableEntity entity) {
+        return 0;
+    }
+
+    /**
+     * Индекс ячейки по хешу операции, полученному из {@link #probeHash(OpenHashTableEntity)} для той же сущности
+     */
+    default int index(OpenHashTableEntity entity, int probeHash, int tableSize, int probId) {
+        return index(entity, tableSize, probId);
+    }
+
+    /**
+     * @return наименьший размер таблицы не меньше capacity, на котором пробы обходят все ячейки
+     */
+    default int tableSizeFor(int capacity) {
+        return capacity;
+    }
+
+    /**
+     * Пробы, которые вычисляет сама сущность через {@link OpenHashTableEntity#hashCode(int, int)}.
+     * Размер таблицы округляется до степени двойки: на таких размерах {@link Student} индексирует маской
+     */
+    static ProbeStrategy entity() {
+        return (PowerOfTwoProbeStrategy) OpenHashTableEntity::hashCode;
+    }
+
+    /**
+     * Линейные пробы: соседние ячейки подряд, начиная с mix(baseHash) по модулю размера. Подходит любой размер
+     */
+    static ProbeStrategy linear(HashMixer mixer) {
+        return (entity, tableSize, probId) -> {
+            int idx = Math.floorMod(mixer.mix(entity.baseHash()), tableSize) + probId;
+            return idx >= tableSize || idx < 0 ? idx - tableSize : idx;
+        };
+    }
+
+    /**
+     * Квадратичные пробы с треугольными числами: смещения 0, 1, 3, 6, ...
+     * На таблице размера степени двойки они обходят все ячейки
+     */
+    static ProbeStrategy quadratic(HashMixer mixer) {
+        return new PowerOfTwoProbeStrategy() {
+            @Override
+            public int index(OpenHashTableEntity entity, int tableSize, int probId) {
+                int offset = (int) ((long) probId * (probId + 1) >>> 1);
+                return (mixer.mix(entity.baseHash()) + offset) & (tableSize - 1);
+            }
+        };
+    }
+
+    /**
+     * Двойное хеширование с нечётным шагом: на таблице размера степени двойки шаг взаимно прост с размером,
+     * поэтому обход полный
+     */
+    static ProbeStrategy doubleHashing(HashMixer mixer) {
+        return new PowerOfTwoProbeStrategy() {
+            @Override
+            public int index(OpenHashTableEntity entity, int tableSize, int probId) {
+                int hash = mixer.mix(entity.baseHash());
+                int step = (Integer.rotateLeft(hash, 16) ^ entity.stepHash()) | 1;
+                return (hash + probId * step) & (tableSize - 1);
+            }
+        };
+    }
+
+    /**
+     * Двойное хеширование по ключевому хешу со случайным ключом, см. {@link SipHash}.
+     * Сущности {@link KeyedHashable} хешируются целиком, остальные — перемешиванием baseHash с ключом.
+     *
+     * Ключевой хеш дороже базового, поэтому он отдаётся как {@link #probeHash(OpenHashTableEntity)}:
+     * таблица считает его один раз на операцию. Стратегия без состояния, её можно делить между таблицами и потоками
+     */
+    static ProbeStrategy seeded() {
+        long k0 = SipHash.randomKey();
+        long k1 = SipHash.randomKey();
+        return new PowerOfTwoProbeStrategy() {
+            @Override
+            public int probeHash(OpenHashTableEntity entity) {
+                return entity instanceof KeyedHashable
+                        ? ((KeyedHashable) entity).keyedHash(k0, k1)
+                        : HashMixer.MURMUR3.mix(entity.baseHash() ^ (int) k0);
+            }
+
+            @Override
+            public int index(OpenHashTableEntity entity, int probeHash, int tableSize, int probId) {
+                int step = Integer.rotateLeft(probeHash, 16) | 1;
+                return (probeHash + probId * step) & (tableSize - 1);
+            }
+
+            @Override
+            public int index(OpenHashTableEntity entity, int tableSize, int probId) {
+                return index(entity, probeHash(entity), tableSize, probId);
+            }
+        };
+    }
+
+    /**
+     * Стратегия, которой нужен размер таблицы, равный степени двойки
+     */
+    interface PowerOfTwoProbeStrategy extends ProbeStrategy {
+
+        @Override
+        default int tableSizeFor(int capacity) {
+            if (capacity > 1 << 30) {
+                throw new IllegalArgumentException("capacity = " + capacity);
+            }
+            return capacity <= 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package ru.mail.polis;
+
+import java.util.Iterator;
+import java.util.SortedSet;
+
+/**
+ * Упорядоченное множество, которое умеет за O(log n) находить границу диапазона
+ * и лениво обходить элементы внутри него. Поверх него строятся представления {@link SubSortedSet}.
+ * Граница, равная null, означает отсутствие границы.
+ */
+interface RangeSearchTree<E> extends SortedSet<E> {
+
+    /**
+     * Возвращает итератор по возрастанию элементов из диапазона [fromElement, toElement)
+     *
+     * @param fromElement нижняя граница включительно или null
+     * @param toElement верхняя граница не включительно или null
+     */
+    Iterator<E> iterator(E fromElement, E toElement);
+
+    /**
+     * @return наименьший элемент, больший либо равный value, или null, если такого нет
+     */
+    E ceiling(E value);
+
+    /**
+     * @return наибольший элемент, строго меньший value, или null, если такого нет
+     */
+    E lower(E value);
+
+    /**
+     * Считает элементы из диапазона [fromElement, toElement)
+     *
+     * @param fromElement нижняя граница включительно или null
+     * @param toElement верхняя граница не включительно или null
+     */
+    default int countInRange(E fromElement, E toElement) {
+        int count = 0;
+        for (Iterator<E> iterator = iterator(fromElement, toElement); iterator.hasNext(); iterator.next()) {
+            count++;
+        }
+        return count;
+    }
+}
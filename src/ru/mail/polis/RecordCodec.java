@@ -0,0 +1,29 @@
+package ru.mail.polis;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Сериализует элементы в записи фиксированной длины, см. {@link MappedOpenHashTable}.
+ *
+ * Кодирование должно быть каноничным: равные по equals элементы дают одинаковые байты,
+ * а неравные — разные. Таблица сравнивает ключи по байтам, не декодируя записи.
+ */
+public interface RecordCodec<E> {
+
+    /**
+     * @return длина записи в байтах, одинаковая для всех элементов
+     */
+    int recordSize();
+
+    /**
+     * Пишет запись с текущей позиции буфера, позиция сдвигается не больше чем на {@link #recordSize()}
+     *
+     * @throws IllegalArgumentException если элемент не помещается в запись
+     */
+    void encode(E value, ByteBuffer buffer) throws IllegalArgumentException;
+
+    /**
+     * Читает запись с текущей позиции буфера
+     */
+    E decode(ByteBuffer buffer);
+}
@@ -1,14 +1,22 @@
 package ru.mail.polis;
 
 import java.util.*;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
 
-public class RedBlackTree<E extends Comparable<E>> extends AbstractSet<E> implements BalancedSortedSet<E> {
+public class RedBlackTree<E extends Comparable<E>> extends AbstractSet<E> implements BalancedSortedSet<E>, RangeSearchTree<E>,
+        OrderStatisticSet<E> {
+
+    /**
+     * Начиная с такого суммарного размера поддеревьев, операции над множествами обрабатывают левые части в ForkJoinPool
+     */
+    private static final int PARALLEL_THRESHOLD = 1 << 13;
 
     private final Comparator<E> comparator;
     private final Node nil = new Node(null);
     private Node root = nil; //todo: Создайте новый класс если нужно. Добавьте новые поля, если нужно.
     private int size;
-    //todo: добавьте дополнительные переменные и/или методы если нужно
+    private int modCount; //количество структурных изменений, для обнаружения модификации во время обхода
 
     public RedBlackTree() {
         this(null);
@@ -18,6 +26,20 @@ public class RedBlackTree<E extends Comparable<E>> extends AbstractSet<E> implem
         this.comparator = comparator;
     }
 
+    /**
+     * Строит дерево из последовательности, упорядоченной по возрастанию, за O(n) сравнений и без балансировок.
+     * Подряд идущие равные элементы схлопываются в один.
+     *
+     * @param sorted элементы по возрастанию в смысле comparator
+     * @param comparator порядок элементов, null — естественный порядок
+     * @throws IllegalArgumentException если элементы не упорядочены по возрастанию
+     */
+    public static <E extends Comparable<E>> RedBlackTree<E> fromSorted(Iterable<? extends E> sorted, Comparator<E> comparator) {
+        RedBlackTree<E> tree = new RedBlackTree<>(comparator);
+        tree.buildFromSorted(tree.collectSorted(sorted));
+        return tree;
+    }
+
     /**
      * Вставляет элемент в дерево.
      * Инвариант: на вход всегда приходит NotNull объект, который имеет корректный тип
@@ -59,14 +81,450 @@ public class RedBlackTree<E extends Comparable<E>> extends AbstractSet<E> implem
                 }
             }
 
+            for (Node p = nodeToInsert.parent; p != nil; p = p.parent) {
+                p.size++;
+            }
             insertFixup(nodeToInsert);
         }
 
         size++;
+        modCount++;
 
         return true;
     }
 
+    /**
+     * Если дерево пустое, а коллекция — SortedSet с тем же порядком, строит дерево за O(n),
+     * иначе вставляет элементы по одному.
+     */
+    @Override
+    public boolean addAll(Collection<? extends E> collection) {
+        if (isCompatible(collection)) {
+            @SuppressWarnings("unchecked")
+            RedBlackTree<E> other = (RedBlackTree<E>) collection;
+            return union(other);
+        }
+        if (root == nil && collection instanceof SortedSet
+                && Objects.equals(comparator, ((SortedSet<?>) collection).comparator())) {
+            buildFromSorted(collectSorted(collection));
+            return size > 0;
+        }
+        return super.addAll(collection);
+    }
+
+    /**
+     * Если коллекция — RedBlackTree с тем же порядком, оставляет общие элементы через split/join,
+     * иначе проверяет элементы по одному.
+     */
+    @Override
+    public boolean retainAll(Collection<?> collection) {
+        if (isCompatible(collection)) {
+            @SuppressWarnings("unchecked")
+            RedBlackTree<E> other = (RedBlackTree<E>) collection;
+            return intersection(other);
+        }
+        return super.retainAll(collection);
+    }
+
+    /**
+     * Если коллекция — RedBlackTree с тем же порядком, вычитает её через split/join,
+     * иначе удаляет элементы по одному.
+     */
+    @Override
+    public boolean removeAll(Collection<?> collection) {
+        if (isCompatible(collection)) {
+            @SuppressWarnings("unchecked")
+            RedBlackTree<E> other = (RedBlackTree<E>) collection;
+            return difference(other);
+        }
+        return super.removeAll(collection);
+    }
+
+    /**
+     * Добавляет в дерево все элементы other за O(m log(n/m + 1)), где m — размер меньшего дерева.
+     * Дерево разрезается по ключам other и склеивается обратно, other не изменяется.
+     * Независимые поддеревья большого размера обрабатываются параллельно в ForkJoinPool.
+     *
+     * @param other дерево с тем же компаратором
+     * @return true, если дерево изменилось
+     * @throws IllegalArgumentException если у other другой компаратор
+     */
+    public boolean union(RedBlackTree<E> other) {
+        return applySetOperation(SetOperation.UNION, other);
+    }
+
+    /**
+     * Оставляет в дереве только элементы, которые есть в other, за O(m log(n/m + 1)).
+     *
+     * @param other дерево с тем же компаратором
+     * @return true, если дерево изменилось
+     * @throws IllegalArgumentException если у other другой компаратор
+     * @see #union(RedBlackTree)
+     */
+    public boolean intersection(RedBlackTree<E> other) {
+        return applySetOperation(SetOperation.INTERSECTION, other);
+    }
+
+    /**
+     * Удаляет из дерева все элементы other за O(m log(n/m + 1)).
+     *
+     * @param other дерево с тем же компаратором
+     * @return true, если дерево изменилось
+     * @throws IllegalArgumentException если у other другой компаратор
+     * @see #union(RedBlackTree)
+     */
+    public boolean difference(RedBlackTree<E> other) {
+        return applySetOperation(SetOperation.DIFFERENCE, other);
+    }
+
+    private boolean isCompatible(Collection<?> collection) {
+        return collection instanceof RedBlackTree
+                && Objects.equals(comparator, ((RedBlackTree<?>) collection).comparator);
+    }
+
+    private boolean applySetOperation(SetOperation operation, RedBlackTree<E> other) {
+        if (!Objects.equals(comparator, other.comparator)) {
+            throw new IllegalArgumentException("Trees have different comparators");
+        }
+        if (other == this) {
+            if (operation != SetOperation.DIFFERENCE || root == nil) {
+                return false;
+            }
+            root = nil;
+            size = 0;
+            modCount++;
+            return true;
+        }
+        int oldSize = size;
+        root = apply(operation, root, blackHeight(root), other.root, blackHeight(other.root)).root;
+        if (root != nil) {
+            root.parent = nil;
+            root.color = Color.BLACK;
+        }
+        size = root.size;
+        modCount++;
+        return size != oldSize;
+    }
+
+    private Subtree apply(SetOperation operation, Node t1, int height1, Node t2, int height2) {
+        switch (operation) {
+            case UNION:
+                return union(t1, height1, t2, height2);
+            case INTERSECTION:
+                return intersection(t1, height1, t2, height2);
+            case DIFFERENCE:
+                return difference(t1, height1, t2, height2);
+            default:
+                throw new IllegalArgumentException("operation = " + operation);
+        }
+    }
+
+    /**
+     * Поддерево t1 принадлежит этому дереву и разбирается на части, поддерево t2 только читается.
+     * У t2 свой nil, поэтому пустота поддеревьев проверяется по size.
+     * Чёрные высоты поддеревьев передаются вместе с ними, чтобы join не считал их обходом края.
+     */
+    private Subtree union(Node t1, int height1, Node t2, int height2) {
+        if (t2.size == 0) {
+            return new Subtree(t1, height1);
+        }
+        if (t1.size == 0) {
+            return new Subtree(copy(t2), height2);
+        }
+        Split split = split(t1, height1, t2.value);
+        Node key = split.found != nil ? split.found : new Node(t2.value);
+        Split parts = applyToParts(SetOperation.UNION, split, t2, childHeight(t2, height2));
+        return join(parts.left, parts.leftHeight, key, parts.right, parts.rightHeight);
+    }
+
+    private Subtree intersection(Node t1, int height1, Node t2, int height2) {
+        if (t1.size == 0 || t2.size == 0) {
+            return new Subtree(nil, 0);
+        }
+        Split split = split(t1, height1, t2.value);
+        Split parts = applyToParts(SetOperation.INTERSECTION, split, t2, childHeight(t2, height2));
+        return split.found != nil
+                ? join(parts.left, parts.leftHeight, split.found, parts.right, parts.rightHeight)
+                : join(parts.left, parts.leftHeight, parts.right, parts.rightHeight);
+    }
+
+    private Subtree difference(Node t1, int height1, Node t2, int height2) {
+        if (t1.size == 0 || t2.size == 0) {
+            return new Subtree(t1, height1);
+        }
+        Split split = split(t1, height1, t2.value);
+        Split parts = applyToParts(SetOperation.DIFFERENCE, split, t2, childHeight(t2, height2));
+        return join(parts.left, parts.leftHeight, parts.right, parts.rightHeight);
+    }
+
+    /**
+     * Применяет операцию к левой части разреза с левым поддеревом t2 и к правой с правым,
+     * при большом объёме левые части уходят в ForkJoinPool
+     */
+    private Split applyToParts(SetOperation operation, Split split, Node t2, int childHeight2) {
+        Subtree left;
+        Subtree right;
+        if (split.left.size + t2.left.size + split.right.size + t2.right.size >= PARALLEL_THRESHOLD) {
+            SetOperationTask task = new SetOperationTask(operation, split.left, split.leftHeight,
+                    t2.left, childHeight2);
+            task.fork();
+            right = apply(operation, split.right, split.rightHeight, t2.right, childHeight2);
+            left = task.join();
+        } else {
+            left = apply(operation, split.left, split.leftHeight, t2.left, childHeight2);
+            right = apply(operation, split.right, split.rightHeight, t2.right, childHeight2);
+        }
+        return new Split(left.root, left.height, nil, right.root, right.height);
+    }
+
+    /**
+     * Разрезает поддерево на элементы меньше value и больше value.
+     * Чёрная высота детей получается из высоты родителя, поэтому каждый join на пути
+     * работает за разность высот склеиваемых частей, а весь разрез — за O(log n)
+     *
+     * @param height чёрная высота поддерева t
+     * @return части с их чёрными высотами и узел со значением value (или nil, если его не было в поддереве)
+     */
+    private Split split(Node t, int height, E value) {
+        if (t == nil) {
+            return new Split(nil, 0, nil, nil, 0);
+        }
+        Node left = t.left;
+        Node right = t.right;
+        int childHeight = childHeight(t, height);
+        int cmp = compare(value, t.value);
+        if (cmp == 0) {
+            return new Split(left, childHeight, t, right, childHeight);
+        } else if (cmp < 0) {
+            Split split = split(left, childHeight, value);
+            Subtree joined = join(split.right, split.rightHeight, t, right, childHeight);
+            split.right = joined.root;
+            split.rightHeight = joined.height;
+            return split;
+        } else {
+            Split split = split(right, childHeight, value);
+            Subtree joined = join(left, childHeight, t, split.left, split.leftHeight);
+            split.left = joined.root;
+            split.leftHeight = joined.height;
+            return split;
+        }
+    }
+
+    /**
+     * Склеивает поддеревья через узел key, все элементы left меньше key, все элементы right больше.
+     * Корни поддеревьев перекрашиваются в чёрный, после чего key спускается по краю поддерева
+     * с большей чёрной высотой до чёрного узла с той же чёрной высотой, что у другого поддерева,
+     * и вставляется туда красным. Нарушение «красный под красным» поднимается вверх поворотами.
+     * Чёрные высоты поддеревьев известны вызывающему, поэтому работает за O(|bh(left) - bh(right)| + 1).
+     *
+     * @param leftHeight чёрная высота left
+     * @param rightHeight чёрная высота right
+     * @return склеенное дерево и его чёрная высота
+     */
+    private Subtree join(Node left, int leftHeight, Node key, Node right, int rightHeight) {
+        if (left != nil && left.color == Color.RED) {
+            left.color = Color.BLACK;
+            leftHeight++;
+        }
+        if (right != nil && right.color == Color.RED) {
+            right.color = Color.BLACK;
+            rightHeight++;
+        }
+        Node result;
+        int height;
+        if (leftHeight > rightHeight) {
+            result = joinRight(left, leftHeight, key, right, rightHeight);
+            height = leftHeight;
+        } else if (leftHeight < rightHeight) {
+            result = joinLeft(left, leftHeight, key, right, rightHeight);
+            height = rightHeight;
+        } else {
+            return new Subtree(attach(left, key, right, Color.BLACK), leftHeight + 1);
+        }
+        //Вставка красного узла и повороты сохраняют число чёрных узлов на путях, меняет его только перекраска корня
+        if (result.color == Color.RED && (result.left.color == Color.RED || result.right.color == Color.RED)) {
+            result.color = Color.BLACK;
+            height++;
+        }
+        return new Subtree(result, height);
+    }
+
+    private Node joinRight(Node t, int height, Node key, Node right, int rightHeight) {
+        if (t.color == Color.BLACK && height == rightHeight) {
+            return attach(t, key, right, Color.RED);
+        }
+        Node child = joinRight(t.right, t.color == Color.BLACK ? height - 1 : height, key, right, rightHeight);
+        t.right = child;
+        child.parent = t;
+        t.size = t.left.size + child.size + 1;
+        if (t.color == Color.BLACK && child.color == Color.RED && child.right.color == Color.RED) {
+            child.right.color = Color.BLACK;
+            return rotateLeft(t, child);
+        }
+        return t;
+    }
+
+    private Node joinLeft(Node left, int leftHeight, Node key, Node t, int height) {
+        if (t.color == Color.BLACK && height == leftHeight) {
+            return attach(left, key, t, Color.RED);
+        }
+        Node child = joinLeft(left, leftHeight, key, t.left, t.color == Color.BLACK ? height - 1 : height);
+        t.left = child;
+        child.parent = t;
+        t.size = child.size + t.right.size + 1;
+        if (t.color == Color.BLACK && child.color == Color.RED && child.left.color == Color.RED) {
+            child.left.color = Color.BLACK;
+            return rotateRight(t, child);
+        }
+        return t;
+    }
+
+    /**
+     * Склеивает поддеревья без разделяющего узла: им становится наибольший элемент left
+     */
+    private Subtree join(Node left, int leftHeight, Node right, int rightHeight) {
+        if (left == nil) {
+            return new Subtree(right, rightHeight);
+        }
+        if (right == nil) {
+            return new Subtree(left, leftHeight);
+        }
+        Node max = left;
+        while (max.right != nil) {
+            max = max.right;
+        }
+        Split split = split(left, leftHeight, max.value);
+        return join(split.left, split.leftHeight, split.found, right, rightHeight);
+    }
+
+    private int childHeight(Node t, int height) {
+        return t.color == Color.BLACK ? height - 1 : height;
+    }
+
+    /**
+     * Количество чёрных узлов на пути от корня поддерева до nil.
+     * Считается обходом края, поэтому нужна только на входе в операцию над множествами.
+     * Поддерево может принадлежать другому дереву со своим nil, поэтому конец пути определяется по size
+     */
+    private int blackHeight(Node t) {
+        int height = 0;
+        for (; t.size != 0; t = t.left) {
+            if (t.color == Color.BLACK) {
+                height++;
+            }
+        }
+        return height;
+    }
+
+    /**
+     * Поля nil не записываются: поддеревья могут склеиваться параллельно
+     */
+    private Node attach(Node left, Node key, Node right, Color color) {
+        key.left = left;
+        key.right = right;
+        if (left != nil) {
+            left.parent = key;
+        }
+        if (right != nil) {
+            right.parent = key;
+        }
+        key.size = left.size + right.size + 1;
+        key.color = color;
+        return key;
+    }
+
+    /**
+     * Поворот внутри отделённого поддерева, родителя нового корня назначает вызывающий
+     */
+    private Node rotateLeft(Node t, Node child) {
+        t.right = child.left;
+        if (child.left != nil) {
+            child.left.parent = t;
+        }
+        child.left = t;
+        t.parent = child;
+        child.size = t.size;
+        t.size = t.left.size + t.right.size + 1;
+        return child;
+    }
+
+    private Node rotateRight(Node t, Node child) {
+        t.left = child.right;
+        if (child.right != nil) {
+            child.right.parent = t;
+        }
+        child.right = t;
+        t.parent = child;
+        child.size = t.size;
+        t.size = t.left.size + t.right.size + 1;
+        return child;
+    }
+
+    private Node copy(Node t) {
+        if (t.size == 0) {
+            return nil;
+        }
+        Node node = new Node(t.value);
+        node.color = t.color;
+        node.size = t.size;
+        node.left = copy(t.left);
+        node.right = copy(t.right);
+        if (node.left != nil) {
+            node.left.parent = node;
+        }
+        if (node.right != nil) {
+            node.right.parent = node;
+        }
+        return node;
+    }
+
+    private List<E> collectSorted(Iterable<? extends E> sorted) {
+        List<E> values = sorted instanceof Collection ? new ArrayList<>(((Collection<?>) sorted).size()) : new ArrayList<>();
+        for (E value : sorted) {
+            if (!values.isEmpty()) {
+                int cmp = compare(values.get(values.size() - 1), value);
+                if (cmp > 0) {
+                    throw new IllegalArgumentException("Elements are not sorted: " + value);
+                } else if (cmp == 0) {
+                    continue;
+                }
+            }
+            values.add(value);
+        }
+        return values;
+    }
+
+    private void buildFromSorted(List<E> values) {
+        int redLevel = 31 - Integer.numberOfLeadingZeros(values.size() + 1);
+        root = build(values, 0, values.size() - 1, 0, redLevel);
+        size = values.size();
+        modCount++;
+    }
+
+    /**
+     * Середина отрезка становится корнем, половины — поддеревьями.
+     * Все уровни, кроме последнего, заполнены полностью; их узлы чёрные,
+     * а узлы неполного последнего уровня redLevel красные, поэтому чёрная высота всех путей одинакова.
+     */
+    private Node build(List<E> values, int lo, int hi, int level, int redLevel) {
+        if (lo > hi) {
+            return nil;
+        }
+        int mid = (lo + hi) >>> 1;
+        Node node = new Node(values.get(mid));
+        node.left = build(values, lo, mid - 1, level + 1, redLevel);
+        node.right = build(values, mid + 1, hi, level + 1, redLevel);
+        if (node.left != nil) {
+            node.left.parent = node;
+        }
+        if (node.right != nil) {
+            node.right.parent = node;
+        }
+        node.size = node.left.size + node.right.size + 1;
+        node.color = level == redLevel ? Color.RED : Color.BLACK;
+        return node;
+    }
+
     /**
      * Удаляет элемент с таким же значением из дерева.
      * Инвариант: на вход всегда приходит NotNull объект, который имеет корректный тип
@@ -85,6 +543,15 @@ public class RedBlackTree<E extends Comparable<E>> extends AbstractSet<E> implem
         if (nodeToDelete == null || nodeToDelete == nil) {
             return false;
         }
+        deleteNode(nodeToDelete);
+        return true;
+    }
+
+    /**
+     * Вырезает узел из дерева. Если у узла два потомка, вырезается его последователь,
+     * а значение последователя переносится в nodeToDelete.
+     */
+    private void deleteNode(Node nodeToDelete) {
         Node y, x;
 
         if (nodeToDelete.left == nil || nodeToDelete.right == nil) {
@@ -100,6 +567,9 @@ public class RedBlackTree<E extends Comparable<E>> extends AbstractSet<E> implem
         }
 
         x.parent = y.parent;
+        for (Node p = y.parent; p != nil; p = p.parent) {
+            p.size--;
+        }
 
         if (y.parent == nil) {
             root = x;
@@ -120,8 +590,7 @@ public class RedBlackTree<E extends Comparable<E>> extends AbstractSet<E> implem
             deleteFixup(x);
         }
         size--;
-
-        return true;
+        modCount++;
     }
 
     private void deleteFixup(Node x) {
@@ -304,24 +773,202 @@ public class RedBlackTree<E extends Comparable<E>> extends AbstractSet<E> implem
                 '}';
     }
 
+    /**
+     * Возвращает живое представление элементов из [fromElement, toElement).
+     * Граница ищется за O(log n), элементы обходятся лениво, изменения видны в обе стороны.
+     *
+     * @throws IllegalArgumentException если fromElement больше toElement
+     */
     @Override
     public SortedSet<E> subSet(E fromElement, E toElement) {
-        throw new UnsupportedOperationException("subSet");
+        if (fromElement == null || toElement == null) {
+            throw new NullPointerException("bound is null");
+        }
+        if (compare(fromElement, toElement) > 0) {
+            throw new IllegalArgumentException("fromElement > toElement");
+        }
+        return new SubSortedSet<>(this, fromElement, toElement);
     }
 
     @Override
     public SortedSet<E> headSet(E toElement) {
-        throw new UnsupportedOperationException("headSet");
+        if (toElement == null) {
+            throw new NullPointerException("bound is null");
+        }
+        return new SubSortedSet<>(this, null, toElement);
     }
 
     @Override
     public SortedSet<E> tailSet(E fromElement) {
-        throw new UnsupportedOperationException("tailSet");
+        if (fromElement == null) {
+            throw new NullPointerException("bound is null");
+        }
+        return new SubSortedSet<>(this, fromElement, null);
     }
 
+    @Override
+    public Iterator<E> iterator(E fromElement, E toElement) {
+        return new TreeIterator(fromElement == null ? firstNode() : ceilingNode(fromElement), toElement);
+    }
+
+    @Override
+    public E ceiling(E value) {
+        Node node = ceilingNode(value);
+        return node == null ? null : node.value;
+    }
+
+    @Override
+    public E lower(E value) {
+        Node curr = root;
+        Node lower = null;
+        while (curr != nil) {
+            if (compare(curr.value, value) < 0) {
+                lower = curr;
+                curr = curr.right;
+            } else {
+                curr = curr.left;
+            }
+        }
+        return lower == null ? null : lower.value;
+    }
+
+    /**
+     * Ищет наименьший элемент, больший либо равный value (ceiling = true),
+     * или наибольший элемент, строго меньший value (ceiling = false), спускаясь от корня не глубже maxDepth узлов.
+     * Граница null означает минус или плюс бесконечность соответственно.
+     *
+     * Нужен для чтения без блокировки в {@link ConcurrentRedBlackTree}: пока писатель поворачивает узлы,
+     * ссылки могут быть временно несогласованы, и неограниченный спуск мог бы не закончиться.
+     *
+     * @return найденный элемент или null, если такого нет
+     * @throws ConcurrentModificationException если путь оказался длиннее maxDepth
+     */
+    E search(E value, boolean ceiling, int maxDepth) {
+        Node curr = root;
+        Node found = null;
+        for (int depth = 0; curr != nil; depth++) {
+            if (depth == maxDepth) {
+                throw new ConcurrentModificationException("path is longer than " + maxDepth);
+            }
+            boolean goLeft = ceiling
+                    ? value == null || compare(curr.value, value) >= 0
+                    : value != null && compare(curr.value, value) >= 0;
+            if (goLeft == ceiling) {
+                found = curr;
+            }
+            curr = goLeft ? curr.left : curr.right;
+        }
+        return found == null ? null : found.value;
+    }
+
+    /**
+     * Считает элементы, строго меньшие value, за O(log n)
+     *
+     * @return количество элементов дерева, меньших value
+     */
+    @Override
+    public int rank(E value) {
+        int rank = 0;
+        Node curr = root;
+        while (curr != nil) {
+            if (compare(curr.value, value) < 0) {
+                rank += curr.left.size + 1;
+                curr = curr.right;
+            } else {
+                curr = curr.left;
+            }
+        }
+        return rank;
+    }
+
+    /**
+     * Ищет k-й по возрастанию элемент за O(log n)
+     *
+     * @param k номер элемента, начиная с 0
+     * @throws IndexOutOfBoundsException если k < 0 или k >= size()
+     */
+    @Override
+    public E select(int k) {
+        if (k < 0 || k >= size) {
+            throw new IndexOutOfBoundsException("k = " + k + ", size = " + size);
+        }
+        Node curr = root;
+        while (true) {
+            int leftSize = curr.left.size;
+            if (k < leftSize) {
+                curr = curr.left;
+            } else if (k > leftSize) {
+                k -= leftSize + 1;
+                curr = curr.right;
+            } else {
+                return curr.value;
+            }
+        }
+    }
+
+    /**
+     * Считает элементы из [fromElement, toElement) за O(log n).
+     * Граница, равная null, означает отсутствие границы.
+     *
+     * @throws IllegalArgumentException если fromElement больше toElement
+     */
+    @Override
+    public int countInRange(E fromElement, E toElement) {
+        if (fromElement != null && toElement != null && compare(fromElement, toElement) > 0) {
+            throw new IllegalArgumentException("fromElement > toElement");
+        }
+        int from = fromElement == null ? 0 : rank(fromElement);
+        int to = toElement == null ? size : rank(toElement);
+        return to - from;
+    }
+
+    private Node ceilingNode(E value) {
+        Node curr = root;
+        Node ceiling = null;
+        while (curr != nil) {
+            int cmp = compare(curr.value, value);
+            if (cmp == 0) {
+                return curr;
+            } else if (cmp > 0) {
+                ceiling = curr;
+                curr = curr.left;
+            } else {
+                curr = curr.right;
+            }
+        }
+        return ceiling;
+    }
+
+    /**
+     * Возвращает итератор по возрастанию элементов.
+     * Следующий элемент находится по ссылкам на родителя, без стека и рекурсии.
+     *
+     * @throws ConcurrentModificationException из next(), если дерево изменили не через этот итератор
+     */
     @Override
     public Iterator<E> iterator() {
-        throw new UnsupportedOperationException("iterator");
+        return new TreeIterator(firstNode(), null);
+    }
+
+    /**
+     * Возвращает сплитератор, который делится по поддеревьям: первый раз по корню, дальше по детям
+     * узлов на границе диапазона, поэтому части получаются примерно равными.
+     */
+    @Override
+    public Spliterator<E> spliterator() {
+        return new TreeSpliterator(null, null, 0, -1, 0);
+    }
+
+    /**
+     * @return следующий по возрастанию узел или null, если v последний
+     */
+    private Node next(Node v) {
+        Node next = successor(v);
+        return next == nil ? null : next;
+    }
+
+    private Node firstNode() {
+        return root == nil ? null : min(root);
     }
 
     /**
@@ -388,6 +1035,7 @@ public class RedBlackTree<E extends Comparable<E>> extends AbstractSet<E> implem
     }
 
     private void rotateLeft(Node x) {
+        int size = x.size;
         if (x.parent != nil) {
             if (x == x.parent.left) {
                 x.parent.left = x.right;
@@ -413,9 +1061,12 @@ public class RedBlackTree<E extends Comparable<E>> extends AbstractSet<E> implem
             right.parent = nil;
             root = right;
         }
+        x.parent.size = size;
+        x.size = x.left.size + x.right.size + 1;
     }
 
     private void rotateRight(Node x) {
+        int size = x.size;
         if (x.parent != nil) {
             if (x == x.parent.left) {
                 x.parent.left = x.left;
@@ -441,6 +1092,8 @@ public class RedBlackTree<E extends Comparable<E>> extends AbstractSet<E> implem
             left.parent = nil;
             root = left;
         }
+        x.parent.size = size;
+        x.size = x.left.size + x.right.size + 1;
     }
 
     private int traverseTreeAndCheckBalanced(Node node) throws NotBalancedTreeException {
@@ -468,19 +1121,239 @@ public class RedBlackTree<E extends Comparable<E>> extends AbstractSet<E> implem
         }
     }
 
+    /**
+     * Обходит узлы начиная с first, пока значения меньше toElement (null — до конца дерева)
+     */
+    private class TreeIterator implements Iterator<E> {
+
+        private final E toElement;
+        private Node next;
+        private Node lastReturned;
+        private int expectedModCount = modCount;
+
+        TreeIterator(Node first, E toElement) {
+            this.toElement = toElement;
+            this.next = first;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null && (toElement == null || compare(next.value, toElement) < 0);
+        }
+
+        @Override
+        public E next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException("next");
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            lastReturned = next;
+            next = RedBlackTree.this.next(next);
+            return lastReturned.value;
+        }
+
+        @Override
+        public void remove() {
+            if (lastReturned == null) {
+                throw new IllegalStateException("remove");
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            // узел с двумя потомками получит значение последователя, а вырезан будет сам последователь
+            if (lastReturned.left != nil && lastReturned.right != nil) {
+                next = lastReturned;
+            }
+            deleteNode(lastReturned);
+            expectedModCount = modCount;
+            lastReturned = null;
+        }
+    }
+
+    /**
+     * Обходит узлы от current включительно до fence не включительно (null — до конца дерева).
+     * side равен 0 у сплитератора всего дерева, 1 — у суффикса, от которого отделили префикс, -1 — у префикса.
+     */
+    private class TreeSpliterator implements Spliterator<E> {
+
+        private Node current;
+        private final Node fence;
+        private int side;
+        private int est; //оценка размера, -1 пока сплитератор не инициализирован
+        private int expectedModCount;
+
+        TreeSpliterator(Node origin, Node fence, int side, int est, int expectedModCount) {
+            this.current = origin;
+            this.fence = fence;
+            this.side = side;
+            this.est = est;
+            this.expectedModCount = expectedModCount;
+        }
+
+        private int getEstimate() {
+            if (est < 0) {
+                est = size;
+                expectedModCount = modCount;
+                current = firstNode();
+            }
+            return est;
+        }
+
+        @Override
+        public Spliterator<E> trySplit() {
+            if (est < 0) {
+                getEstimate();
+            }
+            Node e = current;
+            Node f = fence;
+            Node s = (e == null || e == f) ? null
+                    : side == 0 ? root
+                    : side > 0 ? e.right
+                    : f != null ? f.left
+                    : null;
+            if (s != null && s != nil && s != e && s != f && compare(e.value, s.value) < 0) {
+                side = 1;
+                current = s;
+                return new TreeSpliterator(e, s, -1, est >>>= 1, expectedModCount);
+            }
+            return null;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super E> action) {
+            if (action == null) {
+                throw new NullPointerException("action");
+            }
+            if (est < 0) {
+                getEstimate();
+            }
+            Node e = current;
+            if (e == null || e == fence) {
+                return false;
+            }
+            current = next(e);
+            action.accept(e.value);
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super E> action) {
+            if (action == null) {
+                throw new NullPointerException("action");
+            }
+            if (est < 0) {
+                getEstimate();
+            }
+            Node e = current;
+            Node f = fence;
+            if (e != null && e != f) {
+                current = f;
+                do {
+                    action.accept(e.value);
+                    e = next(e);
+                } while (e != null && e != f);
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+            }
+        }
+
+        @Override
+        public long estimateSize() {
+            return getEstimate();
+        }
+
+        @Override
+        public int characteristics() {
+            return (side == 0 ? Spliterator.SIZED : 0)
+                    | Spliterator.DISTINCT | Spliterator.SORTED | Spliterator.ORDERED | Spliterator.NONNULL;
+        }
+
+        @Override
+        public Comparator<? super E> getComparator() {
+            return comparator;
+        }
+    }
+
     enum Color {
         RED, BLACK
     }
 
+    private enum SetOperation {
+        UNION, INTERSECTION, DIFFERENCE
+    }
+
+    /**
+     * Результат разреза поддерева: элементы меньше ключа, узел с ключом (или nil) и элементы больше ключа
+     */
+    private class Split {
+        Node left;
+        int leftHeight;
+        Node found;
+        Node right;
+        int rightHeight;
+
+        Split(Node left, int leftHeight, Node found, Node right, int rightHeight) {
+            this.left = left;
+            this.leftHeight = leftHeight;
+            this.found = found;
+            this.right = right;
+            this.rightHeight = rightHeight;
+        }
+    }
+
+    /**
+     * Поддерево и его чёрная высота
+     */
+    private class Subtree {
+        final Node root;
+        final int height;
+
+        Subtree(Node root, int height) {
+            this.root = root;
+            this.height = height;
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private class SetOperationTask extends RecursiveTask<Subtree> {
+
+        private final SetOperation operation;
+        private final Node t1;
+        private final int height1;
+        private final Node t2;
+        private final int height2;
+
+        SetOperationTask(SetOperation operation, Node t1, int height1, Node t2, int height2) {
+            this.operation = operation;
+            this.t1 = t1;
+            this.height1 = height1;
+            this.t2 = t2;
+            this.height2 = height2;
+        }
+
+        @Override
+        protected Subtree compute() {
+            return apply(operation, t1, height1, t2, height2);
+        }
+    }
+
     final class Node {
         E value;
         Node left = nil;
         Node right = nil;
         Node parent = nil;
         Color color = Color.BLACK;
+        int size; //количество узлов в поддереве, у nil равно 0
 
         Node(E value) {
             this.value = value;
+            this.size = value == null ? 0 : 1;
         }
 
         @Override
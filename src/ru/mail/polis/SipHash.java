@@ -0,0 +1,122 @@
+package ru.mail.polis;
+
+import java.security.SecureRandom;
+
+/**
+ * Ключевая хеш-функция SipHash-2-4. Не зная 128-битного ключа, нельзя подобрать значения с равными хешами,
+ * поэтому таблицы с ключом, выбранным случайно при создании, устойчивы к подбору коллизий.
+ *
+ * Данные накапливаются побайтно методами put*, строка пишется длиной и символами UTF-16 little-endian,
+ * поэтому разные последовательности полей не склеиваются в одинаковый поток байт.
+ */
+public final class SipHash {
+
+    private static final SecureRandom KEY_SOURCE = new SecureRandom();
+
+    private long v0;
+    private long v1;
+    private long v2;
+    private long v3;
+    private long tail; //неполное слово из последних байт
+    private int length; //количество байт
+
+    public SipHash(long k0, long k1) {
+        v0 = k0 ^ 0x736f6d6570736575L;
+        v1 = k1 ^ 0x646f72616e646f6dL;
+        v2 = k0 ^ 0x6c7967656e657261L;
+        v3 = k1 ^ 0x7465646279746573L;
+    }
+
+    /**
+     * @return случайная половина ключа
+     */
+    public static long randomKey() {
+        return KEY_SOURCE.nextLong();
+    }
+
+    public SipHash putByte(int b) {
+        put(b & 0xffL, Byte.BYTES);
+        return this;
+    }
+
+    public SipHash putInt(int value) {
+        put(value & 0xffffffffL, Integer.BYTES);
+        return this;
+    }
+
+    public SipHash putLong(long value) {
+        put(value, Long.BYTES);
+        return this;
+    }
+
+    /**
+     * Пишет длину строки и её символы; null пишется длиной -1
+     */
+    public SipHash putString(String value) {
+        if (value == null) {
+            return putInt(-1);
+        }
+        putInt(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            put(value.charAt(i), Character.BYTES);
+        }
+        return this;
+    }
+
+    /**
+     * @return хеш накопленных байт; после вызова объект использовать нельзя
+     */
+    public long finish() {
+        compress(((long) length << 56) | tail);
+        v2 ^= 0xff;
+        for (int i = 0; i < 4; i++) {
+            round();
+        }
+        return v0 ^ v1 ^ v2 ^ v3;
+    }
+
+    /**
+     * @return хеш строки, свёрнутый до int
+     */
+    public static int hash(long k0, long k1, String value) {
+        long hash = new SipHash(k0, k1).putString(value).finish();
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+    /**
+     * Дописывает младшие bytes байт value к неполному слову и сжимает слово, когда оно заполнится
+     */
+    private void put(long value, int bytes) {
+        int used = length & 7;
+        tail |= value << (used << 3);
+        length += bytes;
+        if (used + bytes >= Long.BYTES) {
+            compress(tail);
+            tail = used == 0 ? 0 : value >>> ((Long.BYTES - used) << 3);
+        }
+    }
+
+    private void compress(long m) {
+        v3 ^= m;
+        round();
+        round();
+        v0 ^= m;
+    }
+
+    private void round() {
+        v0 += v1;
+        v1 = Long.rotateLeft(v1, 13);
+        v1 ^= v0;
+        v0 = Long.rotateLeft(v0, 32);
+        v2 += v3;
+        v3 = Long.rotateLeft(v3, 16);
+        v3 ^= v2;
+        v0 += v3;
+        v3 = Long.rotateLeft(v3, 21);
+        v3 ^= v0;
+        v2 += v1;
+        v1 = Long.rotateLeft(v1, 17);
+        v1 ^= v2;
+        v2 = Long.rotateLeft(v2, 32);
+    }
+}
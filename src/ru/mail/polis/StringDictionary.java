@@ -0,0 +1,117 @@
+package ru.mail.polis;
+
+import java.util.Arrays;
+
+/**
+ * Словарь строк: каждая различная строка получает код 0, 1, 2, ... в порядке первого появления.
+ * Строки лежат в массиве по коду, а поиск кода идёт по хеш-таблице с открытой адресацией и линейным
+ * пробированием, в ячейках которой хранятся коды + 1 (0 — свободная ячейка).
+ * Строки из словаря не удаляются, поэтому удалённых ячеек нет.
+ */
+public class StringDictionary {
+
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int NO_CODE = -1;
+
+    private String[] values = new String[INITIAL_CAPACITY];
+    private int[] hashes = new int[INITIAL_CAPACITY]; //хеши строк по коду, чтобы рехеш не считал их заново
+    private int[] slots = new int[INITIAL_CAPACITY * 2];
+    private int size;
+
+    public StringDictionary() {
+        /* empty */
+    }
+
+    /**
+     * Копия словаря с теми же кодами: дальнейшие добавления в копию не видны в исходном словаре
+     */
+    public StringDictionary(StringDictionary other) {
+        this.values = other.values.clone();
+        this.hashes = other.hashes.clone();
+        this.slots = other.slots.clone();
+        this.size = other.size;
+    }
+
+    /**
+     * @return код строки; если строки в словаре нет, она добавляется с новым кодом
+     * @throws NullPointerException если value равно null
+     */
+    public int encode(String value) {
+        int hash = spread(value.hashCode());
+        int mask = slots.length - 1;
+        for (int idx = hash & mask; ; idx = (idx + 1) & mask) {
+            int code = slots[idx] - 1;
+            if (code == NO_CODE) {
+                return insert(value, hash, idx);
+            }
+            if (hashes[code] == hash && values[code].equals(value)) {
+                return code;
+            }
+        }
+    }
+
+    /**
+     * @return код строки или -1, если строки в словаре нет
+     */
+    public int code(String value) {
+        if (value == null) {
+            return NO_CODE;
+        }
+        int hash = spread(value.hashCode());
+        int mask = slots.length - 1;
+        for (int idx = hash & mask; ; idx = (idx + 1) & mask) {
+            int code = slots[idx] - 1;
+            if (code == NO_CODE || hashes[code] == hash && values[code].equals(value)) {
+                return code;
+            }
+        }
+    }
+
+    /**
+     * @throws IndexOutOfBoundsException если строки с таким кодом нет
+     */
+    public String decode(int code) {
+        if (code < 0 || code >= size) {
+            throw new IndexOutOfBoundsException("code = " + code + ", size = " + size);
+        }
+        return values[code];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private int insert(String value, int hash, int idx) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+            hashes = Arrays.copyOf(hashes, size * 2);
+        }
+        values[size] = value;
+        hashes[size] = hash;
+        slots[idx] = ++size;
+        if (size * 2 > slots.length) {
+            rehash();
+        }
+        return size - 1;
+    }
+
+    /**
+     * Удваивает таблицу, чтобы она оставалась заполненной не больше чем наполовину
+     */
+    private void rehash() {
+        int[] slots = new int[this.slots.length * 2];
+        int mask = slots.length - 1;
+        for (int code = 0; code < size; code++) {
+            int idx = hashes[code] & mask;
+            while (slots[idx] != 0) {
+                idx = (idx + 1) & mask;
+            }
+            slots[idx] = code + 1;
+        }
+        this.slots = slots;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
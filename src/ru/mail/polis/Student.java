@@ -6,9 +6,17 @@ import java.time.LocalDate;
  * Created by Nechaev Mikhail
  * Since 13/12/2017.
  */
-public class Student extends CheckedOpenHashTableEntity {
+public class Student extends CheckedOpenHashTableEntity implements KeyedHashable {
 
     private static int counter = 0;
+    //Общий словарь имён и фамилий: равные строки получают один код и один объект String на все записи.
+    //Словарь ограничен MAX_NAMES строками и заменяется копией при добавлении, поэтому чтение идёт без блокировки
+    private static final int MAX_NAMES = 1 << 12;
+    private static final Object NAMES_LOCK = new Object();
+    private static volatile StringDictionary names = new StringDictionary();
+    //-Dru.mail.polis.nameDictionary=false отключает словарь: у каждой записи свои строки, как до его появления.
+    //Нужно бенчмарку, чтобы сравнить память и скорость equals со словарём и без него
+    private static final boolean NAME_DICTIONARY = !"false".equals(System.getProperty("ru.mail.polis.nameDictionary"));
 
     //NotNullable поля
     private long id; //Уникальный идентификатор студента
@@ -22,15 +30,24 @@ public class Student extends CheckedOpenHashTableEntity {
     private String photoReference; //Ссылка на фотографию студента
     private String email;
     private String mobile; //Номер телефона
+    //Коды firstName и lastName в словаре names или -1, если словарь заполнен: тогда equals сравнивает строки
+    private int firstNameCode;
+    private int lastNameCode;
+    //Кеш базовых хешей, считается только по NotNullable полям: изменяемые поля в хеш не входят
+    private int baseHash;
+    private int stepHash;
 
     public Student(String firstName, String lastName, Gender gender, LocalDate birthday, int groupId, int yearOfAdmission) {
         this.id = counter++;
-        this.firstName = firstName;
-        this.lastName = lastName;
+        this.firstNameCode = encode(firstName);
+        this.lastNameCode = encode(lastName);
+        this.firstName = canonical(firstName, firstNameCode);
+        this.lastName = canonical(lastName, lastNameCode);
         this.gender = gender;
         this.birthday = birthday;
         this.groupId = groupId;
         this.yearOfAdmission = yearOfAdmission;
+        cacheHashes();
     }
 
     public Student(String firstName, String lastName, Gender gender, LocalDate birthday, int groupId,
@@ -41,16 +58,119 @@ public class Student extends CheckedOpenHashTableEntity {
         this.mobile = mobile;
     }
 
+    /**
+     * Восстанавливает студента с известным идентификатором, например прочитанного из файла.
+     * Счётчик сдвигается за id, чтобы новые студенты не получили тот же идентификатор
+     */
+    public Student(long id, String firstName, String lastName, Gender gender, LocalDate birthday, int groupId,
+                   int yearOfAdmission, String photoReference, String email, String mobile) {
+        this(firstName, lastName, gender, birthday, groupId, yearOfAdmission, photoReference, email, mobile);
+        this.id = id;
+        if (id >= counter) {
+            counter = (int) (id + 1);
+        }
+        cacheHashes();
+    }
+
+    /**
+     * Для размера таблицы, равного степени двойки, индекс берётся маской, а шаг нечётный,
+     * поэтому обход полный и деления нет. Для остальных размеров — прежнее двойное хеширование по модулю,
+     * посчитанное в long, чтобы переполнение не давало отрицательных индексов
+     */
     @Override
     public int hashCode(int tableSize, int probId) throws IllegalArgumentException {
-        if (tableSize < 0 || probId < 0) throw new IllegalArgumentException();
+        if (tableSize <= 0 || probId < 0) throw new IllegalArgumentException();
+
+        int hash = spread(baseHash);
+        if ((tableSize & (tableSize - 1)) == 0) {
+            int step = (Integer.rotateLeft(hash, 16) ^ stepHash) | 1;
+            return (hash + probId * step) & (tableSize - 1);
+        }
+        return (int) Math.floorMod(hash + (long) probId * h2(stepHash, tableSize), (long) tableSize);
+    }
+
+    @Override
+    public int baseHash() {
+        return baseHash;
+    }
+
+    @Override
+    public int stepHash() {
+        return stepHash;
+    }
 
-        return (Math.abs(hashCode(31) +
-                probId * h2(hashCode2(57), tableSize)) % tableSize);
+    @Override
+    public int hashCode() {
+        return baseHash;
+    }
+
+    /**
+     * Ключевой хеш по тем же полям, что и {@link #hashCode(int)}
+     */
+    @Override
+    public int keyedHash(long k0, long k1) {
+        long hash = new SipHash(k0, k1)
+                .putLong(id)
+                .putString(firstName)
+                .putString(lastName)
+                .putInt(gender.ordinal())
+                .putLong(birthday.toEpochDay())
+                .putInt(groupId)
+                .putInt(yearOfAdmission)
+                .finish();
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+    /**
+     * Ищет код в текущей копии словаря без блокировки. Новая строка добавляется в копию под блокировкой,
+     * пока в словаре меньше {@link #MAX_NAMES} строк, иначе остаётся без кода.
+     * Строки из словаря не удаляются, а заполненный словарь больше не растёт, поэтому у равных строк
+     * всегда равные коды: либо один и тот же код, либо -1 у обеих. Без словаря код всегда -1
+     *
+     * @return код строки или -1
+     */
+    private static int encode(String name) {
+        if (!NAME_DICTIONARY) {
+            return -1;
+        }
+        StringDictionary snapshot = names;
+        int code = snapshot.code(name);
+        if (code >= 0 || snapshot.size() >= MAX_NAMES) {
+            return code;
+        }
+        synchronized (NAMES_LOCK) {
+            snapshot = names;
+            code = snapshot.code(name);
+            if (code < 0 && snapshot.size() < MAX_NAMES) {
+                StringDictionary copy = new StringDictionary(snapshot);
+                code = copy.encode(name);
+                names = copy;
+            }
+            return code;
+        }
+    }
+
+    /**
+     * @return строка из словаря, общая для всех студентов с таким кодом, или сама name, если кода нет
+     */
+    private static String canonical(String name, int code) {
+        return code < 0 ? name : names.decode(code);
+    }
+
+    private void cacheHashes() {
+        baseHash = hashCode(31);
+        stepHash = hashCode2(57);
     }
 
     private int h2(int k, int tableSize) {
-        return k % (tableSize - 1) + 1;
+        return Math.floorMod(k, tableSize - 1) + 1;
+    }
+
+    /**
+     * Подмешивает старшие биты в младшие, по которым маска выбирает ячейку
+     */
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
     }
 
 
@@ -113,11 +233,15 @@ public class Student extends CheckedOpenHashTableEntity {
 
         Student student = (Student) o;
 
+        //Сначала дешёвые поля и закешированный хеш, строки контактов — в последнюю очередь
         if (id != student.id) return false;
+        if (baseHash != student.baseHash) return false;
         if (groupId != student.groupId) return false;
         if (yearOfAdmission != student.yearOfAdmission) return false;
-        if (!firstName.equals(student.firstName)) return false;
-        if (!lastName.equals(student.lastName)) return false;
+        if (firstNameCode != student.firstNameCode) return false;
+        if (lastNameCode != student.lastNameCode) return false;
+        if (firstNameCode < 0 && !firstName.equals(student.firstName)) return false;
+        if (lastNameCode < 0 && !lastName.equals(student.lastName)) return false;
         if (gender != student.gender) return false;
         if (!birthday.equals(student.birthday)) return false;
         if (photoReference != null ? !photoReference.equals(student.photoReference) : student.photoReference != null)
@@ -126,17 +250,21 @@ public class Student extends CheckedOpenHashTableEntity {
         return mobile != null ? mobile.equals(student.mobile) : student.mobile == null;
     }
 
+    /**
+     * Хеш по неизменяемым полям: photoReference, email и mobile меняются сеттерами и в хеш не входят,
+     * поэтому изменение контактов не переносит студента в другую ячейку хеш-таблицы.
+     * Пол смешивается порядковым номером, а не identity-хешем enum, чтобы хеш не менялся между запусками.
+     * По той же причине имена смешиваются хешами строк, а не кодами словаря: коды зависят от порядка
+     * появления имён. Хеш строки String кеширует, а строки из словаря общие, поэтому он считается один раз
+     */
     public int hashCode(int k) {
         int result = (int) (id ^ (id >>> k + 1));
         result = k * result + firstName.hashCode();
         result = k * result + lastName.hashCode();
-        result = k * result + gender.hashCode();
+        result = k * result + gender.ordinal();
         result = k * result + birthday.hashCode();
         result = k * result + groupId;
         result = k * result + yearOfAdmission;
-        result = k * result + (photoReference != null ? photoReference.hashCode() : 0);
-        result = k * result + (email != null ? email.hashCode() : 0);
-        result = k * result + (mobile != null ? mobile.hashCode() : 0);
         return result;
     }
 
@@ -144,7 +272,7 @@ public class Student extends CheckedOpenHashTableEntity {
         int result = (int) (id >>> k + 1);
 //        result = k * result + firstName.hashCode();
 //        result = k * result + lastName.hashCode();
-//        result = k * result + gender.hashCode();
+//        result = k * result + gender.ordinal();
 //        result = k * result + birthday.hashCode();
 //        result = k * result + groupId;
 //        result = k * result + yearOfAdmission;
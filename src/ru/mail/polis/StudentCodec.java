@@ -0,0 +1,95 @@
+package ru.mail.polis;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+
+/**
+ * Запись студента фиксированной длины: id, пол, день рождения, группа, год поступления
+ * и строковые поля. Строка хранится как длина (-1 для null) и не больше заданного числа символов UTF-16,
+ * хвост записи остаётся нулевым, поэтому кодирование каноничное.
+ */
+public class StudentCodec implements RecordCodec<Student> {
+
+    private static final int MAX_NAME_LENGTH = 32;
+    private static final int MAX_PHOTO_REFERENCE_LENGTH = 64;
+    private static final int MAX_EMAIL_LENGTH = 64;
+    private static final int MAX_MOBILE_LENGTH = 16;
+
+    private static final int RECORD_SIZE = Long.BYTES + Byte.BYTES + Long.BYTES + Integer.BYTES + Integer.BYTES
+            + stringSize(MAX_NAME_LENGTH) * 2
+            + stringSize(MAX_PHOTO_REFERENCE_LENGTH)
+            + stringSize(MAX_EMAIL_LENGTH)
+            + stringSize(MAX_MOBILE_LENGTH);
+
+    @Override
+    public int recordSize() {
+        return RECORD_SIZE;
+    }
+
+    @Override
+    public void encode(Student value, ByteBuffer buffer) throws IllegalArgumentException {
+        buffer.putLong(value.getId());
+        buffer.put((byte) value.getGender().ordinal());
+        buffer.putLong(value.getBirthday().toEpochDay());
+        buffer.putInt(value.getGroupId());
+        buffer.putInt(value.getYearOfAdmission());
+        putString(buffer, value.getFirstName(), MAX_NAME_LENGTH);
+        putString(buffer, value.getLastName(), MAX_NAME_LENGTH);
+        putString(buffer, value.getPhotoReference(), MAX_PHOTO_REFERENCE_LENGTH);
+        putString(buffer, value.getEmail(), MAX_EMAIL_LENGTH);
+        putString(buffer, value.getMobile(), MAX_MOBILE_LENGTH);
+    }
+
+    @Override
+    public Student decode(ByteBuffer buffer) {
+        long id = buffer.getLong();
+        Student.Gender gender = Student.Gender.values()[buffer.get()];
+        LocalDate birthday = LocalDate.ofEpochDay(buffer.getLong());
+        int groupId = buffer.getInt();
+        int yearOfAdmission = buffer.getInt();
+        String firstName = getString(buffer, MAX_NAME_LENGTH);
+        String lastName = getString(buffer, MAX_NAME_LENGTH);
+        String photoReference = getString(buffer, MAX_PHOTO_REFERENCE_LENGTH);
+        String email = getString(buffer, MAX_EMAIL_LENGTH);
+        String mobile = getString(buffer, MAX_MOBILE_LENGTH);
+        return new Student(id, firstName, lastName, gender, birthday, groupId, yearOfAdmission,
+                photoReference, email, mobile);
+    }
+
+    private static int stringSize(int maxLength) {
+        return Short.BYTES + Character.BYTES * maxLength;
+    }
+
+    private static void putString(ByteBuffer buffer, String value, int maxLength) {
+        int end = buffer.position() + stringSize(maxLength);
+        if (value == null) {
+            buffer.putShort((short) -1);
+        } else {
+            if (value.length() > maxLength) {
+                throw new IllegalArgumentException("String is longer than " + maxLength + ": " + value);
+            }
+            buffer.putShort((short) value.length());
+            for (int i = 0; i < value.length(); i++) {
+                buffer.putChar(value.charAt(i));
+            }
+        }
+        while (buffer.position() < end) {
+            buffer.put((byte) 0);
+        }
+    }
+
+    private static String getString(ByteBuffer buffer, int maxLength) {
+        int end = buffer.position() + stringSize(maxLength);
+        int length = buffer.getShort();
+        String value = null;
+        if (length >= 0) {
+            char[] chars = new char[length];
+            for (int i = 0; i < length; i++) {
+                chars[i] = buffer.getChar();
+            }
+            value = new String(chars);
+        }
+        buffer.position(end);
+        return value;
+    }
+}
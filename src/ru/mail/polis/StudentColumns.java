@@ -0,0 +1,287 @@
+package ru.mail.polis;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Колоночное хранилище студентов: каждое поле лежит в своём массиве, строка — это индекс в массивах.
+ *
+ * id, groupId, yearOfAdmission, пол (порядковый номер) и день рождения (номер дня от эпохи) хранятся
+ * примитивными массивами, имя и фамилия — кодами {@link StringDictionary}. Поэтому фильтры и агрегаты
+ * читают подряд один-два массива без разыменования объектов, а циклы фильтров без ветвлений и
+ * векторизуются JIT. Контакты нужны только для сборки {@link Student} и лежат отдельными массивами строк.
+ *
+ * Результат фильтра — выборка: битовая карта строк в long[], бит i слова i / 64 означает строку i.
+ * Выборки пересекаются {@link #and(long[], long[])} и передаются в агрегаты.
+ * Хранилище только пополняется: выборка, полученная раньше, не видит строк, добавленных после неё.
+ * Недостающие в короткой выборке слова считаются нулевыми, поэтому её можно пересекать с новыми
+ * и передавать в агрегаты.
+ */
+public class StudentColumns {
+
+    private static final int INITIAL_CAPACITY = 64;
+    private static final Student.Gender[] GENDERS = Student.Gender.values();
+
+    private final StringDictionary firstNameDictionary = new StringDictionary();
+    private final StringDictionary lastNameDictionary = new StringDictionary();
+
+    private long[] ids = new long[INITIAL_CAPACITY];
+    private int[] groupIds = new int[INITIAL_CAPACITY];
+    private int[] yearsOfAdmission = new int[INITIAL_CAPACITY];
+    private byte[] genders = new byte[INITIAL_CAPACITY];
+    private int[] birthdays = new int[INITIAL_CAPACITY];
+    private int[] firstNames = new int[INITIAL_CAPACITY];
+    private int[] lastNames = new int[INITIAL_CAPACITY];
+    private String[] photoReferences = new String[INITIAL_CAPACITY];
+    private String[] emails = new String[INITIAL_CAPACITY];
+    private String[] mobiles = new String[INITIAL_CAPACITY];
+    private int size;
+    private int minGroupId = Integer.MAX_VALUE;
+    private int maxGroupId = Integer.MIN_VALUE;
+
+    public StudentColumns() {
+        /* empty */
+    }
+
+    public StudentColumns(Iterable<Student> students) {
+        for (Student student : students) {
+            add(student);
+        }
+    }
+
+    /**
+     * Раскладывает студента по колонкам
+     *
+     * @return номер строки
+     */
+    public int add(Student student) {
+        if (size == ids.length) {
+            grow();
+        }
+        int row = size;
+        ids[row] = student.getId();
+        groupIds[row] = student.getGroupId();
+        yearsOfAdmission[row] = student.getYearOfAdmission();
+        genders[row] = (byte) student.getGender().ordinal();
+        birthdays[row] = Math.toIntExact(student.getBirthday().toEpochDay());
+        firstNames[row] = firstNameDictionary.encode(student.getFirstName());
+        lastNames[row] = lastNameDictionary.encode(student.getLastName());
+        photoReferences[row] = student.getPhotoReference();
+        emails[row] = student.getEmail();
+        mobiles[row] = student.getMobile();
+        minGroupId = Math.min(minGroupId, student.getGroupId());
+        maxGroupId = Math.max(maxGroupId, student.getGroupId());
+        size++;
+        return row;
+    }
+
+    /**
+     * Собирает студента из строки. Новый объект получает тот же id, поэтому равен исходному
+     */
+    public Student get(int row) {
+        checkRow(row);
+        return new Student(ids[row], firstNameDictionary.decode(firstNames[row]),
+                lastNameDictionary.decode(lastNames[row]), GENDERS[genders[row]], LocalDate.ofEpochDay(birthdays[row]),
+                groupIds[row], yearsOfAdmission[row], photoReferences[row], emails[row], mobiles[row]);
+    }
+
+    /**
+     * @return студенты из строк выборки по возрастанию номера строки
+     */
+    public List<Student> toStudents(long[] selection) {
+        List<Student> students = new ArrayList<>(count(selection));
+        for (int i = 0; i < selection.length; i++) {
+            for (long word = selection[i]; word != 0; word &= word - 1) {
+                students.add(get(i << 6 | Long.numberOfTrailingZeros(word)));
+            }
+        }
+        return students;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getId(int row) {
+        checkRow(row);
+        return ids[row];
+    }
+
+    /**
+     * @return выборка из всех строк
+     */
+    public long[] selectAll() {
+        long[] selection = new long[words()];
+        Arrays.fill(selection, -1L);
+        if ((size & 63) != 0) {
+            selection[selection.length - 1] = (1L << size) - 1;
+        }
+        return selection;
+    }
+
+    public long[] selectGroupId(int groupId) {
+        return selectRange(groupIds, groupId, groupId);
+    }
+
+    /**
+     * @return строки с годом поступления в [from, to]
+     */
+    public long[] selectYearOfAdmission(int from, int to) {
+        return selectRange(yearsOfAdmission, from, to);
+    }
+
+    /**
+     * @return строки с днём рождения в [from, to]
+     */
+    public long[] selectBornBetween(LocalDate from, LocalDate to) {
+        return selectRange(birthdays, from.toEpochDay(), to.toEpochDay());
+    }
+
+    public long[] selectGender(Student.Gender gender) {
+        long[] selection = new long[words()];
+        long ordinal = gender.ordinal();
+        for (int i = 0; i < size; i++) {
+            long value = genders[i];
+            selection[i >>> 6] |= (~((value - ordinal) | (ordinal - value)) >>> 63) << i;
+        }
+        return selection;
+    }
+
+    /**
+     * Имя переводится в код словаря один раз, дальше сравниваются только int
+     */
+    public long[] selectFirstName(String firstName) {
+        int code = firstNameDictionary.code(firstName);
+        return code < 0 ? new long[words()] : selectRange(firstNames, code, code);
+    }
+
+    public long[] selectLastName(String lastName) {
+        int code = lastNameDictionary.code(lastName);
+        return code < 0 ? new long[words()] : selectRange(lastNames, code, code);
+    }
+
+    /**
+     * Пересекает выборки, записывая результат в target. Слова target за концом selection обнуляются
+     *
+     * @return target
+     */
+    public static long[] and(long[] target, long[] selection) {
+        int common = Math.min(target.length, selection.length);
+        for (int i = 0; i < common; i++) {
+            target[i] &= selection[i];
+        }
+        Arrays.fill(target, common, target.length, 0L);
+        return target;
+    }
+
+    /**
+     * @return количество строк в выборке
+     */
+    public static int count(long[] selection) {
+        int count = 0;
+        for (long word : selection) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * @return количество студентов выборки каждого пола по порядковому номеру {@link Student.Gender}
+     */
+    public int[] countByGender(long[] selection) {
+        int rows = rows(selection);
+        int[] counts = new int[GENDERS.length];
+        for (int i = 0; i < rows; i++) {
+            counts[genders[i]] += (int) (selection[i >>> 6] >>> i) & 1;
+        }
+        return counts;
+    }
+
+    /**
+     * @return количество студентов выборки в каждой группе: индекс — groupId - {@link #getMinGroupId()}
+     */
+    public int[] countByGroupId(long[] selection) {
+        int rows = rows(selection);
+        if (size == 0) {
+            return new int[0];
+        }
+        int[] counts = new int[maxGroupId - minGroupId + 1];
+        for (int i = 0; i < rows; i++) {
+            counts[groupIds[i] - minGroupId] += (int) (selection[i >>> 6] >>> i) & 1;
+        }
+        return counts;
+    }
+
+    /**
+     * @return количество студентов выборки с каждым именем: индекс — код имени, см. {@link #getFirstName(int)}
+     */
+    public int[] countByFirstName(long[] selection) {
+        int rows = rows(selection);
+        int[] counts = new int[firstNameDictionary.size()];
+        for (int i = 0; i < rows; i++) {
+            counts[firstNames[i]] += (int) (selection[i >>> 6] >>> i) & 1;
+        }
+        return counts;
+    }
+
+    /**
+     * @return наименьший groupId в хранилище; для пустого хранилища — Integer.MAX_VALUE
+     */
+    public int getMinGroupId() {
+        return minGroupId;
+    }
+
+    /**
+     * @return имя по коду из {@link #countByFirstName(long[])}
+     */
+    public String getFirstName(int code) {
+        return firstNameDictionary.decode(code);
+    }
+
+    /**
+     * Отбирает строки со значением колонки в [from, to] без ветвлений: значение вне диапазона даёт
+     * отрицательную разность с одной из границ, знаковый бит которой и гасит бит строки.
+     * Разности считаются в long, поэтому не переполняются
+     */
+    private long[] selectRange(int[] column, long from, long to) {
+        long[] selection = new long[words()];
+        for (int i = 0; i < size; i++) {
+            long value = column[i];
+            selection[i >>> 6] |= (~((value - from) | (to - value)) >>> 63) << i;
+        }
+        return selection;
+    }
+
+    private int words() {
+        return (size + 63) >>> 6;
+    }
+
+    private void grow() {
+        int capacity = ids.length * 2;
+        ids = Arrays.copyOf(ids, capacity);
+        groupIds = Arrays.copyOf(groupIds, capacity);
+        yearsOfAdmission = Arrays.copyOf(yearsOfAdmission, capacity);
+        genders = Arrays.copyOf(genders, capacity);
+        birthdays = Arrays.copyOf(birthdays, capacity);
+        firstNames = Arrays.copyOf(firstNames, capacity);
+        lastNames = Arrays.copyOf(lastNames, capacity);
+        photoReferences = Arrays.copyOf(photoReferences, capacity);
+        emails = Arrays.copyOf(emails, capacity);
+        mobiles = Arrays.copyOf(mobiles, capacity);
+    }
+
+    private void checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("row = " + row + ", size = " + size);
+        }
+    }
+
+    /**
+     * @return число строк, которые покрывает выборка: она может быть взята до добавления последних строк
+     */
+    private int rows(long[] selection) {
+        return (int) Math.min(size, (long) selection.length << 6);
+    }
+}
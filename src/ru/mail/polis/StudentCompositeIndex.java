@@ -0,0 +1,177 @@
+package ru.mail.polis;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Упорядоченный индекс студентов по составному ключу (год поступления, день рождения, id)
+ * поверх {@link RedBlackTree}.
+ *
+ * Запрос «поступили в годы [yearFrom, yearTo] и родились в [bornFrom, bornTo]» выполняется
+ * пропускающим обходом: для каждого года, который реально есть в индексе, — один спуск к
+ * (год, bornFrom) и обход подряд до конца диапазона дат. Годы без студентов пропускаются:
+ * следующий спуск идёт сразу к году первого ключа за диапазоном.
+ *
+ * Каждый запрос возвращает {@link Result} с числом спусков и посещённых узлов: узлы на путях спусков
+ * считаются по сравнениям ключей, к ним прибавляются ключи, пройденные обходом.
+ * Счётчик общий для индекса, поэтому индекс не потокобезопасен.
+ */
+public class StudentCompositeIndex {
+
+    private int comparisons;
+    private final RedBlackTree<Key> tree = new RedBlackTree<>(this::compare);
+
+    /**
+     * Результат запроса и его стоимость
+     */
+    public static final class Result {
+
+        private final List<Student> students;
+        private final int seeks;
+        private final int visitedNodes;
+
+        Result(List<Student> students, int seeks, int visitedNodes) {
+            this.students = Collections.unmodifiableList(students);
+            this.seeks = seeks;
+            this.visitedNodes = visitedNodes;
+        }
+
+        /**
+         * @return найденные студенты по возрастанию ключа (год поступления, день рождения, id)
+         */
+        public List<Student> getStudents() {
+            return students;
+        }
+
+        /**
+         * @return число спусков от корня
+         */
+        public int getSeeks() {
+            return seeks;
+        }
+
+        /**
+         * @return число узлов, посещённых спусками и обходом
+         */
+        public int getVisitedNodes() {
+            return visitedNodes;
+        }
+    }
+
+    public boolean add(Student student) {
+        return tree.add(new Key(student));
+    }
+
+    public boolean remove(Student student) {
+        return tree.remove(new Key(student));
+    }
+
+    public int size() {
+        return tree.size();
+    }
+
+    /**
+     * @return количество студентов, поступивших в year и родившихся в [bornFrom, bornTo], за O(log n)
+     */
+    public int count(int year, LocalDate bornFrom, LocalDate bornTo) {
+        checkRange(bornFrom, bornTo);
+        return tree.countInRange(Key.bound(year, bornFrom.toEpochDay()), Key.bound(year, bornTo.toEpochDay() + 1));
+    }
+
+    /**
+     * Студенты, поступившие в year и родившиеся в [bornFrom, bornTo]: один спуск и обход
+     */
+    public Result find(int year, LocalDate bornFrom, LocalDate bornTo) {
+        return find(year, year, bornFrom, bornTo);
+    }
+
+    /**
+     * Студенты, поступившие в [yearFrom, yearTo] и родившиеся в [bornFrom, bornTo]
+     *
+     * @throws IllegalArgumentException если yearFrom больше yearTo или bornFrom позже bornTo
+     */
+    public Result find(int yearFrom, int yearTo, LocalDate bornFrom, LocalDate bornTo) {
+        if (yearFrom > yearTo) {
+            throw new IllegalArgumentException("yearFrom > yearTo");
+        }
+        checkRange(bornFrom, bornTo);
+        long fromDay = bornFrom.toEpochDay();
+        long toDay = bornTo.toEpochDay();
+        List<Student> students = new ArrayList<>();
+        int seeks = 0;
+        int scanned = 0;
+        comparisons = 0;
+        long year = yearFrom;
+        while (year <= yearTo) {
+            Iterator<Key> iterator = tree.iterator(Key.bound(year, fromDay), null);
+            seeks++;
+            Key next = null;
+            while (iterator.hasNext()) {
+                Key key = iterator.next();
+                scanned++;
+                if (key.year != year || key.epochDay > toDay) {
+                    next = key;
+                    break;
+                }
+                students.add(key.student);
+            }
+            if (next == null) {
+                break;
+            }
+            year = next.year == year ? year + 1 : next.year;
+        }
+        return new Result(students, seeks, comparisons + scanned);
+    }
+
+    private int compare(Key k1, Key k2) {
+        comparisons++;
+        return k1.compareTo(k2);
+    }
+
+    private static void checkRange(LocalDate bornFrom, LocalDate bornTo) {
+        if (bornFrom == null || bornTo == null) {
+            throw new NullPointerException("bound is null");
+        }
+        if (bornFrom.isAfter(bornTo)) {
+            throw new IllegalArgumentException("bornFrom > bornTo");
+        }
+    }
+
+    private static final class Key implements Comparable<Key> {
+
+        private final int year;
+        private final long epochDay;
+        private final long id;
+        private final Student student;
+
+        Key(Student student) {
+            this(student.getYearOfAdmission(), student.getBirthday().toEpochDay(), student.getId(), student);
+        }
+
+        private Key(int year, long epochDay, long id, Student student) {
+            this.year = year;
+            this.epochDay = epochDay;
+            this.id = id;
+            this.student = student;
+        }
+
+        /**
+         * @return ключ меньше всех ключей с такими годом и днём рождения
+         */
+        static Key bound(long year, long epochDay) {
+            return new Key((int) year, epochDay, Long.MIN_VALUE, null);
+        }
+
+        @Override
+        public int compareTo(Key o) {
+            int cmp = Integer.compare(year, o.year);
+            if (cmp == 0) {
+                cmp = Long.compare(epochDay, o.epochDay);
+            }
+            return cmp != 0 ? cmp : Long.compare(id, o.id);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package ru.mail.polis;
+
+import java.time.LocalDate;
+
+/**
+ * Условия поиска студентов в {@link StudentRepository}. Заданные условия объединяются по И,
+ * незаданные не ограничивают выборку
+ */
+public class StudentQuery {
+
+    Integer groupId;
+    Integer yearOfAdmission;
+    String email;
+    LocalDate bornFrom;
+    LocalDate bornTo;
+
+    public StudentQuery groupId(int groupId) {
+        this.groupId = groupId;
+        return this;
+    }
+
+    public StudentQuery yearOfAdmission(int yearOfAdmission) {
+        this.yearOfAdmission = yearOfAdmission;
+        return this;
+    }
+
+    public StudentQuery email(String email) {
+        if (email == null) {
+            throw new NullPointerException("email is null");
+        }
+        this.email = email;
+        return this;
+    }
+
+    /**
+     * @param from первый день рождения диапазона, включительно
+     * @param to последний день рождения диапазона, включительно
+     */
+    public StudentQuery bornBetween(LocalDate from, LocalDate to) {
+        if (from == null || to == null) {
+            throw new NullPointerException("bound is null");
+        }
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("from > to");
+        }
+        this.bornFrom = from;
+        this.bornTo = to;
+        return this;
+    }
+
+    boolean matches(Student student) {
+        return (groupId == null || groupId == student.getGroupId())
+                && (yearOfAdmission == null || yearOfAdmission == student.getYearOfAdmission())
+                && (email == null || email.equals(student.getEmail()))
+                && (bornFrom == null || !student.getBirthday().isBefore(bornFrom))
+                && (bornTo == null || !student.getBirthday().isAfter(bornTo));
+    }
+}
@@ -0,0 +1,342 @@
+package ru.mail.polis;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Хранилище студентов с первичным индексом по id и вторичными индексами.
+ *
+ * Первичный индекс — {@link OpenHashTable} записей по id. Точные поля groupId, yearOfAdmission и email
+ * индексируются хеш-индексами: ключ ведёт к {@link RedBlackTree} идентификаторов студентов.
+ * День рождения индексируется {@link RedBlackTree} по паре (день рождения, id), поэтому диапазон дат —
+ * это спуск и обход поддиапазона, а число студентов в нём считается за O(log n).
+ * Для запросов по году поступления вместе с датами есть составной {@link StudentCompositeIndex}.
+ *
+ * Запрос {@link #find(StudentQuery)} оценивает размер выборки каждого подходящего индекса,
+ * обходит самый маленький и проверяет остальные условия на найденных студентах.
+ *
+ * Сохранённых студентов нельзя менять сеттерами в обход {@link #update(Student)}:
+ * индексы обновляются только через хранилище.
+ */
+public class StudentRepository {
+
+    /**
+     * Индекс, через который выполняется запрос
+     */
+    public enum Index {
+        GROUP_ID, YEAR_OF_ADMISSION, EMAIL, BIRTHDAY, ADMISSION_AND_BIRTHDAY
+    }
+
+    private final OpenHashTable<Record> primary = new OpenHashTable<>();
+    private final HashIndex<Integer> byGroupId = new HashIndex<>();
+    private final HashIndex<Integer> byYearOfAdmission = new HashIndex<>();
+    private final HashIndex<String> byEmail = new HashIndex<>();
+    private final RedBlackTree<BirthdayKey> byBirthday = new RedBlackTree<>();
+    private final StudentCompositeIndex byAdmissionAndBirthday = new StudentCompositeIndex();
+
+    /**
+     * @return true, если студента с таким id ещё не было
+     */
+    public boolean insert(Student student) {
+        if (primary.contains(new Record(student.getId()))) {
+            return false;
+        }
+        Record record = new Record(student);
+        primary.add(record);
+        index(record);
+        return true;
+    }
+
+    /**
+     * Заменяет студента с тем же id новой версией и перестраивает его записи во вторичных индексах
+     *
+     * @return false, если студента с таким id нет
+     */
+    public boolean update(Student student) {
+        Record record = primary.find(new Record(student.getId()));
+        if (record == null) {
+            return false;
+        }
+        unindex(record);
+        record.set(student);
+        index(record);
+        return true;
+    }
+
+    /**
+     * @return true, если студент с таким id был
+     */
+    public boolean delete(long id) {
+        Record record = primary.find(new Record(id));
+        if (record == null) {
+            return false;
+        }
+        unindex(record);
+        primary.remove(record);
+        return true;
+    }
+
+    public Student findById(long id) {
+        Record record = primary.find(new Record(id));
+        return record == null ? null : record.student;
+    }
+
+    public int size() {
+        return primary.size();
+    }
+
+    /**
+     * @return студенты, подходящие под все условия запроса, в порядке обхода выбранного индекса
+     */
+    public List<Student> find(StudentQuery query) {
+        Iterator<Long> ids;
+        switch (explain(query)) {
+            case GROUP_ID:
+                ids = byGroupId.ids(query.groupId);
+                break;
+            case YEAR_OF_ADMISSION:
+                ids = byYearOfAdmission.ids(query.yearOfAdmission);
+                break;
+            case EMAIL:
+                ids = byEmail.ids(query.email);
+                break;
+            case ADMISSION_AND_BIRTHDAY:
+                List<Student> result = new ArrayList<>();
+                for (Student student : byAdmissionAndBirthday.find(query.yearOfAdmission, query.bornFrom,
+                        query.bornTo).getStudents()) {
+                    if (query.matches(student)) {
+                        result.add(student);
+                    }
+                }
+                return result;
+            default:
+                ids = new BirthdayIds(byBirthday.iterator(lowerBound(query.bornFrom), upperBound(query.bornTo)));
+        }
+        List<Student> result = new ArrayList<>();
+        while (ids.hasNext()) {
+            Student student = findById(ids.next());
+            if (query.matches(student)) {
+                result.add(student);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Выбирает индекс с самой маленькой выборкой среди тех, что ограничивают запрос.
+     * Если запрос ничего не ограничивает, обходится индекс дней рождения целиком
+     */
+    public Index explain(StudentQuery query) {
+        Index best = Index.BIRTHDAY;
+        int bestCount = byBirthday.countInRange(lowerBound(query.bornFrom), upperBound(query.bornTo));
+        if (query.groupId != null && byGroupId.count(query.groupId) < bestCount) {
+            best = Index.GROUP_ID;
+            bestCount = byGroupId.count(query.groupId);
+        }
+        if (query.yearOfAdmission != null && byYearOfAdmission.count(query.yearOfAdmission) < bestCount) {
+            best = Index.YEAR_OF_ADMISSION;
+            bestCount = byYearOfAdmission.count(query.yearOfAdmission);
+        }
+        if (query.email != null && byEmail.count(query.email) < bestCount) {
+            best = Index.EMAIL;
+            bestCount = byEmail.count(query.email);
+        }
+        // При равной выборке составной индекс лучше: он проверяет оба условия без поиска по id
+        if (query.yearOfAdmission != null && query.bornFrom != null
+                && byAdmissionAndBirthday.count(query.yearOfAdmission, query.bornFrom, query.bornTo) <= bestCount) {
+            best = Index.ADMISSION_AND_BIRTHDAY;
+        }
+        return best;
+    }
+
+    private void index(Record record) {
+        Student student = record.student;
+        byGroupId.add(student.getGroupId(), student.getId());
+        byYearOfAdmission.add(student.getYearOfAdmission(), student.getId());
+        if (record.email != null) {
+            byEmail.add(record.email, student.getId());
+        }
+        byBirthday.add(new BirthdayKey(student.getBirthday().toEpochDay(), student.getId()));
+        byAdmissionAndBirthday.add(student);
+    }
+
+    /**
+     * Удаляет записи студента из вторичных индексов по значениям, с которыми он был проиндексирован
+     */
+    private void unindex(Record record) {
+        Student student = record.student;
+        byGroupId.remove(student.getGroupId(), student.getId());
+        byYearOfAdmission.remove(student.getYearOfAdmission(), student.getId());
+        if (record.email != null) {
+            byEmail.remove(record.email, student.getId());
+        }
+        byBirthday.remove(new BirthdayKey(student.getBirthday().toEpochDay(), student.getId()));
+        byAdmissionAndBirthday.remove(student);
+    }
+
+    private static BirthdayKey lowerBound(LocalDate from) {
+        return from == null ? null : new BirthdayKey(from.toEpochDay(), Long.MIN_VALUE);
+    }
+
+    private static BirthdayKey upperBound(LocalDate to) {
+        return to == null ? null : new BirthdayKey(to.toEpochDay() + 1, Long.MIN_VALUE);
+    }
+
+    /**
+     * Сущность с ключом для хеш-таблицы: равенство и хеши определяются только ключом
+     */
+    private abstract static class KeyEntity implements OpenHashTableEntity {
+
+        private static final ProbeStrategy DOUBLE_HASHING = ProbeStrategy.doubleHashing(HashMixer.MURMUR3);
+        private static final ProbeStrategy LINEAR = ProbeStrategy.linear(HashMixer.MURMUR3);
+
+        @Override
+        public int hashCode(int tableSize, int probId) throws IllegalArgumentException {
+            if (tableSize <= 0 || probId < 0) {
+                throw new IllegalArgumentException("tableSize = " + tableSize + ", probId = " + probId);
+            }
+            return (tableSize & (tableSize - 1)) == 0
+                    ? DOUBLE_HASHING.index(this, tableSize, probId)
+                    : LINEAR.index(this, tableSize, probId);
+        }
+
+        @Override
+        public int stepHash() {
+            return 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return baseHash();
+        }
+    }
+
+    /**
+     * Запись первичного индекса. Хранит email, с которым студент попал во вторичный индекс,
+     * чтобы убрать его оттуда, даже если объект студента успели изменить
+     */
+    private static final class Record extends KeyEntity {
+
+        private final long id;
+        private Student student;
+        private String email;
+
+        Record(long id) {
+            this.id = id;
+        }
+
+        Record(Student student) {
+            this(student.getId());
+            set(student);
+        }
+
+        void set(Student student) {
+            this.student = student;
+            this.email = student.getEmail();
+        }
+
+        @Override
+        public int baseHash() {
+            return Long.hashCode(id);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Record && ((Record) o).id == id;
+        }
+    }
+
+    /**
+     * Идентификаторы студентов с одним значением поля
+     */
+    private static final class Posting<K> extends KeyEntity {
+
+        private final K key;
+        private final RedBlackTree<Long> ids = new RedBlackTree<>();
+
+        Posting(K key) {
+            this.key = key;
+        }
+
+        @Override
+        public int baseHash() {
+            return key.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Posting && ((Posting<?>) o).key.equals(key);
+        }
+    }
+
+    private static final class HashIndex<K> {
+
+        private final OpenHashTable<Posting<K>> postings = new OpenHashTable<>();
+
+        void add(K key, long id) {
+            Posting<K> posting = postings.find(new Posting<>(key));
+            if (posting == null) {
+                posting = new Posting<>(key);
+                postings.add(posting);
+            }
+            posting.ids.add(id);
+        }
+
+        void remove(K key, long id) {
+            Posting<K> posting = postings.find(new Posting<>(key));
+            posting.ids.remove(id);
+            if (posting.ids.isEmpty()) {
+                postings.remove(posting);
+            }
+        }
+
+        int count(K key) {
+            Posting<K> posting = postings.find(new Posting<>(key));
+            return posting == null ? 0 : posting.ids.size();
+        }
+
+        Iterator<Long> ids(K key) {
+            Posting<K> posting = postings.find(new Posting<>(key));
+            return posting == null ? Collections.emptyIterator() : posting.ids.iterator();
+        }
+    }
+
+    private static final class BirthdayKey implements Comparable<BirthdayKey> {
+
+        private final long epochDay;
+        private final long id;
+
+        BirthdayKey(long epochDay, long id) {
+            this.epochDay = epochDay;
+            this.id = id;
+        }
+
+        @Override
+        public int compareTo(BirthdayKey o) {
+            int cmp = Long.compare(epochDay, o.epochDay);
+            return cmp != 0 ? cmp : Long.compare(id, o.id);
+        }
+    }
+
+    private static final class BirthdayIds implements Iterator<Long> {
+
+        private final Iterator<BirthdayKey> keys;
+
+        BirthdayIds(Iterator<BirthdayKey> keys) {
+            this.keys = keys;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return keys.hasNext();
+        }
+
+        @Override
+        public Long next() {
+            return keys.next().id;
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package ru.mail.polis;
+
+import java.util.AbstractSet;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.SortedSet;
+
+/**
+ * Представление диапазона [fromElement, toElement) дерева.
+ * Ничего не копирует: все операции уходят в дерево, изменения видны в обе стороны.
+ * Граница, равная null, означает отсутствие границы.
+ */
+class SubSortedSet<E> extends AbstractSet<E> implements SortedSet<E> {
+
+    private final RangeSearchTree<E> tree;
+    private final E fromElement;
+    private final E toElement;
+
+    SubSortedSet(RangeSearchTree<E> tree, E fromElement, E toElement) {
+        this.tree = tree;
+        this.fromElement = fromElement;
+        this.toElement = toElement;
+    }
+
+    /**
+     * Вставляет элемент в дерево.
+     *
+     * @throws IllegalArgumentException если элемент вне диапазона
+     */
+    @Override
+    public boolean add(E value) {
+        if (!inRange(value)) {
+            throw new IllegalArgumentException("value out of range: " + value);
+        }
+        return tree.add(value);
+    }
+
+    @Override
+    public boolean remove(Object object) {
+        @SuppressWarnings("unchecked")
+        E value = (E) object;
+        return inRange(value) && tree.remove(value);
+    }
+
+    @Override
+    public boolean contains(Object object) {
+        @SuppressWarnings("unchecked")
+        E value = (E) object;
+        return inRange(value) && tree.contains(value);
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return tree.iterator(fromElement, toElement);
+    }
+
+    @Override
+    public int size() {
+        return tree.countInRange(fromElement, toElement);
+    }
+
+    /**
+     * Проверяет за O(log n) наименьший элемент не меньше fromElement, не создавая итератор
+     */
+    @Override
+    public boolean isEmpty() {
+        E first = lowest();
+        return first == null || tooHigh(first);
+    }
+
+    @Override
+    public E first() {
+        E first = lowest();
+        if (first == null || tooHigh(first)) {
+            throw new NoSuchElementException("first");
+        }
+        return first;
+    }
+
+    @Override
+    public E last() {
+        E last = toElement == null ? (tree.isEmpty() ? null : tree.last()) : tree.lower(toElement);
+        if (last == null || tooLow(last)) {
+            throw new NoSuchElementException("last");
+        }
+        return last;
+    }
+
+    @Override
+    public Comparator<? super E> comparator() {
+        return tree.comparator();
+    }
+
+    @Override
+    public SortedSet<E> subSet(E fromElement, E toElement) {
+        checkBound(fromElement);
+        checkBound(toElement);
+        if (compare(fromElement, toElement) > 0) {
+            throw new IllegalArgumentException("fromElement > toElement");
+        }
+        return new SubSortedSet<>(tree, fromElement, toElement);
+    }
+
+    @Override
+    public SortedSet<E> headSet(E toElement) {
+        checkBound(toElement);
+        return new SubSortedSet<>(tree, fromElement, toElement);
+    }
+
+    @Override
+    public SortedSet<E> tailSet(E fromElement) {
+        checkBound(fromElement);
+        return new SubSortedSet<>(tree, fromElement, toElement);
+    }
+
+    /**
+     * @return наименьший элемент дерева не меньше fromElement или null, если такого нет
+     */
+    private E lowest() {
+        if (fromElement != null) {
+            return tree.ceiling(fromElement);
+        }
+        try {
+            return tree.first();
+        } catch (NoSuchElementException e) { //дерево могли опустошить между проверкой и чтением
+            return null;
+        }
+    }
+
+    private boolean inRange(E value) {
+        return !tooLow(value) && !tooHigh(value);
+    }
+
+    private boolean tooLow(E value) {
+        return fromElement != null && compare(value, fromElement) < 0;
+    }
+
+    private boolean tooHigh(E value) {
+        return toElement != null && compare(value, toElement) >= 0;
+    }
+
+    /**
+     * Граница вложенного представления должна лежать внутри отрезка [fromElement, toElement] текущего
+     */
+    private void checkBound(E bound) {
+        if (bound == null) {
+            throw new NullPointerException("bound is null");
+        }
+        if (tooLow(bound) || toElement != null && compare(bound, toElement) > 0) {
+            throw new IllegalArgumentException("bound out of range: " + bound);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private int compare(E v1, E v2) {
+        Comparator<? super E> comparator = tree.comparator();
+        return comparator == null ? ((Comparable<? super E>) v1).compareTo(v2) : comparator.compare(v1, v2);
+    }
+}
@@ -1,10 +1,16 @@
 import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.SortedSet;
+import java.util.Spliterator;
 import java.util.TreeSet;
+import java.util.stream.Collectors;
 
 import org.junit.Assert;
 import org.junit.Before;
@@ -15,8 +21,11 @@ import org.junit.runners.MethodSorters;
 import org.junit.runners.Parameterized;
 
 import ru.mail.polis.AVLTree;
+import ru.mail.polis.ArrayAVLTree;
+import ru.mail.polis.BPlusTree;
 import ru.mail.polis.BalancedSortedSet;
 import ru.mail.polis.NotBalancedTreeException;
+import ru.mail.polis.OrderStatisticSet;
 import ru.mail.polis.RedBlackTree;
 
 /**
@@ -42,6 +51,8 @@ public class TestBalancedSortedSet extends AbstractSetTest {
     private static final Class<?>[] testClasses = (Class<?>[]) new Class<?>[]{
             AVLTree.class,
             RedBlackTree.class,
+            BPlusTree.class,
+            ArrayAVLTree.class,
     };
 
     @SuppressWarnings("unchecked")
@@ -161,6 +172,234 @@ public class TestBalancedSortedSet extends AbstractSetTest {
         }
     }
 
+    @Test
+    public void test08_iterator() {
+        for (int i = 0; i < 1000; i++) {
+            check(validSortedSet, testSortedSet, RANDOM.nextInt(1000), TransformOperation.ADD);
+        }
+        Assert.assertEquals("iterator", new ArrayList<>(validSortedSet), new ArrayList<>(testSortedSet));
+        Iterator<Integer> validIterator = validSortedSet.iterator();
+        Iterator<Integer> testIterator = testSortedSet.iterator();
+        while (validIterator.hasNext()) {
+            Assert.assertTrue("hasNext", testIterator.hasNext());
+            Integer value = validIterator.next();
+            Assert.assertEquals("next", value, testIterator.next());
+            if (value % 3 != 0) {
+                validIterator.remove();
+                testIterator.remove();
+                checkBalanced(testSortedSet);
+            }
+        }
+        Assert.assertFalse("hasNext", testIterator.hasNext());
+        Assert.assertEquals("iterator.remove", new ArrayList<>(validSortedSet), new ArrayList<>(testSortedSet));
+        Assert.assertEquals("equals", validSortedSet, testSortedSet);
+        checkFirstAndLast(validSortedSet, testSortedSet);
+    }
+
+    @Test
+    public void test09_iteratorFailFast() {
+        for (int value = 0; value < 10; value++) {
+            testSortedSet.add(value);
+        }
+        Iterator<Integer> iterator = testSortedSet.iterator();
+        iterator.next();
+        testSortedSet.remove(testSortedSet.last());
+        if (!testSortedSet.isEmpty()) {
+            try {
+                iterator.next();
+                Assert.fail("ConcurrentModificationException - next");
+            } catch (ConcurrentModificationException | NoSuchElementException e) {
+                /* empty */
+            }
+        }
+    }
+
+    @Test
+    public void test10_spliterator() {
+        for (int i = 0; i < 10000; i++) {
+            int value = RANDOM.nextInt(100000);
+            validSortedSet.add(value);
+            testSortedSet.add(value);
+        }
+        Spliterator<Integer> spliterator = testSortedSet.spliterator();
+        Assert.assertTrue("SORTED", spliterator.hasCharacteristics(Spliterator.SORTED));
+        Assert.assertTrue("DISTINCT", spliterator.hasCharacteristics(Spliterator.DISTINCT));
+        Assert.assertEquals("SIZED", validSortedSet.size(), spliterator.getExactSizeIfKnown());
+        List<Integer> parts = new ArrayList<>();
+        Spliterator<Integer> prefix = spliterator.trySplit();
+        if (validSortedSet.size() > 1) {
+            Assert.assertNotNull("trySplit", prefix);
+            prefix.forEachRemaining(parts::add);
+        }
+        spliterator.forEachRemaining(parts::add);
+        Assert.assertEquals("trySplit", new ArrayList<>(validSortedSet), parts);
+        Assert.assertEquals("stream", new ArrayList<>(validSortedSet), testSortedSet.stream().collect(Collectors.toList()));
+        Assert.assertEquals("parallelStream", new ArrayList<>(validSortedSet), testSortedSet.parallelStream().collect(Collectors.toList()));
+    }
+
+    @Test
+    public void test11_subSet() {
+        for (int i = 0; i < 500; i++) {
+            int value = RANDOM.nextInt(1000);
+            validSortedSet.add(value);
+            testSortedSet.add(value);
+        }
+        for (int i = 0; i < 50; i++) {
+            int from = RANDOM.nextInt(1100) - 50;
+            int to = RANDOM.nextInt(1100) - 50;
+            if (validSortedSet.comparator() != null && validSortedSet.comparator().compare(from, to) > 0
+                    || validSortedSet.comparator() == null && from > to) {
+                int tmp = from;
+                from = to;
+                to = tmp;
+            }
+            checkRange(validSortedSet.subSet(from, to), testSortedSet.subSet(from, to), from, to);
+            checkRange(validSortedSet.headSet(to), testSortedSet.headSet(to), from, to);
+            checkRange(validSortedSet.tailSet(from), testSortedSet.tailSet(from), from, to);
+            checkRange(validSortedSet.tailSet(from).headSet(to), testSortedSet.tailSet(from).headSet(to), from, to);
+        }
+        try {
+            testSortedSet.subSet(1, 2).add(5);
+            if (comparator == null || comparator.compare(1, 5) != 0) {
+                Assert.fail("IllegalArgumentException - add out of range");
+            }
+        } catch (IllegalArgumentException e) {
+            /* empty */
+        }
+        checkBalanced(testSortedSet);
+    }
+
+    @Test
+    public void test12_orderStatistics() {
+        for (int i = 0; i < 1000; i++) {
+            check(validSortedSet, testSortedSet, RANDOM.nextInt(1000), i % 3 == 0 ? TransformOperation.REMOVE : TransformOperation.ADD);
+        }
+        OrderStatisticSet<Integer> orderStatisticSet = (OrderStatisticSet<Integer>) testSortedSet;
+        List<Integer> values = new ArrayList<>(validSortedSet);
+        for (int k = 0; k < values.size(); k++) {
+            Assert.assertEquals("select", values.get(k), orderStatisticSet.select(k));
+            Assert.assertEquals("rank", k, orderStatisticSet.rank(values.get(k)));
+        }
+        try {
+            orderStatisticSet.select(values.size());
+            Assert.fail("IndexOutOfBoundsException - select");
+        } catch (IndexOutOfBoundsException e) {
+            /* empty */
+        }
+        for (int i = 0; i < 100; i++) {
+            int from = RANDOM.nextInt(1100) - 50;
+            Assert.assertEquals("rank", validSortedSet.headSet(from).size(), orderStatisticSet.rank(from));
+            Assert.assertEquals("countInRange", validSortedSet.tailSet(from).size(), orderStatisticSet.countInRange(from, null));
+        }
+    }
+
+    @Test
+    public void test13_fromSorted() {
+        for (int i = 0; i < 1000; i++) {
+            validSortedSet.add(RANDOM.nextInt(1000));
+        }
+        Assert.assertTrue("addAll", testSortedSet.addAll(validSortedSet));
+        checkBalanced(testSortedSet);
+        Assert.assertEquals("addAll", new ArrayList<>(validSortedSet), new ArrayList<>(testSortedSet));
+        for (int i = 0; i < 1000; i++) {
+            check(validSortedSet, testSortedSet, RANDOM.nextInt(1000), i % 2 == 0 ? TransformOperation.REMOVE : TransformOperation.ADD);
+        }
+        try {
+            testClass.getMethod("fromSorted", Iterable.class, Comparator.class)
+                    .invoke(null, Arrays.asList(3, 2, 1), Comparator.<Integer>naturalOrder());
+            Assert.fail("IllegalArgumentException - fromSorted");
+        } catch (InvocationTargetException e) {
+            Assert.assertTrue("fromSorted", e.getCause() instanceof IllegalArgumentException);
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    @Test
+    public void test14_setOperations() {
+        for (int round = 0; round < 3; round++) {
+            SortedSet<Integer> validOther = new TreeSet<>(comparator);
+            BalancedSortedSet<Integer> testOther = createTestSortedSet(testClass);
+            int bound = round == 0 ? 100 : 40000;
+            for (int i = 0; i < bound / 2; i++) {
+                int value = RANDOM.nextInt(bound);
+                validSortedSet.add(value);
+                testSortedSet.add(value);
+                value = RANDOM.nextInt(bound);
+                validOther.add(value);
+                testOther.add(value);
+            }
+            switch (round) {
+                case 0:
+                    Assert.assertEquals("addAll", validSortedSet.addAll(validOther), testSortedSet.addAll(testOther));
+                    break;
+                case 1:
+                    Assert.assertEquals("retainAll", validSortedSet.retainAll(validOther), testSortedSet.retainAll(testOther));
+                    break;
+                default:
+                    Assert.assertEquals("removeAll", validSortedSet.removeAll(validOther), testSortedSet.removeAll(testOther));
+            }
+            checkBalanced(testSortedSet);
+            Assert.assertEquals("size", validSortedSet.size(), testSortedSet.size());
+            Assert.assertEquals("elements", new ArrayList<>(validSortedSet), new ArrayList<>(testSortedSet));
+            Assert.assertEquals("other", new ArrayList<>(validOther), new ArrayList<>(testOther));
+            if (!validSortedSet.isEmpty()) {
+                int k = RANDOM.nextInt(validSortedSet.size());
+                Assert.assertEquals("select", new ArrayList<>(validSortedSet).get(k),
+                        ((OrderStatisticSet<Integer>) testSortedSet).select(k));
+            }
+            for (int i = 0; i < 100; i++) {
+                check(validSortedSet, testSortedSet, RANDOM.nextInt(bound), i % 2 == 0 ? TransformOperation.REMOVE : TransformOperation.ADD);
+            }
+        }
+        Assert.assertFalse("addAll self", testSortedSet.addAll(testSortedSet));
+        Assert.assertEquals("removeAll self", !validSortedSet.isEmpty(), testSortedSet.removeAll(testSortedSet));
+        Assert.assertTrue("removeAll self", testSortedSet.isEmpty());
+    }
+
+    @Test
+    public void test15_subSetIteratorFailFast() {
+        for (int value = 0; value < 10; value++) {
+            testSortedSet.add(value);
+        }
+        SortedSet<Integer> view = testSortedSet.headSet(testSortedSet.last());
+        List<Integer> values = new ArrayList<>(view);
+        if (values.size() >= 2) {
+            Iterator<Integer> iterator = view.iterator();
+            iterator.next();
+            testSortedSet.remove(values.get(1));
+            Assert.assertTrue("hasNext after remove", iterator.hasNext());
+            try {
+                iterator.next();
+                Assert.fail("ConcurrentModificationException - next");
+            } catch (ConcurrentModificationException e) {
+                /* empty */
+            }
+        }
+    }
+
+    private void checkRange(SortedSet<Integer> validRange, SortedSet<Integer> testRange, int from, int to) {
+        Assert.assertEquals("range", new ArrayList<>(validRange), new ArrayList<>(testRange));
+        Assert.assertEquals("size", validRange.size(), testRange.size());
+        checkFirstAndLast(validRange, testRange);
+        for (int value : new int[]{from, to, (from + to) / 2}) {
+            Assert.assertEquals("contains", validRange.contains(value), testRange.contains(value));
+            Assert.assertEquals("remove", validRange.remove(value), testRange.remove(value));
+        }
+        int value = RANDOM.nextInt(1000);
+        boolean inRange = true;
+        try {
+            validRange.add(value);
+        } catch (IllegalArgumentException e) {
+            inRange = false;
+        }
+        if (inRange) {
+            testRange.add(value);
+        }
+        Assert.assertEquals("add", new ArrayList<>(validRange), new ArrayList<>(testRange));
+        Assert.assertEquals("view", new ArrayList<>(validSortedSet), new ArrayList<>(testSortedSet));
+    }
+
     private <E> void check(SortedSet<E> validSortedSet, BalancedSortedSet<E> testSortedSet, E value, TransformOperation transformOperation) {
         checkFirstAndLast(validSortedSet, testSortedSet);
         checkTransformOperation(validSortedSet, testSortedSet, value, transformOperation);
@@ -0,0 +1,134 @@
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.junit.Assert;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+import ru.mail.polis.BinarySearchTree;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class TestBinarySearchTree extends AbstractSetTest {
+
+    private static BinarySearchTree<Integer> fill(SortedSet<Integer> validSet, int count, int bound) {
+        BinarySearchTree<Integer> testSet = new BinarySearchTree<>();
+        for (int i = 0; i < count; i++) {
+            int value = RANDOM.nextInt(bound);
+            Assert.assertEquals("add", validSet.add(value), testSet.add(value));
+        }
+        return testSet;
+    }
+
+    @Test
+    public void test01_randomAndIterator() {
+        SortedSet<Integer> validSet = new TreeSet<>();
+        BinarySearchTree<Integer> testSet = fill(validSet, 2000, 1000);
+        for (int i = 0; i < 2000; i++) {
+            int value = RANDOM.nextInt(1000);
+            checkTransformOperation(validSet, testSet, value,
+                    RANDOM.nextBoolean() ? TransformOperation.ADD : TransformOperation.REMOVE);
+            checkSizeAndContains(validSet, testSet, value);
+        }
+        Assert.assertEquals("iterator", new ArrayList<>(validSet), new ArrayList<>(testSet));
+        Assert.assertEquals("first", validSet.first(), testSet.first());
+        Assert.assertEquals("last", validSet.last(), testSet.last());
+    }
+
+    @Test
+    public void test02_viewBounds() {
+        SortedSet<Integer> validSet = new TreeSet<>();
+        BinarySearchTree<Integer> testSet = fill(validSet, 500, 1000);
+        for (int i = 0; i < 100; i++) {
+            int from = RANDOM.nextInt(1000);
+            int to = from + RANDOM.nextInt(1000 - from + 1);
+            checkRange(validSet.subSet(from, to), testSet.subSet(from, to));
+            checkRange(validSet.headSet(to), testSet.headSet(to));
+            checkRange(validSet.tailSet(from), testSet.tailSet(from));
+            if (from < to) {
+                int innerFrom = from + (to - from) / 4;
+                int innerTo = to - (to - from) / 4;
+                checkRange(validSet.subSet(from, to).subSet(innerFrom, innerTo),
+                        testSet.subSet(from, to).subSet(innerFrom, innerTo));
+            }
+        }
+    }
+
+    @Test
+    public void test03_viewAdd() {
+        SortedSet<Integer> validSet = new TreeSet<>();
+        BinarySearchTree<Integer> testSet = fill(validSet, 100, 100);
+        SortedSet<Integer> view = testSet.subSet(20, 40);
+        Assert.assertEquals("add", validSet.add(30), view.add(30));
+        Assert.assertTrue("contains", testSet.contains(30));
+        Assert.assertFalse("contains", view.contains(50));
+        for (int value : new int[]{19, 40, 50}) {
+            try {
+                view.add(value);
+                Assert.fail("add out of range: " + value);
+            } catch (IllegalArgumentException e) {
+                //ok
+            }
+        }
+        try {
+            testSet.subSet(40, 20);
+            Assert.fail("fromElement > toElement");
+        } catch (IllegalArgumentException e) {
+            //ok
+        }
+        Assert.assertEquals("size", validSet.subSet(20, 40).size(), view.size());
+        Assert.assertEquals("size", validSet.size(), testSet.size());
+    }
+
+    @Test
+    public void test04_iteratorRemove() {
+        SortedSet<Integer> validSet = new TreeSet<>();
+        BinarySearchTree<Integer> testSet = fill(validSet, 1000, 2000);
+        Iterator<Integer> validIterator = validSet.subSet(500, 1500).iterator();
+        Iterator<Integer> testIterator = testSet.subSet(500, 1500).iterator();
+        while (validIterator.hasNext()) {
+            Assert.assertTrue("hasNext", testIterator.hasNext());
+            Assert.assertEquals("next", validIterator.next(), testIterator.next());
+            if (RANDOM.nextBoolean()) {
+                validIterator.remove();
+                testIterator.remove();
+            }
+        }
+        Assert.assertFalse("hasNext", testIterator.hasNext());
+        Assert.assertEquals("remove", new ArrayList<>(validSet), new ArrayList<>(testSet));
+        try {
+            testIterator.next();
+            Assert.fail("next after end");
+        } catch (NoSuchElementException e) {
+            //ok
+        }
+        Iterator<Integer> iterator = testSet.iterator();
+        try {
+            iterator.remove();
+            Assert.fail("remove before next");
+        } catch (IllegalStateException e) {
+            //ok
+        }
+        iterator.next();
+        testSet.add(-1);
+        try {
+            iterator.next();
+            Assert.fail("next after modification");
+        } catch (ConcurrentModificationException e) {
+            //ok
+        }
+    }
+
+    private static void checkRange(SortedSet<Integer> validRange, SortedSet<Integer> testRange) {
+        Assert.assertEquals("size", validRange.size(), testRange.size());
+        Assert.assertEquals("iterator", new ArrayList<>(validRange), new ArrayList<>(testRange));
+        if (!validRange.isEmpty()) {
+            Assert.assertEquals("first", validRange.first(), testRange.first());
+            Assert.assertEquals("last", validRange.last(), testRange.last());
+        }
+    }
+}
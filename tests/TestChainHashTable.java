@@ -0,0 +1,159 @@
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+import ru.mail.polis.ChainHashTable;
+import ru.mail.polis.SipHash;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class TestChainHashTable extends AbstractSetTest {
+
+    /**
+     * Ключ с заданным хешем, сравнимый по id
+     */
+    private static class ComparableKey implements Comparable<ComparableKey> {
+        final int id;
+        final int hash;
+
+        ComparableKey(int id, int hash) {
+            this.id = id;
+            this.hash = hash;
+        }
+
+        @Override
+        public int compareTo(ComparableKey o) {
+            return Integer.compare(id, o.id);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof ComparableKey && ((ComparableKey) o).id == id;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * Ключ с заданным хешем без естественного порядка
+     */
+    private static class PlainKey {
+        final int id;
+        final int hash;
+
+        PlainKey(int id, int hash) {
+            this.id = id;
+            this.hash = hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof PlainKey && ((PlainKey) o).id == id;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private void checkRandom(boolean comparable, int hashes) {
+        Set<Object> validSet = new HashSet<>();
+        ChainHashTable<Object> testSet = new ChainHashTable<>();
+        for (int i = 0; i < 50000; i++) {
+            int id = RANDOM.nextInt(500);
+            //новый объект на каждую операцию: поиск идёт по equals, а не по ссылке
+            Object key = comparable ? new ComparableKey(id, id % hashes) : new PlainKey(id, id % hashes);
+            boolean add = i % 10000 < 6000 ? RANDOM.nextInt(4) != 0 : RANDOM.nextInt(4) == 0;
+            checkTransformOperation(validSet, testSet, key, add ? TransformOperation.ADD : TransformOperation.REMOVE);
+            checkSizeAndContains(validSet, testSet, key);
+        }
+    }
+
+    @Test
+    public void test01_comparableCollisions() {
+        checkRandom(true, 1);
+        checkRandom(true, 3);
+    }
+
+    @Test
+    public void test02_plainCollisions() {
+        checkRandom(false, 1);
+        checkRandom(false, 3);
+    }
+
+    /**
+     * 2^bits строк из блоков "Aa" и "BB" с одинаковым String.hashCode
+     */
+    private static List<String> collidingStrings(int bits) {
+        List<String> values = new ArrayList<>(1 << bits);
+        for (int mask = 0; mask < 1 << bits; mask++) {
+            StringBuilder builder = new StringBuilder();
+            for (int i = 0; i < bits; i++) {
+                builder.append((mask >>> i & 1) == 0 ? "Aa" : "BB");
+            }
+            values.add(builder.toString());
+        }
+        return values;
+    }
+
+    @Test
+    public void test03_seededCollisions() {
+        SipHash reference = new SipHash(0x0706050403020100L, 0x0f0e0d0c0b0a0908L);
+        for (int i = 0; i < 15; i++) {
+            reference.putByte(i);
+        }
+        Assert.assertEquals("SipHash-2-4 test vector", 0xa129ca6149be45e5L, reference.finish());
+
+        List<String> values = collidingStrings(10);
+        Assert.assertEquals("same hashCode", values.get(0).hashCode(), values.get(values.size() - 1).hashCode());
+        Set<String> validSet = new HashSet<>();
+        ChainHashTable<String> testSet = new ChainHashTable<>(8, true);
+        for (int i = 0; i < 20000; i++) {
+            String value = new String(values.get(RANDOM.nextInt(values.size())));
+            checkTransformOperation(validSet, testSet, value, RANDOM.nextInt(3) != 0 ? TransformOperation.ADD : TransformOperation.REMOVE);
+            checkSizeAndContains(validSet, testSet, value);
+        }
+    }
+
+    @Test
+    public void test04_expectedSize() {
+        for (int expectedSize : new int[]{0, 1, 2, 3, 4, 5, 7, 100, 512, 1000, 1024, 4096, 100000}) {
+            ChainHashTable<Integer> testSet = ChainHashTable.withExpectedSize(expectedSize);
+            int capacity = testSet.capacity();
+            for (int i = 0; i < expectedSize; i++) {
+                testSet.add(i);
+            }
+            Assert.assertEquals("capacity after " + expectedSize + " adds", capacity, testSet.capacity());
+            testSet.add(expectedSize);
+            Assert.assertEquals("size", expectedSize + 1, testSet.size());
+        }
+        Assert.assertEquals("rounded up", 8, new ChainHashTable<Integer>(5).capacity());
+        Assert.assertEquals("power of two", 8, new ChainHashTable<Integer>(8).capacity());
+        Assert.assertEquals("single bucket", 1, new ChainHashTable<Integer>(1).capacity());
+        for (int initialCapacity : new int[]{0, -1, (1 << 30) + 1}) {
+            try {
+                new ChainHashTable<Integer>(initialCapacity);
+                Assert.fail("initialCapacity = " + initialCapacity);
+            } catch (IllegalArgumentException e) {
+                //ok
+            }
+        }
+        for (int expectedSize : new int[]{-1, 1 << 29, Integer.MAX_VALUE}) {
+            try {
+                ChainHashTable.withExpectedSize(expectedSize);
+                Assert.fail("expectedSize = " + expectedSize);
+            } catch (IllegalArgumentException e) {
+                //ok
+            }
+        }
+    }
+}
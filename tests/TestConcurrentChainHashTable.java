@@ -0,0 +1,172 @@
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+import ru.mail.polis.CheckedOpenHashTableEntity;
+import ru.mail.polis.ConcurrentChainHashTable;
+import ru.mail.polis.SimpleStudentGenerator;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class TestConcurrentChainHashTable extends AbstractSetTest {
+
+    private static final int THREADS = 8;
+
+    private ExecutorService executor;
+    private ConcurrentChainHashTable<CheckedOpenHashTableEntity> testSet;
+
+    @Before
+    public void createSet() {
+        executor = Executors.newFixedThreadPool(THREADS);
+        testSet = new ConcurrentChainHashTable<>();
+    }
+
+    @After
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Сущности генерируются заранее: счётчик id в Student не потокобезопасен
+     */
+    private List<CheckedOpenHashTableEntity> generate(int count) {
+        List<CheckedOpenHashTableEntity> values = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            values.add(SimpleStudentGenerator.getInstance().generate());
+        }
+        return values;
+    }
+
+    private void runAll(List<Callable<Void>> tasks) throws Exception {
+        for (Future<Void> future : executor.invokeAll(tasks)) {
+            future.get();
+        }
+    }
+
+    @Test
+    public void test01_disjointWriters() throws Exception {
+        List<Callable<Void>> tasks = new ArrayList<>();
+        List<Set<CheckedOpenHashTableEntity>> validSets = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            List<CheckedOpenHashTableEntity> values = generate(2000);
+            Set<CheckedOpenHashTableEntity> validSet = new HashSet<>();
+            validSets.add(validSet);
+            tasks.add(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < 20000; i++) {
+                    CheckedOpenHashTableEntity value = values.get(random.nextInt(values.size()));
+                    if (random.nextInt(3) > 0) {
+                        Assert.assertEquals("add", validSet.add(value), testSet.add(value));
+                    } else {
+                        Assert.assertEquals("remove", validSet.remove(value), testSet.remove(value));
+                    }
+                    Assert.assertEquals("contains", validSet.contains(value), testSet.contains(value));
+                }
+                return null;
+            });
+        }
+        runAll(tasks);
+        Set<CheckedOpenHashTableEntity> validSet = new HashSet<>();
+        validSets.forEach(validSet::addAll);
+        Assert.assertEquals("size", validSet.size(), testSet.size());
+        Assert.assertEquals("iterator", validSet, new HashSet<>(testSet));
+        for (CheckedOpenHashTableEntity value : validSet) {
+            Assert.assertTrue("contains", testSet.contains(value));
+        }
+    }
+
+    @Test
+    public void test02_sharedValues() throws Exception {
+        List<CheckedOpenHashTableEntity> values = generate(500);
+        AtomicInteger expectedSize = new AtomicInteger();
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            tasks.add(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < 50000; i++) {
+                    CheckedOpenHashTableEntity value = values.get(random.nextInt(values.size()));
+                    if (random.nextBoolean()) {
+                        if (testSet.add(value)) {
+                            expectedSize.incrementAndGet();
+                        }
+                    } else if (testSet.remove(value)) {
+                        expectedSize.decrementAndGet();
+                    }
+                }
+                return null;
+            });
+        }
+        runAll(tasks);
+        Assert.assertEquals("size", expectedSize.get(), testSet.size());
+        int contained = 0;
+        for (CheckedOpenHashTableEntity value : values) {
+            if (testSet.contains(value)) {
+                contained++;
+            }
+        }
+        Assert.assertEquals("contains", expectedSize.get(), contained);
+        Assert.assertEquals("iterator", expectedSize.get(), new ArrayList<>(testSet).size());
+    }
+
+    @Test
+    public void test03_readersDuringResize() throws Exception {
+        List<CheckedOpenHashTableEntity> stable = generate(1000);
+        testSet.addAll(stable);
+        int tableSize = testSet.getTableSize();
+        AtomicBoolean writing = new AtomicBoolean(true);
+        CountDownLatch writers = new CountDownLatch(THREADS / 2);
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int t = 0; t < THREADS / 2; t++) {
+            List<CheckedOpenHashTableEntity> values = generate(50000);
+            tasks.add(() -> {
+                try {
+                    for (CheckedOpenHashTableEntity value : values) {
+                        Assert.assertTrue("add", testSet.add(value));
+                    }
+                } finally {
+                    writers.countDown();
+                }
+                return null;
+            });
+        }
+        for (int t = 0; t < THREADS / 2; t++) {
+            tasks.add(() -> {
+                while (writing.get()) {
+                    for (CheckedOpenHashTableEntity value : stable) {
+                        Assert.assertTrue("contains during resize", testSet.contains(value));
+                    }
+                }
+                return null;
+            });
+        }
+        List<Future<Void>> futures = new ArrayList<>();
+        for (Callable<Void> task : tasks) {
+            futures.add(executor.submit(task));
+        }
+        writers.await();
+        writing.set(false);
+        for (Future<Void> future : futures) {
+            future.get();
+        }
+        Assert.assertEquals("size", stable.size() + THREADS / 2 * 50000, testSet.size());
+        Assert.assertTrue("table must grow. tableSize = " + testSet.getTableSize(), testSet.getTableSize() > tableSize);
+        for (CheckedOpenHashTableEntity value : stable) {
+            Assert.assertTrue("contains", testSet.contains(value));
+        }
+    }
+}
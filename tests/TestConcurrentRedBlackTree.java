@@ -0,0 +1,170 @@
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+import ru.mail.polis.ConcurrentRedBlackTree;
+import ru.mail.polis.NotBalancedTreeException;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class TestConcurrentRedBlackTree extends AbstractSetTest {
+
+    private static final int THREADS = 8;
+
+    private ExecutorService executor;
+    private ConcurrentRedBlackTree<Integer> testSortedSet;
+
+    @Before
+    public void createSortedSet() {
+        executor = Executors.newFixedThreadPool(THREADS);
+        testSortedSet = new ConcurrentRedBlackTree<>(Comparator.<Integer>reverseOrder());
+    }
+
+    @After
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void test01_singleThread() throws NotBalancedTreeException {
+        NavigableSet<Integer> validSortedSet = new TreeSet<>(Comparator.reverseOrder());
+        for (int i = 0; i < 10000; i++) {
+            int value = RANDOM.nextInt(1000);
+            checkTransformOperation(validSortedSet, testSortedSet, value, i % 3 == 0 ? TransformOperation.REMOVE : TransformOperation.ADD);
+            checkSizeAndContains(validSortedSet, testSortedSet, value);
+            Assert.assertEquals("ceiling", validSortedSet.ceiling(value), testSortedSet.ceiling(value));
+            Assert.assertEquals("lower", validSortedSet.lower(value), testSortedSet.lower(value));
+            if (!validSortedSet.isEmpty()) {
+                Assert.assertEquals("first", validSortedSet.first(), testSortedSet.first());
+                Assert.assertEquals("last", validSortedSet.last(), testSortedSet.last());
+            }
+        }
+        testSortedSet.checkBalanced();
+        Assert.assertEquals("iterator", new ArrayList<>(validSortedSet), new ArrayList<>(testSortedSet));
+        SortedSet<Integer> validRange = validSortedSet.subSet(700, 300);
+        SortedSet<Integer> testRange = testSortedSet.subSet(700, 300);
+        Assert.assertEquals("subSet", new ArrayList<>(validRange), new ArrayList<>(testRange));
+        Assert.assertEquals("subSet size", validRange.size(), testRange.size());
+        testRange.clear();
+        validRange.clear();
+        Assert.assertEquals("subSet clear", new ArrayList<>(validSortedSet), new ArrayList<>(testSortedSet));
+    }
+
+    @Test
+    public void test02_readersAndWriters() throws Exception {
+        List<Integer> stable = new ArrayList<>();
+        for (int i = 0; i < 10000; i += 10) {
+            stable.add(i);
+            testSortedSet.add(i);
+        }
+        AtomicBoolean writing = new AtomicBoolean(true);
+        List<Callable<Void>> writers = new ArrayList<>();
+        for (int t = 0; t < THREADS / 2; t++) {
+            writers.add(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < 100000; i++) {
+                    int value = random.nextInt(9990);
+                    if (value % 10 == 0) {
+                        continue;
+                    }
+                    if (random.nextBoolean()) {
+                        testSortedSet.add(value);
+                    } else {
+                        testSortedSet.remove(value);
+                    }
+                }
+                return null;
+            });
+        }
+        List<Future<Void>> readers = new ArrayList<>();
+        for (int t = 0; t < THREADS / 2; t++) {
+            readers.add(executor.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (writing.get()) {
+                    int value = stable.get(random.nextInt(stable.size()));
+                    Assert.assertTrue("contains", testSortedSet.contains(value));
+                    Integer ceiling = testSortedSet.ceiling(value + 9);
+                    Assert.assertTrue("ceiling", ceiling != null && ceiling <= value + 9 && ceiling >= value);
+                    Assert.assertEquals("first", Integer.valueOf(9990), testSortedSet.first());
+                }
+                return null;
+            }));
+        }
+        try {
+            for (Future<Void> future : executor.invokeAll(writers)) {
+                future.get();
+            }
+        } finally {
+            writing.set(false);
+        }
+        for (Future<Void> future : readers) {
+            future.get();
+        }
+        testSortedSet.checkBalanced();
+        ConcurrentSkipListSet<Integer> validSortedSet = new ConcurrentSkipListSet<>(Comparator.reverseOrder());
+        validSortedSet.addAll(testSortedSet);
+        Assert.assertEquals("size", validSortedSet.size(), testSortedSet.size());
+        Assert.assertTrue("stable", testSortedSet.containsAll(stable));
+        for (int value = 0; value < 10000; value++) {
+            Assert.assertEquals("contains", validSortedSet.contains(value), testSortedSet.contains(value));
+        }
+    }
+
+    @Test
+    public void test03_chunkedIterator() {
+        NavigableSet<Integer> validSortedSet = new TreeSet<>(Comparator.reverseOrder());
+        for (int i = 0; i < 5000; i++) {
+            validSortedSet.add(i);
+            testSortedSet.add(i);
+        }
+        Assert.assertEquals("subSet", new ArrayList<>(validSortedSet.subSet(4000, 1000)),
+                new ArrayList<>(testSortedSet.subSet(4000, 1000)));
+        Assert.assertFalse("isEmpty", testSortedSet.subSet(4000, 1000).isEmpty());
+        Assert.assertTrue("isEmpty", testSortedSet.subSet(6000, 5000).isEmpty());
+        Assert.assertTrue("isEmpty", testSortedSet.tailSet(-1).isEmpty());
+        //изменения во время обхода: чётные удаляются итератором, нечётные — мимо него,
+        //ниже текущего места добавляются новые отрицательные значения
+        List<Integer> seen = new ArrayList<>();
+        Iterator<Integer> iterator = testSortedSet.iterator();
+        while (iterator.hasNext()) {
+            int value = iterator.next();
+            if (!seen.isEmpty()) {
+                Assert.assertTrue("order", value < seen.get(seen.size() - 1));
+            }
+            seen.add(value);
+            if (value % 2 == 0) {
+                iterator.remove();
+                validSortedSet.remove(value);
+            } else if (value > 2) {
+                testSortedSet.remove(value - 2);
+                validSortedSet.remove(value - 2);
+            }
+            if (value > 0 && value % 1000 == 0) {
+                testSortedSet.add(-value);
+                validSortedSet.add(-value);
+            }
+        }
+        Assert.assertEquals("last seen", Integer.valueOf(-4000), seen.get(seen.size() - 1));
+        Assert.assertEquals("rest", new ArrayList<>(validSortedSet), new ArrayList<>(testSortedSet));
+        Assert.assertTrue("empty head", testSortedSet.headSet(testSortedSet.first()).isEmpty());
+        testSortedSet.clear();
+        Assert.assertTrue("empty", testSortedSet.headSet(0).isEmpty());
+    }
+}
@@ -2,11 +2,18 @@ import org.junit.Assert;
 import org.junit.Before;
 import org.junit.FixMethodOrder;
 import org.junit.Test;
+import org.junit.runner.RunWith;
 import org.junit.runners.MethodSorters;
+import org.junit.runners.Parameterized;
+import ru.mail.polis.ChainHashTable;
 import ru.mail.polis.CheckedOpenHashTableEntity;
+import ru.mail.polis.ConcurrentChainHashTable;
 import ru.mail.polis.OpenHashTable;
 import ru.mail.polis.SimpleStudentGenerator;
+import ru.mail.polis.Student;
 
+import java.lang.reflect.InvocationTargetException;
+import java.time.LocalDate;
 import java.util.*;
 
 /**
@@ -14,15 +21,43 @@ import java.util.*;
  * Since 12/12/2017.
  */
 @FixMethodOrder(MethodSorters.NAME_ASCENDING)
+@RunWith(value = Parameterized.class)
 public class TestHashTable extends AbstractSetTest {
 
+    private static final Class<?>[] testClasses = new Class<?>[]{
+            OpenHashTable.class,
+            ChainHashTable.class,
+            ConcurrentChainHashTable.class,
+    };
+
+    @Parameterized.Parameter()
+    public Class<?> testClass;
+
+    @Parameterized.Parameters(name = "{0}")
+    public static Collection<Object[]> data() {
+        Object[][] objects = new Object[testClasses.length][1];
+        for (int i = 0; i < testClasses.length; i++) {
+            objects[i] = new Object[]{testClasses[i]};
+        }
+        return Arrays.asList(objects);
+    }
+
     private Set<CheckedOpenHashTableEntity> validSet;
     private Set<CheckedOpenHashTableEntity> testSet;
 
     @Before //Запускается перед запуском каждого теста
     public void createSortedSets() {
         validSet = new HashSet<>();
-        testSet = new OpenHashTable<>();
+        testSet = createTestSet(testClass);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Set<CheckedOpenHashTableEntity> createTestSet(Class<?> clazz) {
+        try {
+            return (Set<CheckedOpenHashTableEntity>) clazz.getConstructor().newInstance();
+        } catch (InstantiationException | IllegalAccessException | NoSuchMethodException | InvocationTargetException e) {
+            throw new AssertionError(e);
+        }
     }
 
     private CheckedOpenHashTableEntity generate() {
@@ -88,6 +123,92 @@ public class TestHashTable extends AbstractSetTest {
         }
     }
 
+    @Test
+    public void test05_churn() {
+        List<CheckedOpenHashTableEntity> values = new ArrayList<>(100);
+        for (int i = 0; i < 100; i++) {
+            values.add(generate());
+        }
+        for (int round = 0; round < 50; round++) {
+            for (CheckedOpenHashTableEntity entity : values) {
+                check(validSet, testSet, entity, TransformOperation.ADD);
+            }
+            for (CheckedOpenHashTableEntity entity : values) {
+                check(validSet, testSet, entity, TransformOperation.REMOVE);
+            }
+        }
+        if (testSet instanceof OpenHashTable) {
+            int tableSize = ((OpenHashTable<CheckedOpenHashTableEntity>) testSet).getTableSize();
+            Assert.assertTrue("deleted cells must not grow the table. tableSize = " + tableSize, tableSize <= 512);
+        }
+    }
+
+    @Test
+    public void test07_contactsChange() {
+        List<Student> values = new ArrayList<>(100);
+        for (int i = 0; i < 100; i++) {
+            Student student = SimpleStudentGenerator.getInstance().generate();
+            values.add(student);
+            testSet.add(student);
+        }
+        for (Student student : values) {
+            int baseHash = student.baseHash();
+            student.setEmail("changed@polis.mail.ru");
+            student.setMobile(null);
+            student.setPhotoReference("changed");
+            Assert.assertEquals("baseHash", baseHash, student.baseHash());
+            Assert.assertTrue("contains", testSet.contains(student));
+        }
+        for (Student student : values) {
+            Assert.assertTrue("remove", testSet.remove(student));
+        }
+        Assert.assertTrue("isEmpty", testSet.isEmpty());
+    }
+
+    @Test
+    public void test10_dictionaryNames() {
+        List<Student> values = new ArrayList<>(100);
+        for (int i = 0; i < 100; i++) {
+            Student student = SimpleStudentGenerator.getInstance().generate();
+            values.add(student);
+            testSet.add(student);
+        }
+        for (Student student : values) {
+            Student copy = new Student(student.getId(), new String(student.getFirstName()),
+                    new String(student.getLastName()), student.getGender(), student.getBirthday(),
+                    student.getGroupId(), student.getYearOfAdmission(), student.getPhotoReference(),
+                    student.getEmail(), student.getMobile());
+            Assert.assertSame("firstName", student.getFirstName(), copy.getFirstName());
+            Assert.assertSame("lastName", student.getLastName(), copy.getLastName());
+            Assert.assertEquals("equals", student, copy);
+            Assert.assertEquals("baseHash", student.baseHash(), copy.baseHash());
+            Assert.assertTrue("contains", testSet.contains(copy));
+        }
+    }
+
+    @Test
+    public void test13_uncodedNames() {
+        //Словарь имён ограничен, поэтому часть уникальных имён останется без кода и сравнится строками
+        List<Student> values = new ArrayList<>(5000);
+        for (int i = 0; i < 5000; i++) {
+            Student student = new Student("Имя" + i + "-" + testClass.getSimpleName(), "Фамилия" + i,
+                    Student.Gender.FEMALE, LocalDate.of(1995, 1, 1), 1000, 2015);
+            values.add(student);
+            testSet.add(student);
+        }
+        for (Student student : values) {
+            Student copy = new Student(student.getId(), new String(student.getFirstName()),
+                    new String(student.getLastName()), student.getGender(), student.getBirthday(),
+                    student.getGroupId(), student.getYearOfAdmission(), null, null, null);
+            Student renamed = new Student(student.getId(), student.getFirstName() + "!", student.getLastName(),
+                    student.getGender(), student.getBirthday(), student.getGroupId(),
+                    student.getYearOfAdmission(), null, null, null);
+            Assert.assertEquals("equals", student, copy);
+            Assert.assertNotEquals("equals", student, renamed);
+            Assert.assertTrue("contains", testSet.contains(copy));
+        }
+    }
+
     private void check(Set<CheckedOpenHashTableEntity> validSet, Set<CheckedOpenHashTableEntity> testSet, CheckedOpenHashTableEntity value, TransformOperation transformOperation) {
         checkSizeAndContains(validSet, testSet, value);
         checkTransformOperation(validSet, testSet, value, transformOperation);
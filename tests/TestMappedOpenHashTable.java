@@ -0,0 +1,123 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.FixMethodOrder;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runners.MethodSorters;
+
+import ru.mail.polis.MappedOpenHashTable;
+import ru.mail.polis.RecordCodec;
+import ru.mail.polis.SimpleStudentGenerator;
+import ru.mail.polis.Student;
+import ru.mail.polis.StudentCodec;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class TestMappedOpenHashTable extends AbstractSetTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path file() {
+        return folder.getRoot().toPath().resolve("students.table");
+    }
+
+    private List<Student> generate(int count) {
+        List<Student> values = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            values.add(SimpleStudentGenerator.getInstance().generate());
+        }
+        return values;
+    }
+
+    @Test
+    public void test01_random() throws IOException {
+        List<Student> values = generate(500);
+        Set<Student> validSet = new HashSet<>();
+        try (MappedOpenHashTable<Student> testSet = new MappedOpenHashTable<>(file(), new StudentCodec())) {
+            for (int i = 0; i < 20000; i++) {
+                Student value = values.get(RANDOM.nextInt(values.size()));
+                checkTransformOperation(validSet, testSet,
+                        value, RANDOM.nextBoolean() ? TransformOperation.ADD : TransformOperation.REMOVE);
+            }
+            Set<Long> ids = new HashSet<>();
+            for (Student value : testSet) {
+                ids.add(value.getId());
+            }
+            Set<Long> validIds = new HashSet<>();
+            for (Student value : validSet) {
+                validIds.add(value.getId());
+            }
+            Assert.assertEquals("iterator", validIds, ids);
+        }
+    }
+
+    @Test
+    public void test02_reopen() throws IOException {
+        List<Student> values = generate(1000);
+        int tableSize;
+        try (MappedOpenHashTable<Student> testSet = new MappedOpenHashTable<>(file(), new StudentCodec())) {
+            testSet.addAll(values);
+            for (int i = 0; i < values.size(); i += 2) {
+                testSet.remove(values.get(i));
+            }
+            tableSize = testSet.getTableSize();
+        }
+        try (MappedOpenHashTable<Student> testSet = new MappedOpenHashTable<>(file(), new StudentCodec())) {
+            Assert.assertEquals("tableSize", tableSize, testSet.getTableSize());
+            Assert.assertEquals("size", values.size() / 2, testSet.size());
+            for (int i = 0; i < values.size(); i++) {
+                Assert.assertEquals("contains", i % 2 == 1, testSet.contains(values.get(i)));
+            }
+            Student decoded = testSet.iterator().next();
+            Assert.assertTrue("decoded", testSet.contains(decoded));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void test03_otherCodec() throws IOException {
+        new MappedOpenHashTable<>(file(), new StudentCodec()).close();
+        new MappedOpenHashTable<>(file(), new RecordCodec<Student>() {
+            @Override
+            public int recordSize() {
+                return 8;
+            }
+
+            @Override
+            public void encode(Student value, ByteBuffer buffer) {
+                buffer.putLong(value.getId());
+            }
+
+            @Override
+            public Student decode(ByteBuffer buffer) {
+                throw new UnsupportedOperationException();
+            }
+        });
+    }
+
+    /**
+     * Ячейки файла определяются хешами записи, поэтому они не должны зависеть от запуска JVM:
+     * ожидаемые значения посчитаны по формуле {@link Student#hashCode(int)} и зафиксированы
+     */
+    @Test
+    public void test04_stableHash() {
+        StudentCodec codec = new StudentCodec();
+        ByteBuffer buffer = ByteBuffer.allocate(codec.recordSize());
+        codec.encode(new Student(42, "Марк", "МАВРИН", Student.Gender.MALE, LocalDate.of(1995, 3, 14),
+                1042, 2013, null, "mark@polis.mail.ru", null), buffer);
+        buffer.flip();
+        Student decoded = codec.decode(buffer);
+        Assert.assertEquals("baseHash", 1529308668, decoded.baseHash());
+        Assert.assertEquals("stepHash", 0, decoded.stepHash());
+        Assert.assertEquals("probe 0", 731, decoded.hashCode(1024, 0));
+        Assert.assertEquals("probe 1", 514, decoded.hashCode(1024, 1));
+    }
+}
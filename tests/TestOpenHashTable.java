@@ -0,0 +1,155 @@
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Assert;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+import ru.mail.polis.CheckedOpenHashTableEntity;
+import ru.mail.polis.HashMixer;
+import ru.mail.polis.OpenHashTable;
+import ru.mail.polis.ProbeStrategy;
+import ru.mail.polis.SimpleStudentGenerator;
+import ru.mail.polis.Student;
+
+/**
+ * Тесты режимов и стратегий OpenHashTable, которых нет у остальных хеш-таблиц из {@link TestHashTable}
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class TestOpenHashTable extends AbstractSetTest {
+
+    private static CheckedOpenHashTableEntity generate() {
+        return SimpleStudentGenerator.getInstance().generate();
+    }
+
+    private static List<CheckedOpenHashTableEntity> generate(int count) {
+        List<CheckedOpenHashTableEntity> values = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            values.add(generate());
+        }
+        return values;
+    }
+
+    @Test
+    public void test01_robinHood() {
+        OpenHashTable<CheckedOpenHashTableEntity> robinHood = new OpenHashTable<>(8, 0.75f,
+                OpenHashTable.ProbingMode.ROBIN_HOOD);
+        Set<CheckedOpenHashTableEntity> validSet = new HashSet<>();
+        List<CheckedOpenHashTableEntity> values = generate(300);
+        for (int i = 0; i < 20000; i++) {
+            CheckedOpenHashTableEntity entity = values.get(RANDOM.nextInt(values.size()));
+            check(validSet, robinHood, entity, RANDOM.nextBoolean() ? TransformOperation.ADD : TransformOperation.REMOVE);
+        }
+        for (CheckedOpenHashTableEntity entity : values) {
+            check(validSet, robinHood, entity, TransformOperation.REMOVE);
+        }
+        Assert.assertTrue("removals must not grow the table. tableSize = " + robinHood.getTableSize(),
+                robinHood.getTableSize() <= 512);
+    }
+
+    @Test
+    public void test02_probeStrategies() {
+        ProbeStrategy[] strategies = {
+                ProbeStrategy.linear(HashMixer.IDENTITY),
+                ProbeStrategy.quadratic(HashMixer.FIBONACCI),
+                ProbeStrategy.doubleHashing(HashMixer.MURMUR3),
+        };
+        for (ProbeStrategy strategy : strategies) {
+            CheckedOpenHashTableEntity entity = generate();
+            for (int tableSize = 2; tableSize <= 4096; tableSize <<= 1) {
+                Assert.assertTrue("isHashFunctionValid. tableSize = " + tableSize,
+                        entity.isHashFunctionValid(strategy, strategy.tableSizeFor(tableSize - 1)));
+            }
+            Set<CheckedOpenHashTableEntity> validSet = new HashSet<>();
+            OpenHashTable<CheckedOpenHashTableEntity> table = new OpenHashTable<>(5, 0.5f,
+                    OpenHashTable.ProbingMode.PROBE_SEQUENCE, strategy);
+            Assert.assertEquals("tableSizeFor", strategy.tableSizeFor(5), table.getTableSize());
+            List<CheckedOpenHashTableEntity> values = generate(300);
+            for (int i = 0; i < 5000; i++) {
+                CheckedOpenHashTableEntity value = values.get(RANDOM.nextInt(values.size()));
+                check(validSet, table, value, RANDOM.nextBoolean() ? TransformOperation.ADD : TransformOperation.REMOVE);
+            }
+        }
+    }
+
+    @Test
+    public void test03_seededProbes() {
+        ProbeStrategy strategy = ProbeStrategy.seeded();
+        OpenHashTable<CheckedOpenHashTableEntity> seeded = new OpenHashTable<>(8, 0.5f,
+                OpenHashTable.ProbingMode.PROBE_SEQUENCE, strategy);
+        Set<CheckedOpenHashTableEntity> validSet = new HashSet<>();
+        List<CheckedOpenHashTableEntity> values = generate(300);
+        Assert.assertTrue("isHashFunctionValid", values.get(0).isHashFunctionValid(strategy, 1024));
+        for (int i = 0; i < 5000; i++) {
+            CheckedOpenHashTableEntity value = values.get(RANDOM.nextInt(values.size()));
+            check(validSet, seeded, value, RANDOM.nextBoolean() ? TransformOperation.ADD : TransformOperation.REMOVE);
+        }
+    }
+
+    @Test
+    public void test04_seededConcurrentReads() throws Exception {
+        OpenHashTable<CheckedOpenHashTableEntity> seeded = new OpenHashTable<>(8, 0.9f,
+                OpenHashTable.ProbingMode.PROBE_SEQUENCE, ProbeStrategy.seeded());
+        List<CheckedOpenHashTableEntity> present = generate(1000);
+        List<CheckedOpenHashTableEntity> absent = generate(1000);
+        seeded.addAll(present);
+        List<Callable<Void>> readers = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            readers.add(() -> {
+                for (int i = 0; i < 100; i++) {
+                    for (int j = 0; j < present.size(); j++) {
+                        Assert.assertTrue("contains", seeded.contains(present.get(j)));
+                        Assert.assertFalse("contains", seeded.contains(absent.get(j)));
+                    }
+                }
+                return null;
+            });
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(readers.size());
+        try {
+            for (Future<Void> future : executor.invokeAll(readers)) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void test05_highLoadCopies() {
+        for (OpenHashTable.ProbingMode mode : OpenHashTable.ProbingMode.values()) {
+            OpenHashTable<CheckedOpenHashTableEntity> table = new OpenHashTable<>(8, 0.9f, mode);
+            Set<CheckedOpenHashTableEntity> validSet = new HashSet<>();
+            List<Student> values = new ArrayList<>(300);
+            for (int i = 0; i < 300; i++) {
+                values.add(SimpleStudentGenerator.getInstance().generate());
+            }
+            for (int i = 0; i < 20000; i++) {
+                Student value = values.get(RANDOM.nextInt(values.size()));
+                if (RANDOM.nextBoolean()) {
+                    value = new Student(value.getId(), value.getFirstName(), value.getLastName(),
+                            value.getGender(), value.getBirthday(), value.getGroupId(),
+                            value.getYearOfAdmission(), value.getPhotoReference(), value.getEmail(),
+                            value.getMobile());
+                }
+                check(validSet, table, value, RANDOM.nextBoolean() ? TransformOperation.ADD : TransformOperation.REMOVE);
+            }
+        }
+    }
+
+    private void check(Set<CheckedOpenHashTableEntity> validSet, Set<CheckedOpenHashTableEntity> testSet,
+                       CheckedOpenHashTableEntity value, TransformOperation transformOperation) {
+        checkSizeAndContains(validSet, testSet, value);
+        checkTransformOperation(validSet, testSet, value, transformOperation);
+        checkSizeAndContains(validSet, testSet, value);
+        checkTransformOperation(validSet, testSet, value, transformOperation);
+        checkSizeAndContains(validSet, testSet, value);
+    }
+}
@@ -0,0 +1,88 @@
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.junit.Assert;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+import ru.mail.polis.IntOpenHashSet;
+import ru.mail.polis.LongOpenHashSet;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class TestPrimitiveOpenHashSet extends AbstractSetTest {
+
+    @Test
+    public void test01_intSentinels() {
+        IntOpenHashSet testSet = new IntOpenHashSet();
+        for (int key : new int[]{0, Integer.MIN_VALUE}) {
+            Assert.assertFalse("contains", testSet.contains(key));
+            Assert.assertTrue("add", testSet.add(key));
+            Assert.assertFalse("add", testSet.add(key));
+            Assert.assertTrue("contains", testSet.contains(key));
+        }
+        Assert.assertEquals("size", 2, testSet.size());
+        Assert.assertTrue("remove", testSet.remove(0));
+        Assert.assertFalse("remove", testSet.remove(0));
+        Assert.assertEquals("size", 1, testSet.size());
+    }
+
+    @Test
+    public void test02_intRandom() {
+        Set<Integer> validSet = new HashSet<>();
+        IntOpenHashSet testSet = new IntOpenHashSet();
+        for (int i = 0; i < 100000; i++) {
+            int key = RANDOM.nextInt(1000) - 500;
+            if (RANDOM.nextBoolean()) {
+                Assert.assertEquals("add", validSet.add(key), testSet.add(key));
+            } else {
+                Assert.assertEquals("remove", validSet.remove(key), testSet.remove(key));
+            }
+            Assert.assertEquals("size", validSet.size(), testSet.size());
+            Assert.assertEquals("contains", validSet.contains(key), testSet.contains(key));
+        }
+        Assert.assertTrue("deleted cells must not grow the table", testSet.getTableSize() <= 8192);
+        SortedSet<Integer> keys = new TreeSet<>();
+        for (int key : testSet.toArray()) {
+            keys.add(key);
+        }
+        Assert.assertEquals("toArray", new TreeSet<>(validSet), keys);
+    }
+
+    @Test
+    public void test03_longRandom() {
+        Set<Long> validSet = new HashSet<>();
+        LongOpenHashSet testSet = new LongOpenHashSet();
+        for (int i = 0; i < 100000; i++) {
+            long key = RANDOM.nextInt(1000) * 0x100000001L;
+            if (i % 1000 == 0) {
+                key = RANDOM.nextBoolean() ? 0L : Long.MIN_VALUE;
+            }
+            if (RANDOM.nextBoolean()) {
+                Assert.assertEquals("add", validSet.add(key), testSet.add(key));
+            } else {
+                Assert.assertEquals("remove", validSet.remove(key), testSet.remove(key));
+            }
+            Assert.assertEquals("size", validSet.size(), testSet.size());
+            Assert.assertEquals("contains", validSet.contains(key), testSet.contains(key));
+        }
+    }
+
+    @Test
+    public void test04_hashFunctionValid() {
+        for (int tableSize = 1; tableSize <= 1 << 12; tableSize <<= 1) {
+            int key = RANDOM.nextInt();
+            long longKey = RANDOM.nextLong();
+            SortedSet<Integer> intIdx = new TreeSet<>();
+            SortedSet<Integer> longIdx = new TreeSet<>();
+            for (int probId = 0; probId < tableSize; probId++) {
+                intIdx.add(IntOpenHashSet.hashCode(key, tableSize, probId));
+                longIdx.add(LongOpenHashSet.hashCode(longKey, tableSize, probId));
+            }
+            Assert.assertEquals("isHashFunctionValid. tableSize = " + tableSize, tableSize, intIdx.size());
+            Assert.assertEquals("isHashFunctionValid. tableSize = " + tableSize, tableSize, longIdx.size());
+        }
+    }
+}
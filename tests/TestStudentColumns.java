@@ -0,0 +1,125 @@
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+import ru.mail.polis.SimpleStudentGenerator;
+import ru.mail.polis.Student;
+import ru.mail.polis.StudentColumns;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class TestStudentColumns extends AbstractSetTest {
+
+    private static List<Student> generate(int count) {
+        List<Student> students = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            students.add(SimpleStudentGenerator.getInstance().generate());
+        }
+        return students;
+    }
+
+    @Test
+    public void test01_roundTrip() {
+        List<Student> students = generate(1000);
+        StudentColumns columns = new StudentColumns(students);
+        Assert.assertEquals("size", students.size(), columns.size());
+        for (int row = 0; row < students.size(); row++) {
+            Assert.assertEquals("get", students.get(row), columns.get(row));
+        }
+        Assert.assertEquals("toStudents", students, columns.toStudents(columns.selectAll()));
+    }
+
+    @Test
+    public void test02_filters() {
+        List<Student> students = generate(10000);
+        StudentColumns columns = new StudentColumns(students);
+        for (int i = 0; i < 50; i++) {
+            Student sample = students.get(RANDOM.nextInt(students.size()));
+            LocalDate from = sample.getBirthday().minusDays(RANDOM.nextInt(1000));
+            LocalDate to = sample.getBirthday().plusDays(RANDOM.nextInt(1000));
+            long[] selection = StudentColumns.and(columns.selectBornBetween(from, to),
+                    columns.selectYearOfAdmission(sample.getYearOfAdmission(), sample.getYearOfAdmission() + 1));
+            StudentColumns.and(selection, columns.selectGender(sample.getGender()));
+            List<Student> expected = new ArrayList<>();
+            for (Student student : students) {
+                if (!student.getBirthday().isBefore(from) && !student.getBirthday().isAfter(to)
+                        && student.getYearOfAdmission() >= sample.getYearOfAdmission()
+                        && student.getYearOfAdmission() <= sample.getYearOfAdmission() + 1
+                        && student.getGender() == sample.getGender()) {
+                    expected.add(student);
+                }
+            }
+            Assert.assertEquals("filter", expected, columns.toStudents(selection));
+            Assert.assertEquals("count", expected.size(), StudentColumns.count(selection));
+        }
+        Assert.assertEquals("absent name", 0,
+                StudentColumns.count(columns.selectFirstName("Nobody")));
+    }
+
+    @Test
+    public void test03_aggregates() {
+        List<Student> students = generate(10000);
+        StudentColumns columns = new StudentColumns(students);
+        Student sample = students.get(0);
+        long[] selection = columns.selectLastName(sample.getLastName());
+        int[] byGender = columns.countByGender(selection);
+        int[] byGroupId = columns.countByGroupId(selection);
+        int[] byFirstName = columns.countByFirstName(selection);
+        int[] expectedByGender = new int[Student.Gender.values().length];
+        int[] expectedByGroupId = new int[byGroupId.length];
+        int[] expectedByFirstName = new int[byFirstName.length];
+        for (Student student : students) {
+            if (student.getLastName().equals(sample.getLastName())) {
+                expectedByGender[student.getGender().ordinal()]++;
+                expectedByGroupId[student.getGroupId() - columns.getMinGroupId()]++;
+                for (int code = 0; code < byFirstName.length; code++) {
+                    if (columns.getFirstName(code).equals(student.getFirstName())) {
+                        expectedByFirstName[code]++;
+                    }
+                }
+            }
+        }
+        Assert.assertArrayEquals("byGender", expectedByGender, byGender);
+        Assert.assertArrayEquals("byGroupId", expectedByGroupId, byGroupId);
+        Assert.assertArrayEquals("byFirstName", expectedByFirstName, byFirstName);
+        Assert.assertEquals("all", students.size(), StudentColumns.count(columns.selectAll()));
+    }
+
+    @Test
+    public void test04_growAfterSelection() {
+        List<Student> students = generate(100);
+        StudentColumns columns = new StudentColumns(students);
+        long[] all = columns.selectAll();
+        long[] male = columns.selectGender(Student.Gender.MALE);
+        for (Student student : generate(1000)) {
+            columns.add(student);
+        }
+        int[] expectedByGender = new int[Student.Gender.values().length];
+        int[] expectedByGroupId = new int[columns.countByGroupId(columns.selectAll()).length];
+        for (Student student : students) {
+            expectedByGender[student.getGender().ordinal()]++;
+            expectedByGroupId[student.getGroupId() - columns.getMinGroupId()]++;
+        }
+        Assert.assertArrayEquals("byGender", expectedByGender, columns.countByGender(all));
+        Assert.assertArrayEquals("byGroupId", expectedByGroupId, columns.countByGroupId(all));
+        Assert.assertEquals("byFirstName", students.size(), sum(columns.countByFirstName(all)));
+        int males = expectedByGender[Student.Gender.MALE.ordinal()];
+        Assert.assertEquals("new and old", males,
+                StudentColumns.count(StudentColumns.and(columns.selectGender(Student.Gender.MALE), all)));
+        Assert.assertEquals("old and new", males,
+                StudentColumns.count(StudentColumns.and(all.clone(), columns.selectGender(Student.Gender.MALE))));
+        Assert.assertEquals("old and old", males, StudentColumns.count(StudentColumns.and(all, male)));
+    }
+
+    private static int sum(int[] counts) {
+        int sum = 0;
+        for (int count : counts) {
+            sum += count;
+        }
+        return sum;
+    }
+}
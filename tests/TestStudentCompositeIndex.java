@@ -0,0 +1,93 @@
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+import ru.mail.polis.SimpleStudentGenerator;
+import ru.mail.polis.Student;
+import ru.mail.polis.StudentCompositeIndex;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class TestStudentCompositeIndex extends AbstractSetTest {
+
+    private static List<Long> scan(List<Student> students, int yearFrom, int yearTo, LocalDate from, LocalDate to) {
+        List<Student> result = new ArrayList<>();
+        for (Student student : students) {
+            if (student.getYearOfAdmission() >= yearFrom && student.getYearOfAdmission() <= yearTo
+                    && !student.getBirthday().isBefore(from) && !student.getBirthday().isAfter(to)) {
+                result.add(student);
+            }
+        }
+        result.sort((s1, s2) -> {
+            int cmp = Integer.compare(s1.getYearOfAdmission(), s2.getYearOfAdmission());
+            if (cmp == 0) {
+                cmp = s1.getBirthday().compareTo(s2.getBirthday());
+            }
+            return cmp != 0 ? cmp : Long.compare(s1.getId(), s2.getId());
+        });
+        return ids(result);
+    }
+
+    private static List<Long> ids(List<Student> students) {
+        List<Long> ids = new ArrayList<>();
+        for (Student student : students) {
+            ids.add(student.getId());
+        }
+        return ids;
+    }
+
+    @Test
+    public void test01_random() {
+        StudentCompositeIndex index = new StudentCompositeIndex();
+        List<Student> students = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            Student student = SimpleStudentGenerator.getInstance().generate();
+            students.add(student);
+            Assert.assertTrue("add", index.add(student));
+        }
+        for (int i = 0; i < 1000; i++) {
+            Assert.assertTrue("remove", index.remove(students.remove(RANDOM.nextInt(students.size()))));
+        }
+        Assert.assertEquals("size", students.size(), index.size());
+        for (int i = 0; i < 300; i++) {
+            Student sample = students.get(RANDOM.nextInt(students.size()));
+            int yearFrom = sample.getYearOfAdmission() - RANDOM.nextInt(3);
+            int yearTo = sample.getYearOfAdmission() + RANDOM.nextInt(3);
+            LocalDate from = sample.getBirthday().minusDays(RANDOM.nextInt(200));
+            LocalDate to = sample.getBirthday().plusDays(RANDOM.nextInt(200));
+            StudentCompositeIndex.Result result = index.find(yearFrom, yearTo, from, to);
+            Assert.assertEquals("find", scan(students, yearFrom, yearTo, from, to), ids(result.getStudents()));
+            Assert.assertTrue("seeks", result.getSeeks() <= yearTo - yearFrom + 1);
+            int year = sample.getYearOfAdmission();
+            Assert.assertEquals("count", scan(students, year, year, from, to).size(), index.count(year, from, to));
+        }
+    }
+
+    @Test
+    public void test02_boundedScan() {
+        StudentCompositeIndex index = new StudentCompositeIndex();
+        LocalDate birthday = LocalDate.of(1998, 1, 1);
+        for (int year = 2010; year < 2020; year++) {
+            for (int day = 0; day < 1000; day++) {
+                index.add(new Student("Ivan", "Ivanov", Student.Gender.MALE, birthday.plusDays(day), 1, year));
+            }
+        }
+        LocalDate from = birthday.plusDays(500);
+        LocalDate to = birthday.plusDays(509);
+        StudentCompositeIndex.Result result = index.find(2000, 2030, from, to);
+        Assert.assertEquals("find", 100, result.getStudents().size());
+        // Спуск к 2000 году сразу находит 2010, спуск к 2020 ничего не находит, остальные 10 — по году:
+        // пустые годы пропускаются, поэтому спусков 12, а не 31
+        Assert.assertEquals("seeks", 12, result.getSeeks());
+        // Каждый спуск проходит O(log n) узлов, обход — 10 ключей и один ключ за диапазоном
+        Assert.assertTrue("visitedNodes " + result.getVisitedNodes(), result.getVisitedNodes() < 10 * (11 + 4 * 14));
+        result = index.find(2015, from, to);
+        Assert.assertEquals("find", 10, result.getStudents().size());
+        Assert.assertEquals("seeks", 1, result.getSeeks());
+        Assert.assertEquals("count", 10, index.count(2015, from, to));
+    }
+}
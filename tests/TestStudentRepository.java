@@ -0,0 +1,122 @@
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+import ru.mail.polis.SimpleStudentGenerator;
+import ru.mail.polis.Student;
+import ru.mail.polis.StudentQuery;
+import ru.mail.polis.StudentRepository;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class TestStudentRepository extends AbstractSetTest {
+
+    private static List<Long> ids(List<Student> students) {
+        List<Long> ids = new ArrayList<>();
+        for (Student student : students) {
+            ids.add(student.getId());
+        }
+        ids.sort(Comparator.naturalOrder());
+        return ids;
+    }
+
+    private static List<Long> scan(Map<Long, Student> students, Student sample, boolean byGroup, boolean byYear,
+                                   boolean byEmail, LocalDate from, LocalDate to) {
+        List<Student> result = new ArrayList<>();
+        for (Student student : students.values()) {
+            if (byGroup && student.getGroupId() != sample.getGroupId()
+                    || byYear && student.getYearOfAdmission() != sample.getYearOfAdmission()
+                    || byEmail && !sample.getEmail().equals(student.getEmail())
+                    || from != null && (student.getBirthday().isBefore(from) || student.getBirthday().isAfter(to))) {
+                continue;
+            }
+            result.add(student);
+        }
+        return ids(result);
+    }
+
+    /**
+     * Новая версия студента с тем же id и другим email
+     */
+    private static Student withEmail(Student student, String email) {
+        return new Student(student.getId(), student.getFirstName(), student.getLastName(), student.getGender(),
+                student.getBirthday(), student.getGroupId(), student.getYearOfAdmission(),
+                student.getPhotoReference(), email, student.getMobile());
+    }
+
+    @Test
+    public void test01_crud() {
+        StudentRepository repository = new StudentRepository();
+        Map<Long, Student> validMap = new HashMap<>();
+        List<Student> students = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            students.add(SimpleStudentGenerator.getInstance().generate());
+        }
+        for (int i = 0; i < 10000; i++) {
+            Student student = students.get(RANDOM.nextInt(students.size()));
+            switch (RANDOM.nextInt(3)) {
+                case 0:
+                    Assert.assertEquals("insert", validMap.putIfAbsent(student.getId(), student) == null,
+                            repository.insert(student));
+                    break;
+                case 1:
+                    Student updated = withEmail(student, "u" + RANDOM.nextInt(50) + "@polis.mail.ru");
+                    Assert.assertEquals("update", validMap.replace(student.getId(), updated) != null,
+                            repository.update(updated));
+                    break;
+                default:
+                    Assert.assertEquals("delete", validMap.remove(student.getId()) != null,
+                            repository.delete(student.getId()));
+            }
+            Assert.assertEquals("size", validMap.size(), repository.size());
+            Assert.assertSame("findById", validMap.get(student.getId()), repository.findById(student.getId()));
+        }
+        for (Student sample : validMap.values()) {
+            Assert.assertEquals("groupId", scan(validMap, sample, true, false, false, null, null),
+                    ids(repository.find(new StudentQuery().groupId(sample.getGroupId()))));
+            if (sample.getEmail() != null) {
+                Assert.assertEquals("email", scan(validMap, sample, false, false, true, null, null),
+                        ids(repository.find(new StudentQuery().email(sample.getEmail()))));
+            }
+            LocalDate from = sample.getBirthday().minusDays(RANDOM.nextInt(100));
+            LocalDate to = sample.getBirthday().plusDays(RANDOM.nextInt(100));
+            Assert.assertEquals("yearOfAdmission and birthday", scan(validMap, sample, false, true, false, from, to),
+                    ids(repository.find(new StudentQuery().yearOfAdmission(sample.getYearOfAdmission())
+                            .bornBetween(from, to))));
+        }
+    }
+
+    @Test
+    public void test02_cheapestIndex() {
+        StudentRepository repository = new StudentRepository();
+        List<Student> students = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            Student student = SimpleStudentGenerator.getInstance().generate();
+            students.add(student);
+            repository.insert(student);
+        }
+        Student sample = students.get(0);
+        sample = withEmail(sample, "unique@polis.mail.ru");
+        repository.update(sample);
+        StudentQuery query = new StudentQuery().groupId(sample.getGroupId()).yearOfAdmission(sample.getYearOfAdmission());
+        Assert.assertEquals("explain", StudentRepository.Index.GROUP_ID, repository.explain(query));
+        query.email(sample.getEmail());
+        Assert.assertEquals("explain", StudentRepository.Index.EMAIL, repository.explain(query));
+        query.bornBetween(sample.getBirthday(), sample.getBirthday());
+        Assert.assertEquals("find", 1, repository.find(query).size());
+        Assert.assertEquals("explain", StudentRepository.Index.ADMISSION_AND_BIRTHDAY,
+                repository.explain(new StudentQuery().yearOfAdmission(sample.getYearOfAdmission())
+                        .bornBetween(sample.getBirthday(), sample.getBirthday())));
+        Assert.assertEquals("explain", StudentRepository.Index.BIRTHDAY,
+                repository.explain(new StudentQuery().groupId(sample.getGroupId())
+                        .bornBetween(sample.getBirthday(), sample.getBirthday())));
+        Assert.assertEquals("full scan", students.size(), repository.find(new StudentQuery()).size());
+    }
+}